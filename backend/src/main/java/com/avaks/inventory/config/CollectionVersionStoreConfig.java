@@ -0,0 +1,26 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.service.etag.CollectionVersionStore;
+import com.avaks.inventory.service.etag.InMemoryCollectionVersionStore;
+import com.avaks.inventory.service.etag.RedisCollectionVersionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+public class CollectionVersionStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.etag.store", havingValue = "redis")
+    public CollectionVersionStore redisCollectionVersionStore(StringRedisTemplate redisTemplate) {
+        return new RedisCollectionVersionStore(redisTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(CollectionVersionStore.class)
+    public CollectionVersionStore inMemoryCollectionVersionStore() {
+        return new InMemoryCollectionVersionStore();
+    }
+}
@@ -0,0 +1,27 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.service.idempotency.IdempotencyStore;
+import com.avaks.inventory.service.idempotency.InMemoryIdempotencyStore;
+import com.avaks.inventory.service.idempotency.RedisIdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+public class IdempotencyStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "redis")
+    public IdempotencyStore redisIdempotencyStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        return new RedisIdempotencyStore(redisTemplate, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(IdempotencyStore.class)
+    public IdempotencyStore inMemoryIdempotencyStore() {
+        return new InMemoryIdempotencyStore();
+    }
+}
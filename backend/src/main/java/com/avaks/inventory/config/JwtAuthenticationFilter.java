@@ -2,6 +2,8 @@ package com.avaks.inventory.config;
 
 import com.avaks.inventory.service.CustomUserDetailsService;
 import com.avaks.inventory.service.JwtService;
+import com.avaks.inventory.service.StreamTicketService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,26 +23,30 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/stream";
+    private static final String TICKET_PARAM = "ticket";
+
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
+    private final VerifiedPrincipalCache principalCache;
+    private final StreamTicketService streamTicketService;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
 
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        String jwt = resolveToken(request);
+        String ticket = jwt == null ? resolveStreamTicket(request) : null;
+        if (jwt == null && ticket == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String jwt = authHeader.substring(7);
         try {
-            String email = jwtService.extractEmail(jwt);
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = jwt != null ? resolvePrincipal(jwt) : redeemTicket(ticket);
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -56,4 +62,58 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private String resolveToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return null;
+    }
+
+    // EventSource cannot send headers, so the stream endpoint takes a single-use ticket from the
+    // query instead. The JWT itself never goes into a URL, where proxies would log it.
+    private String resolveStreamTicket(HttpServletRequest request) {
+        if ("GET".equals(request.getMethod()) && STREAM_PATH.equals(request.getRequestURI())) {
+            String ticket = request.getParameter(TICKET_PARAM);
+            return ticket == null || ticket.isBlank() ? null : ticket;
+        }
+        return null;
+    }
+
+    private UserDetails redeemTicket(String ticket) {
+        return streamTicketService.redeem(ticket)
+                .map(userDetailsService::loadUserByUsername)
+                .orElse(null);
+    }
+
+    private UserDetails resolvePrincipal(String jwt) {
+        String tokenDigest = principalCache.digest(jwt);
+        UserDetails cached = principalCache.get(tokenDigest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = jwtService.parseClaims(jwt);
+        String email = claims.getSubject();
+        if (email == null) {
+            return null;
+        }
+
+        long generation = principalCache.currentGeneration(email);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        if (!jwtService.isTokenValid(claims, userDetails.getUsername())) {
+            return null;
+        }
+
+        Long tokenUserId = jwtService.extractUserId(claims);
+        if (tokenUserId != null
+                && userDetails instanceof AuthenticatedUser authenticatedUser
+                && !tokenUserId.equals(authenticatedUser.getId())) {
+            return null;
+        }
+
+        principalCache.put(tokenDigest, userDetails, claims.getExpiration().toInstant(), generation);
+        return userDetails;
+    }
 }
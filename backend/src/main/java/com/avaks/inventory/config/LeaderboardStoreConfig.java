@@ -0,0 +1,36 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.repository.SalesRollupRepository;
+import com.avaks.inventory.service.leaderboard.InMemoryLeaderboardStore;
+import com.avaks.inventory.service.leaderboard.LeaderboardStore;
+import com.avaks.inventory.service.leaderboard.LeaderboardWindow;
+import com.avaks.inventory.service.leaderboard.RedisLeaderboardStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDate;
+
+@Configuration
+public class LeaderboardStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.leaderboard.store", havingValue = "redis")
+    public LeaderboardStore redisLeaderboardStore(StringRedisTemplate redisTemplate) {
+        return new RedisLeaderboardStore(redisTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(LeaderboardStore.class)
+    public LeaderboardStore inMemoryLeaderboardStore(SalesRollupRepository salesRollupRepository) {
+        // Nothing in memory survives a restart, so the windows are rebuilt from the daily rollups
+        // while the context starts, before any sale can be recorded.
+        InMemoryLeaderboardStore store = new InMemoryLeaderboardStore();
+        LocalDate since = LocalDate.now().minusDays(LeaderboardWindow.LAST_30_DAYS.days() - 1L);
+        salesRollupRepository.forEachDailyProductTotal(since, total -> store.seed(
+                total.userId(), total.day(), total.productId(), total.quantity(), total.profit()));
+        return store;
+    }
+}
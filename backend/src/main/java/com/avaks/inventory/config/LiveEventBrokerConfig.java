@@ -0,0 +1,79 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.service.LiveStreamService;
+import com.avaks.inventory.service.ProductSearchService;
+import com.avaks.inventory.service.stream.LiveEvent;
+import com.avaks.inventory.service.stream.InMemoryLiveEventBroker;
+import com.avaks.inventory.service.stream.LiveEventBroker;
+import com.avaks.inventory.service.stream.InMemoryStreamTicketStore;
+import com.avaks.inventory.service.stream.RedisLiveEventBroker;
+import com.avaks.inventory.service.stream.RedisStreamTicketStore;
+import com.avaks.inventory.service.stream.StreamTicketStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.function.Consumer;
+
+@Configuration
+public class LiveEventBrokerConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.stream.broker", havingValue = "redis")
+    public RedisLiveEventBroker redisLiveEventBroker(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                                     LiveStreamService liveStreamService,
+                                                     ObjectProvider<ProductSearchService> productSearchService) {
+        return new RedisLiveEventBroker(redisTemplate, objectMapper, localDelivery(liveStreamService, productSearchService));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.stream.broker", havingValue = "redis")
+    public RedisMessageListenerContainer liveEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    RedisLiveEventBroker redisLiveEventBroker) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(redisLiveEventBroker, new ChannelTopic(RedisLiveEventBroker.CHANNEL));
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(LiveEventBroker.class)
+    public LiveEventBroker inMemoryLiveEventBroker(LiveStreamService liveStreamService,
+                                                   ObjectProvider<ProductSearchService> productSearchService) {
+        return new InMemoryLiveEventBroker(localDelivery(liveStreamService, productSearchService));
+    }
+
+    // Search index changes ride the same channel but are for the nodes, not the clients. The
+    // search service publishes through the broker, hence the provider.
+    private static Consumer<LiveEvent> localDelivery(LiveStreamService liveStreamService,
+                                                     ObjectProvider<ProductSearchService> productSearchService) {
+        return event -> {
+            if (ProductSearchService.INDEX_EVENT.equals(event.type())) {
+                productSearchService.getObject().onIndexEvent(event);
+            } else {
+                liveStreamService.deliver(event);
+            }
+        };
+    }
+
+    // A ticket may be redeemed on another node than the one that issued it, so tickets share
+    // the broker's backend.
+    @Bean
+    @ConditionalOnProperty(name = "app.stream.broker", havingValue = "redis")
+    public StreamTicketStore redisStreamTicketStore(StringRedisTemplate redisTemplate) {
+        return new RedisStreamTicketStore(redisTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(StreamTicketStore.class)
+    public StreamTicketStore inMemoryStreamTicketStore() {
+        return new InMemoryStreamTicketStore();
+    }
+}
@@ -0,0 +1,26 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.service.otp.InMemoryOtpStore;
+import com.avaks.inventory.service.otp.OtpStore;
+import com.avaks.inventory.service.otp.RedisOtpStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+public class OtpStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.otp.store", havingValue = "redis")
+    public OtpStore redisOtpStore(StringRedisTemplate redisTemplate) {
+        return new RedisOtpStore(redisTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(OtpStore.class)
+    public OtpStore inMemoryOtpStore() {
+        return new InMemoryOtpStore();
+    }
+}
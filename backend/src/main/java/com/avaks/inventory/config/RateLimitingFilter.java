@@ -1,5 +1,8 @@
 package com.avaks.inventory.config;
 
+import com.avaks.inventory.config.ratelimit.ByteCountingRequest;
+import com.avaks.inventory.config.ratelimit.RateLimitCostResolver;
+import com.avaks.inventory.config.ratelimit.TokenBucketRateLimiter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,6 +12,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,6 +26,8 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitingFilter.class);
 
     private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    private final TokenBucketRateLimiter tokenBucketRateLimiter;
+    private final RateLimitCostResolver costResolver;
 
     @Value("${app.rate-limit.enabled:true}")
     private boolean enabled;
@@ -37,8 +44,15 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     @Value("${app.rate-limit.auth-max-requests-per-minute:60}")
     private long authMaxRequestsPerWindow;
 
-    public RateLimitingFilter(ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+    @Value("${app.rate-limit.write-max-requests-per-minute:${app.rate-limit.max-requests-per-minute:240}}")
+    private long writeMaxRequestsPerWindow;
+
+    public RateLimitingFilter(ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                              TokenBucketRateLimiter tokenBucketRateLimiter,
+                              RateLimitCostResolver costResolver) {
         this.redisTemplateProvider = redisTemplateProvider;
+        this.tokenBucketRateLimiter = tokenBucketRateLimiter;
+        this.costResolver = costResolver;
     }
 
     @Override
@@ -69,21 +83,44 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             HttpServletResponse response,
             FilterChain filterChain) throws ServletException, IOException {
 
+        String path = request.getRequestURI();
+        String scope = resolveScope(request, path);
+        long requestLimit = switch (scope) {
+            case "auth" -> authMaxRequestsPerWindow;
+            case "write" -> writeMaxRequestsPerWindow;
+            default -> maxRequestsPerWindow;
+        };
+        long cost = Math.min(costResolver.resolve(request), requestLimit);
+        String clientKey = scope + ":" + resolveClientIdentity(request);
+        ByteCountingRequest countingRequest = costResolver.isChargedUpFront(request) ? new ByteCountingRequest(request) : null;
+
+        if (tokenBucketRateLimiter.isEnabled()) {
+            if (!tokenBucketRateLimiter.tryConsume(clientKey, requestLimit, cost)) {
+                rejectTooManyRequests(response, tokenBucketRateLimiter.retryAfterSeconds(clientKey, requestLimit, cost));
+                return;
+            }
+            try {
+                filterChain.doFilter(countingRequest != null ? countingRequest : request, response);
+            } finally {
+                if (countingRequest != null) {
+                    tokenBucketRateLimiter.refund(clientKey, requestLimit, unusedCost(countingRequest, cost));
+                }
+            }
+            return;
+        }
+
         StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
         if (redisTemplate == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String path = request.getRequestURI();
-        String scope = path.startsWith("/auth") ? "auth" : "api";
-        long requestLimit = "auth".equals(scope) ? authMaxRequestsPerWindow : maxRequestsPerWindow;
-        String key = "rate_limit:" + scope + ":" + getClientIp(request);
+        String key = "rate_limit:" + clientKey;
         Long currentCount;
 
         try {
-            currentCount = redisTemplate.opsForValue().increment(key);
-            if (currentCount != null && currentCount == 1L) {
+            currentCount = redisTemplate.opsForValue().increment(key, cost);
+            if (currentCount != null && currentCount == cost) {
                 redisTemplate.expire(key, Duration.ofSeconds(windowSeconds));
             }
         } catch (Exception ex) {
@@ -100,14 +137,60 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         }
 
         if (currentCount != null && currentCount > requestLimit) {
-            response.setStatus(429);
-            response.setContentType("application/json");
-            response.setHeader("Retry-After", String.valueOf(windowSeconds));
-            response.getWriter().write("{\"error\":\"Too many requests. Please retry later.\"}");
+            rejectTooManyRequests(response, windowSeconds);
             return;
         }
 
-        filterChain.doFilter(request, response);
+        try {
+            filterChain.doFilter(countingRequest != null ? countingRequest : request, response);
+        } finally {
+            if (countingRequest != null) {
+                refundWindow(redisTemplate, key, unusedCost(countingRequest, cost));
+            }
+        }
+    }
+
+    /** The part of an up-front charge that the body, now read, did not need. */
+    private long unusedCost(ByteCountingRequest request, long charged) {
+        return charged - Math.min(charged, costResolver.costForBytes(request.bodyBytes()));
+    }
+
+    private void refundWindow(StringRedisTemplate redisTemplate, String key, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().decrement(key, tokens);
+        } catch (Exception ex) {
+            LOGGER.warn("Rate limiter refund failed for {}: {}", key, ex.getMessage());
+        }
+    }
+
+    private void rejectTooManyRequests(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(429);
+        response.setContentType("application/json");
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.getWriter().write("{\"error\":\"Too many requests. Please retry later.\"}");
+    }
+
+    /**
+     * Reads and writes get separate buckets so heavy writers cannot starve cheap reads.
+     */
+    private String resolveScope(HttpServletRequest request, String path) {
+        if (path.startsWith("/auth")) {
+            return "auth";
+        }
+
+        String method = request.getMethod();
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method) ? "read" : "write";
+    }
+
+    private String resolveClientIdentity(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return "user:" + principal.getId();
+        }
+        return "ip:" + getClientIp(request);
     }
 
     private String getClientIp(HttpServletRequest request) {
@@ -0,0 +1,17 @@
+package com.avaks.inventory.config;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.List;
+
+/** DefaultRedisScript takes a result Class, which cannot say what a returned list holds. */
+public final class RedisScripts {
+
+    private RedisScripts() {
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> DefaultRedisScript<List<T>> listScript(String source) {
+        return new DefaultRedisScript<>(source, (Class<List<T>>) (Class) List.class);
+    }
+}
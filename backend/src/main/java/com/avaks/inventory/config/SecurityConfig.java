@@ -1,6 +1,7 @@
 package com.avaks.inventory.config;
 
 import com.avaks.inventory.service.CustomUserDetailsService;
+import com.avaks.inventory.service.IdempotencyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -21,6 +22,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.PrintWriter;
 import java.util.Arrays;
@@ -45,6 +47,9 @@ public class SecurityConfig {
     @Value("${app.security.require-https:false}")
     private boolean requireHttps;
 
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         if (requireHttps) {
@@ -71,11 +76,15 @@ public class SecurityConfig {
             )
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Streamed responses finish with an async dispatch; the original request was already authorized.
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/auth/**", "/error", "/actuator/health", "/actuator/info", "/actuator/metrics/**").permitAll()
+                // Lists every tenant's bucket keys.
+                .requestMatchers("/actuator/ratelimits", "/actuator/ratelimits/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(rateLimitingFilter, UsernamePasswordAuthenticationFilter.class)
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitingFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -90,7 +99,7 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -98,8 +107,8 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(parseCsv(allowedOrigins));
         configuration.setAllowedMethods(parseCsv(allowedMethods));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With"));
-        configuration.setExposedHeaders(List.of("Authorization"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", IdempotencyService.IDEMPOTENCY_KEY_HEADER, "If-None-Match"));
+        configuration.setExposedHeaders(List.of("Authorization", "Content-Disposition", "ETag", IdempotencyService.REPLAYED_HEADER));
         configuration.setAllowCredentials(false);
         configuration.setMaxAge(3600L);
 
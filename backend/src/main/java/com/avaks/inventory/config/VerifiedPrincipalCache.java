@@ -0,0 +1,141 @@
+package com.avaks.inventory.config;
+
+import com.avaks.inventory.service.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of principals whose JWT has already been verified, keyed by a SHA-256
+ * digest of the raw token. Entries never outlive the token's {@code exp} claim nor the
+ * configured max TTL, which also bounds staleness on other nodes after an invalidation.
+ */
+@Component
+public class VerifiedPrincipalCache {
+
+    private final Map<String, CachedPrincipal> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxTtlMs;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public VerifiedPrincipalCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.principal-cache.enabled:true}") boolean enabled,
+            @Value("${app.security.principal-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.security.principal-cache.max-ttl-seconds:300}") long maxTtlSeconds) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxTtlMs = maxTtlSeconds * 1000L;
+
+        this.hits = Counter.builder("auth.principal.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("auth.principal.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("auth.principal.cache.evictions").register(meterRegistry);
+        Gauge.builder("auth.principal.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    public UserDetails get(String tokenDigest) {
+        if (!enabled) {
+            return null;
+        }
+
+        CachedPrincipal cached = entries.get(tokenDigest);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (cached.expiresAtMs() <= System.currentTimeMillis()
+                || cached.generation() != generationOf(cached.principal().getUsername())) {
+            entries.remove(tokenDigest, cached);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return cached.principal();
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put}. It must be read before the user row is
+     * loaded so that an invalidation racing with the load leaves the new entry already stale.
+     */
+    public long currentGeneration(String email) {
+        return generationOf(email);
+    }
+
+    public void put(String tokenDigest, UserDetails principal, Instant tokenExpiry, long generation) {
+        if (!enabled || tokenExpiry == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAtMs = Math.min(tokenExpiry.toEpochMilli(), now + maxTtlMs);
+        if (expiresAtMs <= now) {
+            return;
+        }
+
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(tokenDigest, new CachedPrincipal(principal, expiresAtMs, generation));
+    }
+
+    /**
+     * Drops every cached principal of the given user, e.g. after a password or role change.
+     * Inside a transaction the bump is deferred to after commit so a concurrent request
+     * cannot re-cache the row as it was before the change.
+     */
+    public void invalidateUser(String email) {
+        if (email == null) {
+            return;
+        }
+
+        String normalizedEmail = email.toLowerCase();
+        AfterCommit.run(() -> generations.merge(normalizedEmail, 1L, Long::sum));
+    }
+
+    private long generationOf(String email) {
+        return email == null ? 0L : generations.getOrDefault(email.toLowerCase(), 0L);
+    }
+
+    private void evict(long now) {
+        entries.entrySet().removeIf(entry -> entry.getValue().expiresAtMs() <= now);
+
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    private record CachedPrincipal(UserDetails principal, long expiresAtMs, long generation) {
+    }
+}
@@ -1,10 +1,12 @@
 package com.avaks.inventory.config.cache;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -18,13 +20,17 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Both providers are transaction-aware, so evictions issued inside a write transaction take
+ * effect only after it commits, and are wrapped to count invalidations per cache.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
     @Bean
     @ConditionalOnProperty(name = "app.cache.provider", havingValue = "redis")
-    public CacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory, MeterRegistry meterRegistry) {
         RedisCacheConfiguration defaultCacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .disableCachingNullValues()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
@@ -42,17 +48,21 @@ public class CacheConfig {
         cacheConfigurations.put(CacheNames.TOTAL_PROFIT_BY_USER, defaultCacheConfig.entryTtl(Duration.ofSeconds(20)));
         cacheConfigurations.put(CacheNames.LATEST_PROFIT_BY_USER, defaultCacheConfig.entryTtl(Duration.ofSeconds(20)));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        RedisCacheManager cacheManager = RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(defaultCacheConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
+                .transactionAware()
                 .build();
+        // Built outside the container, so the caches are initialized here.
+        cacheManager.afterPropertiesSet();
+        return new InstrumentedCacheManager(cacheManager, meterRegistry);
     }
 
     @Bean
     @ConditionalOnMissingBean(CacheManager.class)
-    public CacheManager localCacheManager() {
+    public CacheManager localCacheManager(MeterRegistry meterRegistry) {
         ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CacheNames.ALL_CACHES);
         cacheManager.setAllowNullValues(false);
-        return cacheManager;
+        return new InstrumentedCacheManager(new TransactionAwareCacheManagerProxy(cacheManager), meterRegistry);
     }
 }
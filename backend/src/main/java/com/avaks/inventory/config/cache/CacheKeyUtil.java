@@ -17,6 +17,10 @@ public final class CacheKeyUtil {
     }
 
     public static String forCurrentUserWithId(Long id) {
-        return currentUserEmail() + ":" + id;
+        return forUserWithId(currentUserEmail(), id);
+    }
+
+    public static String forUserWithId(String email, Long id) {
+        return email + ":" + id;
     }
 }
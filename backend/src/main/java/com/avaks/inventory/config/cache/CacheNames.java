@@ -5,9 +5,11 @@ public final class CacheNames {
     private CacheNames() {
     }
 
-    public static final String PRODUCTS_BY_USER = "productsByUser";
-    public static final String PRODUCTS_SALE_INFO_BY_USER = "productsSaleInfoByUser";
-    public static final String PRODUCT_BY_USER_AND_ID = "productByUserAndId";
+    // Named after the read-model DTOs they hold, so entries serialized as Product entities by an
+    // older build are never read back as the new types.
+    public static final String PRODUCTS_BY_USER = "productViewsByUser";
+    public static final String PRODUCTS_SALE_INFO_BY_USER = "productSaleViewsByUser";
+    public static final String PRODUCT_BY_USER_AND_ID = "productViewByUserAndId";
 
     public static final String SUPPLIERS_BY_USER = "suppliersByUser";
     public static final String SUPPLIER_BY_USER_AND_ID = "supplierByUserAndId";
@@ -0,0 +1,124 @@
+package com.avaks.inventory.config.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts invalidations per cache as cache.invalidations{cache, scope}, where scope is "key"
+ * for single-entry evictions and "all" for whole-cache clears. Clears wipe every tenant's
+ * entries, so that series should stay flat in normal operation.
+ */
+public class InstrumentedCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public InstrumentedCacheManager(CacheManager delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cached = caches.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, ignored -> new InstrumentedCache(target, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private static final class InstrumentedCache implements Cache {
+
+        private final Cache delegate;
+        private final Counter keyEvictions;
+        private final Counter clears;
+
+        private InstrumentedCache(Cache delegate, MeterRegistry meterRegistry) {
+            this.delegate = delegate;
+            this.keyEvictions = Counter.builder("cache.invalidations")
+                    .tag("cache", delegate.getName())
+                    .tag("scope", "key")
+                    .register(meterRegistry);
+            this.clears = Counter.builder("cache.invalidations")
+                    .tag("cache", delegate.getName())
+                    .tag("scope", "all")
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return delegate.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return delegate.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return delegate.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            keyEvictions.increment();
+            delegate.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            keyEvictions.increment();
+            return delegate.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            clears.increment();
+            delegate.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            clears.increment();
+            return delegate.invalidate();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.avaks.inventory.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts exactly the current tenant's entries for products whose stock changed, for write
+ * paths that touch several ids and so cannot be expressed as one {@code @CacheEvict} key.
+ * Caches are transaction-aware, so inside a transaction the evictions run after commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class TenantCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    public void evictProductsForCurrentUser(Collection<Long> productIds) {
+        evictProducts(CacheKeyUtil.currentUserEmail(), productIds);
+    }
+
+    // For threads without the tenant's security context, such as the sale ingestion flusher.
+    public void evictProducts(String email, Collection<Long> productIds) {
+        evict(CacheNames.PRODUCTS_BY_USER, email);
+        evict(CacheNames.PRODUCTS_SALE_INFO_BY_USER, email);
+
+        Cache byId = cacheManager.getCache(CacheNames.PRODUCT_BY_USER_AND_ID);
+        if (byId != null) {
+            for (Long productId : productIds) {
+                if (productId != null) {
+                    byId.evict(CacheKeyUtil.forUserWithId(email, productId));
+                }
+            }
+        }
+    }
+
+    // For bulk writes that add products rather than change known ids, such as an import.
+    public void evictProductListsForCurrentUser() {
+        evictProducts(CacheKeyUtil.currentUserEmail(), List.of());
+    }
+
+    public void evictProfit(String email) {
+        evict(CacheNames.TOTAL_PROFIT_BY_USER, email);
+        evict(CacheNames.LATEST_PROFIT_BY_USER, email);
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.avaks.inventory.config.ratelimit;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.Part;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Counts the body bytes the application reads, so a request charged for its largest possible
+ * cost can be refunded once its real size is known. Multipart bodies are parsed by the
+ * container, so their size comes from the parsed parts instead.
+ */
+public class ByteCountingRequest extends HttpServletRequestWrapper {
+
+    private ServletInputStream countingStream;
+    private BufferedReader reader;
+    private long bytesRead;
+
+    public ByteCountingRequest(HttpServletRequest request) {
+        super(request);
+    }
+
+    public long bodyBytes() {
+        long partBytes = 0L;
+        String contentType = getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            try {
+                for (Part part : getParts()) {
+                    partBytes += part.getSize();
+                }
+            } catch (IOException | ServletException | RuntimeException ignored) {
+                // Body was never parsed; what was read through the stream is all we know.
+            }
+        }
+        return Math.max(bytesRead, partBytes);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (countingStream == null) {
+            ServletInputStream delegate = super.getInputStream();
+            countingStream = new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    int value = delegate.read();
+                    if (value >= 0) {
+                        bytesRead++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = delegate.read(buffer, offset, length);
+                    if (read > 0) {
+                        bytesRead += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return delegate.isFinished();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return delegate.isReady();
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    delegate.setReadListener(readListener);
+                }
+            };
+        }
+        return countingStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        return reader;
+    }
+}
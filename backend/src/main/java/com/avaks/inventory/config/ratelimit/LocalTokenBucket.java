@@ -0,0 +1,117 @@
+package com.avaks.inventory.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket held per client key on each node. Consumption is recorded as
+ * "unsynced" until the limiter pushes it to Redis and reconciles with the global balance.
+ */
+final class LocalTokenBucket {
+
+    private final long capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+    private final AtomicLong unsynced = new AtomicLong();
+    private volatile long lastAccessNanos;
+    private volatile boolean touched;
+
+    LocalTokenBucket(long capacity, long windowSeconds, long nowNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = (double) capacity / (windowSeconds * 1_000_000_000d);
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+        this.lastAccessNanos = nowNanos;
+    }
+
+    boolean tryConsume(long cost, long nowNanos) {
+        lastAccessNanos = nowNanos;
+        touched = true;
+        while (true) {
+            State current = state.get();
+            double tokens = refill(current, nowNanos);
+            if (tokens < cost) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(tokens - cost, nowNanos))) {
+                unsynced.addAndGet(cost);
+                return true;
+            }
+        }
+    }
+
+    /** Returns tokens charged up front that the request turned out not to need. */
+    void refund(long tokens, long nowNanos) {
+        unsynced.addAndGet(-tokens);
+        touched = true;
+        while (true) {
+            State current = state.get();
+            double refunded = Math.min(capacity, refill(current, nowNanos) + tokens);
+            if (state.compareAndSet(current, new State(refunded, nowNanos))) {
+                return;
+            }
+        }
+    }
+
+    long secondsUntilAvailable(long cost, long nowNanos) {
+        double missing = cost - refill(state.get(), nowNanos);
+        if (missing <= 0) {
+            return 0;
+        }
+        return Math.max(1L, (long) Math.ceil(missing / refillPerNano / 1_000_000_000d));
+    }
+
+    /**
+     * Lowers the local balance to what the cluster still allows, minus whatever this node
+     * consumed after the last drain. Never raises it: local refill handles that.
+     */
+    void reconcile(long globalTokens, long nowNanos) {
+        double target = Math.max(0d, globalTokens - unsynced.get());
+        while (true) {
+            State current = state.get();
+            if (refill(current, nowNanos) <= target) {
+                return;
+            }
+            if (state.compareAndSet(current, new State(target, nowNanos))) {
+                return;
+            }
+        }
+    }
+
+    long drainUnsynced() {
+        return unsynced.getAndSet(0);
+    }
+
+    boolean clearTouched() {
+        boolean wasTouched = touched;
+        touched = false;
+        return wasTouched;
+    }
+
+    boolean isIdle(long idleNanos, long nowNanos) {
+        return unsynced.get() == 0 && nowNanos - lastAccessNanos > idleNanos;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    double refillPerMilli() {
+        return refillPerNano * 1_000_000d;
+    }
+
+    double availableTokens(long nowNanos) {
+        return refill(state.get(), nowNanos);
+    }
+
+    long unsyncedTokens() {
+        return unsynced.get();
+    }
+
+    private double refill(State current, long nowNanos) {
+        long elapsed = Math.max(0L, nowNanos - current.updatedAtNanos());
+        return Math.min(capacity, current.tokens() + elapsed * refillPerNano);
+    }
+
+    private record State(double tokens, long updatedAtNanos) {
+    }
+}
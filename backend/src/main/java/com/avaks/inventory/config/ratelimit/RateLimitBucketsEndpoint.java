@@ -0,0 +1,32 @@
+package com.avaks.inventory.config.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the local token buckets at /actuator/ratelimits, to admins only (see
+ * SecurityConfig). In fixed-window mode the counters live only in Redis, so the bucket list
+ * is empty.
+ */
+@Component
+@Endpoint(id = "ratelimits")
+@RequiredArgsConstructor
+public class RateLimitBucketsEndpoint {
+
+    private static final int MAX_BUCKETS = 500;
+
+    private final TokenBucketRateLimiter tokenBucketRateLimiter;
+
+    @ReadOperation
+    public Map<String, Object> buckets() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("mode", tokenBucketRateLimiter.isEnabled() ? "token-bucket" : "fixed-window");
+        body.put("buckets", tokenBucketRateLimiter.snapshot(MAX_BUCKETS));
+        return body;
+    }
+}
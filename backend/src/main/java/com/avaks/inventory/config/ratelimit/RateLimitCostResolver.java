@@ -0,0 +1,69 @@
+package com.avaks.inventory.config.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Assigns each request a cost in tokens so that bcrypt-backed auth calls and large sale or
+ * import payloads drain a bucket faster than cached reads.
+ */
+@Component
+public class RateLimitCostResolver {
+
+    private static final Set<String> PASSWORD_HASH_PATHS = Set.of(
+            "/auth/login",
+            "/auth/register",
+            "/auth/forgot-password/reset"
+    );
+
+    private static final Set<String> BYTE_COST_PATHS = Set.of(
+            "/api/sales/sell",
+            "/api/products/import"
+    );
+
+    @Value("${app.rate-limit.cost.password-hash:5}")
+    private long passwordHashCost;
+
+    @Value("${app.rate-limit.cost.sale-bytes-per-unit:512}")
+    private long saleBytesPerUnit;
+
+    @Value("${app.rate-limit.cost.max:50}")
+    private long maxCost;
+
+    public long resolve(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+
+        if ("POST".equalsIgnoreCase(method) && PASSWORD_HASH_PATHS.contains(path)) {
+            return clamp(passwordHashCost);
+        }
+
+        if (isByteCosted(request)) {
+            long contentLength = request.getContentLengthLong();
+            // A chunked body has no length yet: charge the most it can cost and refund the rest
+            // once it has been read; see RateLimitingFilter.
+            return contentLength < 0 ? clamp(maxCost) : costForBytes(contentLength);
+        }
+
+        return 1L;
+    }
+
+    public boolean isChargedUpFront(HttpServletRequest request) {
+        return isByteCosted(request) && request.getContentLengthLong() < 0;
+    }
+
+    public long costForBytes(long bytes) {
+        return clamp(1L + Math.max(0L, bytes) / Math.max(1L, saleBytesPerUnit));
+    }
+
+    private boolean isByteCosted(HttpServletRequest request) {
+        return "POST".equalsIgnoreCase(request.getMethod()) && BYTE_COST_PATHS.contains(request.getRequestURI());
+    }
+
+    private long clamp(long cost) {
+        return Math.max(1L, Math.min(cost, maxCost));
+    }
+}
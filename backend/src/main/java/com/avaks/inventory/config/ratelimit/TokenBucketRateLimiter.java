@@ -0,0 +1,174 @@
+package com.avaks.inventory.config.ratelimit;
+
+import com.avaks.inventory.config.RedisScripts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limiter that decides locally and reconciles with Redis in the background.
+ * Each sync pushes every touched bucket's consumed tokens through one Lua call and lowers
+ * the local balance to the global one, so limits stay approximately cluster-wide while the
+ * request path never waits on the network.
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    private static final String KEY_PREFIX = "rate_limit:tb:";
+    private static final int MAX_KEYS_PER_SYNC = 500;
+    private static final long SYNC_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Integer replies come back as Longs, one per key.
+    private static final DefaultRedisScript<List<Long>> SYNC_SCRIPT = RedisScripts.listScript("""
+            local now = redis.call('TIME')
+            local nowMs = tonumber(now[1]) * 1000 + math.floor(tonumber(now[2]) / 1000)
+            local result = {}
+            for i, key in ipairs(KEYS) do
+              local base = (i - 1) * 3
+              local capacity = tonumber(ARGV[base + 1])
+              local refillPerMs = tonumber(ARGV[base + 2])
+              local consumed = tonumber(ARGV[base + 3])
+              local state = redis.call('HMGET', key, 'tokens', 'ts')
+              local tokens = tonumber(state[1])
+              local ts = tonumber(state[2])
+              if tokens == nil or ts == nil then
+                tokens = capacity
+                ts = nowMs
+              end
+              tokens = math.min(capacity, tokens + math.max(0, nowMs - ts) * refillPerMs)
+              tokens = math.min(capacity, math.max(0, tokens - consumed))
+              redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', tostring(nowMs))
+              redis.call('PEXPIRE', key, math.ceil(capacity / refillPerMs) * 2)
+              result[i] = math.floor(tokens)
+            end
+            return result
+            """);
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    private final Map<String, LocalTokenBucket> buckets = new ConcurrentHashMap<>();
+    private volatile long syncSuspendedUntilNanos = System.nanoTime();
+
+    @Value("${app.rate-limit.mode:fixed-window}")
+    private String mode;
+
+    @Value("${app.rate-limit.window-seconds:60}")
+    private long windowSeconds;
+
+    public TokenBucketRateLimiter(ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    public boolean isEnabled() {
+        return "token-bucket".equalsIgnoreCase(mode);
+    }
+
+    public boolean tryConsume(String key, long limit, long cost) {
+        return bucket(key, limit).tryConsume(cost, System.nanoTime());
+    }
+
+    public void refund(String key, long limit, long tokens) {
+        if (tokens > 0) {
+            bucket(key, limit).refund(tokens, System.nanoTime());
+        }
+    }
+
+    public long retryAfterSeconds(String key, long limit, long cost) {
+        return bucket(key, limit).secondsUntilAvailable(cost, System.nanoTime());
+    }
+
+    public List<BucketSnapshot> snapshot(int limit) {
+        long now = System.nanoTime();
+        return buckets.entrySet().stream()
+                .map(entry -> new BucketSnapshot(
+                        entry.getKey(),
+                        entry.getValue().capacity(),
+                        (long) Math.floor(entry.getValue().availableTokens(now)),
+                        entry.getValue().unsyncedTokens()))
+                .sorted(Comparator.comparingLong(BucketSnapshot::availableTokens))
+                .limit(limit)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval-ms:200}")
+    public void syncWithRedis() {
+        if (!isEnabled() || buckets.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.SECONDS.toNanos(windowSeconds * 2);
+        buckets.entrySet().removeIf(entry -> entry.getValue().isIdle(idleNanos, now));
+
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null || now - syncSuspendedUntilNanos < 0) {
+            buckets.values().forEach(bucket -> {
+                bucket.drainUnsynced();
+                bucket.clearTouched();
+            });
+            return;
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<LocalTokenBucket> batch = new ArrayList<>();
+        for (Map.Entry<String, LocalTokenBucket> entry : buckets.entrySet()) {
+            if (!entry.getValue().clearTouched()) {
+                continue;
+            }
+            keys.add(KEY_PREFIX + entry.getKey());
+            batch.add(entry.getValue());
+            if (batch.size() == MAX_KEYS_PER_SYNC) {
+                syncBatch(redisTemplate, keys, batch);
+                keys = new ArrayList<>();
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            syncBatch(redisTemplate, keys, batch);
+        }
+    }
+
+    private void syncBatch(StringRedisTemplate redisTemplate, List<String> keys, List<LocalTokenBucket> batch) {
+        List<String> args = new ArrayList<>(batch.size() * 3);
+        for (LocalTokenBucket bucket : batch) {
+            args.add(String.valueOf(bucket.capacity()));
+            args.add(String.valueOf(bucket.refillPerMilli()));
+            args.add(String.valueOf(bucket.drainUnsynced()));
+        }
+
+        try {
+            List<Long> remaining = redisTemplate.execute(SYNC_SCRIPT, keys, args.toArray());
+            long now = System.nanoTime();
+            for (int i = 0; remaining != null && i < remaining.size() && i < batch.size(); i++) {
+                Long globalTokens = remaining.get(i);
+                if (globalTokens != null) {
+                    batch.get(i).reconcile(globalTokens, now);
+                }
+            }
+        } catch (Exception ex) {
+            syncSuspendedUntilNanos = System.nanoTime() + SYNC_BACKOFF_NANOS;
+            LOGGER.warn("Rate limiter sync with Redis failed, enforcing local buckets only: {}", ex.getMessage());
+        }
+    }
+
+    private LocalTokenBucket bucket(String key, long limit) {
+        return buckets.computeIfAbsent(key, ignored -> new LocalTokenBucket(limit, windowSeconds, System.nanoTime()));
+    }
+
+    public record BucketSnapshot(String key, long capacity, long availableTokens, long unsyncedTokens) {
+    }
+}
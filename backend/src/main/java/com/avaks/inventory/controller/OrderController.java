@@ -2,11 +2,16 @@ package com.avaks.inventory.controller;
 
 import com.avaks.inventory.dto.OrderDTO;
 import com.avaks.inventory.model.Order;
+import com.avaks.inventory.service.CollectionVersionService;
+import com.avaks.inventory.service.IdempotencyService;
 import com.avaks.inventory.service.OrderService;
+import com.avaks.inventory.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,9 +22,21 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
     @PostMapping
-    public Order createOrder(@Valid @RequestBody OrderDTO orderDTO) {
-        return orderService.createOrder(orderDTO);
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody OrderDTO orderDTO) {
+        return idempotencyService.execute(idempotencyKey, "orders.create", orderDTO,
+                () -> ResponseEntity.ok(orderService.createOrder(orderDTO)));
     }
 
     @GetMapping("/{id}")
@@ -30,8 +47,13 @@ public class OrderController {
     }
 
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public ResponseEntity<List<Order>> getAllOrders(WebRequest request) {
+        String etag = collectionVersionService.etag(userService.getCurrentUserId(),
+                CollectionVersionService.VersionedCollection.ORDERS, "orders");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(orderService.getAllOrders());
     }
 }
 
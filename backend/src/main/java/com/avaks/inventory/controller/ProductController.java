@@ -1,36 +1,121 @@
 package com.avaks.inventory.controller;
 
+import com.avaks.inventory.dto.PageResponse;
 import com.avaks.inventory.dto.ProductDTO;
-import com.avaks.inventory.model.Product;
+import com.avaks.inventory.dto.ProductViewDTO;
+import com.avaks.inventory.exception.ProductImportException;
+import com.avaks.inventory.service.CollectionVersionService;
+import com.avaks.inventory.service.LowStockService;
+import com.avaks.inventory.service.ProductImportService;
+import com.avaks.inventory.service.ProductSearchService;
 import com.avaks.inventory.service.ProductService;
+import com.avaks.inventory.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private LowStockService lowStockService;
+
     @PostMapping
-    public Product createProduct(@Valid @RequestBody ProductDTO productDTO) {
+    public ProductViewDTO createProduct(@Valid @RequestBody ProductDTO productDTO) {
         return productService.createProduct(productDTO);
     }
 
+    /**
+     * Imports products from a CSV (with header) or NDJSON request body. The format comes from
+     * the format parameter or else the Content-Type; invalid rows are reported, not fatal, but a
+     * CSV header without the required columns rejects the whole file. If the import stops part
+     * way, the error response says how many products were imported before it did.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) throws IOException {
+        ProductImportService.Format importFormat;
+        String requested = format != null ? format : request.getContentType();
+        if (requested != null && requested.toLowerCase().contains("csv")) {
+            importFormat = ProductImportService.Format.CSV;
+        } else if (requested != null && requested.toLowerCase().contains("ndjson")) {
+            importFormat = ProductImportService.Format.NDJSON;
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                    "error", "format must be 'csv' or 'ndjson', or send Content-Type text/csv or application/x-ndjson"));
+        }
+
+        Long userId = userService.getCurrentUserId();
+        try {
+            return ResponseEntity.ok(productImportService.importProducts(userId, importFormat, request.getInputStream()));
+        } catch (ProductImportException e) {
+            // Chunks committed before the failure stay imported, so the client needs the count.
+            HttpStatus status = e.getCause() instanceof IllegalArgumentException
+                    ? HttpStatus.BAD_REQUEST
+                    : HttpStatus.INTERNAL_SERVER_ERROR;
+            return ResponseEntity.status(status).body(Map.of(
+                    "error", e.getMessage(),
+                    "imported", e.getImported(),
+                    "failed", e.getFailed()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "limit must be between 1 and " + MAX_SEARCH_LIMIT));
+        }
+        return ResponseEntity.ok(Map.of("items", productSearchService.search(userService.getCurrentUserId(), q, limit)));
+    }
+
+    // Most urgent first: ordered by how far stock is below the reorder level.
+    @GetMapping("/low-stock")
+    public ResponseEntity<?> getLowStockProducts(@RequestParam(defaultValue = "50") int limit) {
+        try {
+            PageResponse.checkLimit(limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(Map.of("items", lowStockService.lowStock(userService.getCurrentUserId(), limit)));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ProductViewDTO> getProductById(@PathVariable Long id) {
         return productService.getProductById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO productDetails) {
+    public ResponseEntity<ProductViewDTO> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO productDetails) {
         return ResponseEntity.ok(productService.updateProduct(id, productDetails));
     }
 
@@ -40,14 +125,67 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{id}/hot-mode")
+    public ResponseEntity<?> enableHotMode(@PathVariable Long id, @RequestParam(defaultValue = "8") int stripes) {
+        try {
+            productService.setHotMode(id, stripes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(Map.of("id", id, "hotStripes", stripes));
+    }
+
+    @DeleteMapping("/{id}/hot-mode")
+    public ResponseEntity<?> disableHotMode(@PathVariable Long id) {
+        productService.setHotMode(id, 0);
+        return ResponseEntity.ok(Map.of("id", id, "hotStripes", 0));
+    }
+
+    // The version is read before the list, so a write racing this request can only make the
+    // tag older than the body, which costs the client one extra full response later.
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<List<ProductViewDTO>> getAllProducts(WebRequest request) {
+        String etag = collectionVersionService.etag(userService.getCurrentUserId(),
+                CollectionVersionService.VersionedCollection.PRODUCTS, "products");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(productService.getAllProducts());
+    }
+
+    // Requests with a limit get one keyset page; without it the full cached list is returned as before.
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getProductsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort) {
+        try {
+            return ResponseEntity.ok(productService.getProductsPage(limit, cursor, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/sale-info")
-    public List<com.avaks.inventory.dto.ProductSaleDTO> getAllProductsForSale() {
-        return productService.getAllProductsForSale();
+    public ResponseEntity<List<com.avaks.inventory.dto.ProductSaleDTO>> getAllProductsForSale(WebRequest request) {
+        String etag = collectionVersionService.etag(userService.getCurrentUserId(),
+                CollectionVersionService.VersionedCollection.PRODUCTS, "sale-info");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(productService.getAllProductsForSale());
+    }
+
+    @GetMapping(value = "/sale-info", params = "limit")
+    public ResponseEntity<?> getProductsForSalePage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort) {
+        try {
+            return ResponseEntity.ok(productService.getProductsForSalePage(limit, cursor, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
     }
 }
 
@@ -1,12 +1,29 @@
 package com.avaks.inventory.controller;
 
 import com.avaks.inventory.dto.SaleItemRequest;
+import com.avaks.inventory.dto.SalesStatsDTO;
+import com.avaks.inventory.exception.SaleFailedException;
+import com.avaks.inventory.exception.SalePendingException;
+import com.avaks.inventory.exception.ServiceBusyException;
+import com.avaks.inventory.repository.SalesRollupRepository;
+import com.avaks.inventory.service.IdempotencyService;
+import com.avaks.inventory.service.LeaderboardService;
+import com.avaks.inventory.service.SaleExportService;
+import com.avaks.inventory.service.SaleIngestionService;
 import com.avaks.inventory.service.SaleService;
+import com.avaks.inventory.service.TenantPurgeService;
+import com.avaks.inventory.service.UserService;
+import com.avaks.inventory.service.leaderboard.LeaderboardMetric;
+import com.avaks.inventory.service.leaderboard.LeaderboardWindow;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,18 +33,55 @@ import java.util.Map;
 @RequestMapping("/api/sales")
 public class SaleController {
 
+    private static final long DEFAULT_STATS_DAYS = 90;
+    private static final int MAX_TOP_LIMIT = 100;
+
     @Autowired
     private SaleService saleService;
 
+    @Autowired
+    private SaleIngestionService saleIngestionService;
+
+    @Autowired
+    private SaleExportService saleExportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TenantPurgeService tenantPurgeService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
     @PostMapping("/sell")
-    public ResponseEntity<?> sellProducts(@Valid @RequestBody List<@Valid SaleItemRequest> productsToSell) {
+    public ResponseEntity<?> sellProducts(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody List<@Valid SaleItemRequest> productsToSell) {
         if (productsToSell == null || productsToSell.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Sale payload cannot be empty"));
         }
 
+        return idempotencyService.execute(idempotencyKey, "sales.sell", productsToSell, () -> sell(productsToSell));
+    }
+
+    private ResponseEntity<?> sell(List<SaleItemRequest> productsToSell) {
         try {
-            Map<String, Object> result = saleService.recordSale(productsToSell);
+            Map<String, Object> result = saleIngestionService.isEnabled()
+                    ? saleIngestionService.recordSale(userService.getCurrentUserId(), productsToSell)
+                    : saleService.recordSale(productsToSell);
             return ResponseEntity.ok(result);
+        } catch (SalePendingException e) {
+            return pendingResponse(e.getRequestId());
+        } catch (SaleFailedException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                    "error", e.getMessage(),
+                    "failedItems", e.getFailedItems()));
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (RuntimeException e) {
             String errorMsg = e.getMessage();
             if (errorMsg != null && errorMsg.contains("Product not found")) {
@@ -40,27 +94,172 @@ public class SaleController {
         }
     }
 
+    // Outcome of a group-commit sale that answered 202 because its commit outlasted the timeout.
+    @GetMapping("/ingestion/{requestId}")
+    public ResponseEntity<?> getPendingSale(@PathVariable String requestId) {
+        SaleIngestionService.PendingOutcome outcome = saleIngestionService
+                .findPending(requestId, userService.getCurrentUserId())
+                .orElse(null);
+        if (outcome == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!outcome.isDone()) {
+            return pendingResponse(requestId);
+        }
+        if (outcome.failure() instanceof SaleFailedException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                    "error", e.getMessage(),
+                    "failedItems", e.getFailedItems()));
+        }
+        if (outcome.failure() instanceof ServiceBusyException e) {
+            throw e;
+        }
+        if (outcome.failure() != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid sale request: " + outcome.failure().getMessage()));
+        }
+        return ResponseEntity.ok(outcome.result());
+    }
+
+    private ResponseEntity<?> pendingResponse(String requestId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/sales/ingestion/" + requestId)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("status", "PROCESSING", "requestId", requestId));
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getSales(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(saleService.getSalesPage(limit, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/profit")
     public ResponseEntity<?> getTotalProfit() {
         double totalProfit = saleService.getTotalProfit();
         return ResponseEntity.ok(java.util.Collections.singletonMap("profit", totalProfit));
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<?> getSalesStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        SalesRollupRepository.Granularity bucket;
+        try {
+            bucket = SalesRollupRepository.Granularity.valueOf(granularity.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "granularity must be 'hour' or 'day'"));
+        }
+
+        LocalDateTime end = (to != null) ? to : LocalDateTime.now();
+        LocalDateTime start = (from != null) ? from : end.minusDays(DEFAULT_STATS_DAYS);
+        try {
+            List<SalesStatsDTO> buckets = saleService.getSalesStats(start, end, bucket);
+            return ResponseEntity.ok(Map.of(
+                    "from", start,
+                    "to", end,
+                    "granularity", bucket.name().toLowerCase(),
+                    "buckets", buckets));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopSellers(
+            @RequestParam(defaultValue = "7d") String window,
+            @RequestParam(defaultValue = "units") String metric,
+            @RequestParam(defaultValue = "10") int limit) {
+        LeaderboardWindow leaderboardWindow;
+        try {
+            leaderboardWindow = LeaderboardWindow.fromParam(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "window must be 'today', '7d' or '30d'"));
+        }
+
+        LeaderboardMetric leaderboardMetric;
+        try {
+            leaderboardMetric = LeaderboardMetric.valueOf(metric.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "metric must be 'units' or 'profit'"));
+        }
+
+        if (limit < 1 || limit > MAX_TOP_LIMIT) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "limit must be between 1 and " + MAX_TOP_LIMIT));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "window", leaderboardWindow.param(),
+                "metric", leaderboardMetric.name().toLowerCase(),
+                "items", leaderboardService.top(userService.getCurrentUserId(), leaderboardWindow, leaderboardMetric, limit)));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<?> exportSales(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        SaleExportService.Format exportFormat;
+        try {
+            exportFormat = SaleExportService.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "format must be 'csv' or 'ndjson'"));
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "'from' must be before 'to'"));
+        }
+
+        // Resolve the tenant and take an export slot on the request thread; the body is written
+        // on an async thread.
+        Long userId = userService.getCurrentUserId();
+        SaleExportService.ExportSlot slot = saleExportService.reserve();
+        StreamingResponseBody body = out -> {
+            try (slot) {
+                saleExportService.export(userId, exportFormat, from, to, gzip, out);
+            }
+        };
+
+        String filename = "sales." + exportFormat.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     @DeleteMapping("/reset")
-    public ResponseEntity<?> resetSales() {
-        LocalDateTime resetTimestamp = saleService.resetSales();
-        return ResponseEntity.ok(Map.of("message", "Sales data reset successfully", "reset_timestamp", resetTimestamp));
+    public ResponseEntity<?> resetSales(@RequestParam(defaultValue = "false") boolean async) {
+        SaleService.ResetResult result = saleService.resetSales(async);
+        if (async) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "message", "Sales data reset started",
+                    "reset_timestamp", result.resetTimestamp(),
+                    "job", result.job()));
+        }
+        return ResponseEntity.ok(Map.of("message", "Sales data reset successfully", "reset_timestamp", result.resetTimestamp()));
+    }
+
+    @GetMapping("/reset/jobs/{jobId}")
+    public ResponseEntity<?> getResetJob(@PathVariable String jobId) {
+        return tenantPurgeService.findJob(jobId, userService.getCurrentUserId())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/profit/latest")
     public ResponseEntity<?> getLatestProfitRecord() {
-        com.avaks.inventory.model.ProfitRecord record = saleService.getLatestProfitRecord();
-        if (record == null) {
+        com.avaks.inventory.model.ProfitSummary summary = saleService.getProfitSummary();
+        if (summary == null) {
             return ResponseEntity.ok(java.util.Collections.singletonMap("profit", 0.0));
         }
         return ResponseEntity.ok(Map.of(
-            "profit", record.getProfit(),
-            "timestamp", record.getTimestamp()
+            "profit", summary.getTotalProfit(),
+            "timestamp", summary.getUpdatedAt()
         ));
     }
 }
@@ -0,0 +1,54 @@
+package com.avaks.inventory.controller;
+
+import com.avaks.inventory.service.LiveStreamService;
+import com.avaks.inventory.service.StreamTicketService;
+import com.avaks.inventory.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * Server-sent events for the current tenant: "stock", "product", "profit" and "low-stock".
+ * Browsers' EventSource cannot set headers, so the client first trades its JWT for a
+ * single-use ticket at POST /api/stream/ticket and opens GET /api/stream?ticket=... with it.
+ */
+@RestController
+@RequestMapping("/api/stream")
+public class StreamController {
+
+    @Autowired
+    private LiveStreamService liveStreamService;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = liveStreamService.subscribe(userService.getCurrentUserId());
+        // Tells nginx not to buffer the stream, whatever proxy_buffering says.
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .cacheControl(CacheControl.noStore())
+                .body(emitter);
+    }
+
+    @PostMapping("/ticket")
+    public ResponseEntity<Map<String, Object>> ticket(@AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(Map.of(
+                "ticket", streamTicketService.issue(userDetails.getUsername()),
+                "expiresInSeconds", streamTicketService.getTicketTtlSeconds()));
+    }
+}
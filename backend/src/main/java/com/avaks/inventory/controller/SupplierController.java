@@ -2,13 +2,19 @@ package com.avaks.inventory.controller;
 
 import com.avaks.inventory.dto.SupplierDTO;
 import com.avaks.inventory.model.Supplier;
+import com.avaks.inventory.service.CollectionVersionService;
 import com.avaks.inventory.service.SupplierService;
+import com.avaks.inventory.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/suppliers")
@@ -17,6 +23,12 @@ public class SupplierController {
     @Autowired
     private SupplierService supplierService;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
     @PostMapping
     public Supplier createSupplier(@Valid @RequestBody SupplierDTO supplierDTO) {
         return supplierService.createSupplier(supplierDTO);
@@ -30,8 +42,26 @@ public class SupplierController {
     }
 
     @GetMapping
-    public List<Supplier> getAllSuppliers() {
-        return supplierService.getAllSuppliers();
+    public ResponseEntity<List<Supplier>> getAllSuppliers(WebRequest request) {
+        String etag = collectionVersionService.etag(userService.getCurrentUserId(),
+                CollectionVersionService.VersionedCollection.SUPPLIERS, "suppliers");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(supplierService.getAllSuppliers());
+    }
+
+    // Requests with a limit get one keyset page; without it the full cached list is returned as before.
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getSuppliersPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort) {
+        try {
+            return ResponseEntity.ok(supplierService.getSuppliersPage(limit, cursor, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,34 @@
+package com.avaks.inventory.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a keyset-paginated listing: the sort the page was produced with, the
+ * sort key of the last row returned and its id as a tie-breaker. Clients pass it back
+ * unchanged as {@code cursor}.
+ */
+public record KeysetCursor(String sort, long id, String key) {
+
+    public String encode() {
+        String raw = sort + ":" + id + ":" + (key == null ? "" : key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor, String expectedSort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+            throw new IllegalArgumentException("Invalid cursor for sort '" + expectedSort + "'");
+        }
+        try {
+            return new KeysetCursor(parts[0], Long.parseLong(parts[1]), parts[2]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.avaks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockProductDTO {
+    private long id;
+    private String name;
+    private int stock;
+    private int reorderLevel;
+}
@@ -0,0 +1,37 @@
+package com.avaks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+
+    public static final int MAX_LIMIT = 200;
+
+    private List<T> items;
+    private String nextCursor;
+
+    public static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * Builds a page from a query that fetched one row more than {@code limit}; the extra row
+     * only signals that another page exists and is not returned.
+     */
+    public static <R, T> PageResponse<T> of(List<R> fetched, int limit, Function<R, KeysetCursor> cursorOf, Function<R, T> mapper) {
+        boolean hasMore = fetched.size() > limit;
+        List<R> rows = hasMore ? fetched.subList(0, limit) : fetched;
+        String nextCursor = hasMore ? cursorOf.apply(rows.get(rows.size() - 1)).encode() : null;
+        return new PageResponse<>(rows.stream().map(mapper).toList(), nextCursor);
+    }
+}
@@ -25,6 +25,10 @@ public class ProductDTO {
     @PositiveOrZero(message = "Stock must be zero or positive")
     private int stock;
 
+    // Null keeps the current reorder level on update and means 0 on create.
+    @PositiveOrZero(message = "Reorder level must be zero or positive")
+    private Integer reorderLevel;
+
     @NotNull(message = "Supplier is required")
     @Positive(message = "Supplier id must be greater than zero")
     private Long supplierId;
@@ -47,6 +51,9 @@ public class ProductDTO {
     public int getStock() { return stock; }
     public void setStock(int stock) { this.stock = stock; }
 
+    public Integer getReorderLevel() { return reorderLevel; }
+    public void setReorderLevel(Integer reorderLevel) { this.reorderLevel = reorderLevel; }
+
     public Long getSupplierId() { return supplierId; }
     public void setSupplierId(Long supplierId) { this.supplierId = supplierId; }
 }
@@ -1,5 +1,7 @@
 package com.avaks.inventory.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class ProductSaleDTO {
     private Long id;
     private String name;
@@ -7,6 +9,22 @@ public class ProductSaleDTO {
     private double price;
     private int quantity;
 
+    // Only used to replace quantity with the stripe total for hot products.
+    @JsonIgnore
+    private int hotStripes;
+
+    public ProductSaleDTO() {
+    }
+
+    public ProductSaleDTO(Long id, String name, double sellingPrice, double price, int quantity, int hotStripes) {
+        this.id = id;
+        this.name = name;
+        this.sellingPrice = sellingPrice;
+        this.price = price;
+        this.quantity = quantity;
+        this.hotStripes = hotStripes;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -21,4 +39,7 @@ public class ProductSaleDTO {
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
-}
\ No newline at end of file
+
+    public int getHotStripes() { return hotStripes; }
+    public void setHotStripes(int hotStripes) { this.hotStripes = hotStripes; }
+}
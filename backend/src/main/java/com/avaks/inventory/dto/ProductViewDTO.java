@@ -0,0 +1,41 @@
+package com.avaks.inventory.dto;
+
+import com.avaks.inventory.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read model for product list, page and detail responses. Filled by JPQL constructor
+ * projections, so listings never load Product or Supplier entities.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductViewDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private double price;
+    private double sellingPrice;
+    private int stock;
+    private int reorderLevel;
+    private int hotStripes;
+    private Long supplierId;
+    private String supplierName;
+
+    /** For write responses, where the entity and its supplier are already loaded. */
+    public static ProductViewDTO of(Product product) {
+        return new ProductViewDTO(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getSellingPrice(),
+                product.getStock(),
+                product.getReorderLevel(),
+                product.getHotStripes(),
+                product.getSupplier() == null ? null : product.getSupplier().getId(),
+                product.getSupplier() == null ? null : product.getSupplier().getName());
+    }
+}
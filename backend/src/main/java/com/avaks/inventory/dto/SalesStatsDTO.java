@@ -0,0 +1,18 @@
+package com.avaks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesStatsDTO {
+    private LocalDateTime bucketStart;
+    private long quantity;
+    private double revenue;
+    private double profit;
+    private long saleCount;
+}
@@ -0,0 +1,14 @@
+package com.avaks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSellerDTO {
+    private long productId;
+    private String productName;
+    private double value;
+}
@@ -0,0 +1,7 @@
+package com.avaks.inventory.exception;
+
+public class ExportLimitException extends RuntimeException {
+    public ExportLimitException(String message) {
+        super(message);
+    }
+}
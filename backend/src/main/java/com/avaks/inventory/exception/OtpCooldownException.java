@@ -0,0 +1,7 @@
+package com.avaks.inventory.exception;
+
+public class OtpCooldownException extends RuntimeException {
+    public OtpCooldownException(String message) {
+        super(message);
+    }
+}
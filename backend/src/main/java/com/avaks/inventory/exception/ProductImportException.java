@@ -0,0 +1,24 @@
+package com.avaks.inventory.exception;
+
+/**
+ * Thrown when a product import stops part way. Chunks committed before the failure stay
+ * imported; {@link #getImported()} says how many products that was.
+ */
+public class ProductImportException extends RuntimeException {
+    private final long imported;
+    private final long failed;
+
+    public ProductImportException(String message, long imported, long failed, Throwable cause) {
+        super(message, cause);
+        this.imported = imported;
+        this.failed = failed;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,24 @@
+package com.avaks.inventory.exception;
+
+import java.util.List;
+
+/**
+ * Thrown when a multi-item sale cannot be applied. The whole sale is rolled back and
+ * {@link #getFailedItems()} lists every item that caused it.
+ */
+public class SaleFailedException extends RuntimeException {
+
+    private final List<FailedItem> failedItems;
+
+    public SaleFailedException(String message, List<FailedItem> failedItems) {
+        super(message);
+        this.failedItems = List.copyOf(failedItems);
+    }
+
+    public List<FailedItem> getFailedItems() {
+        return failedItems;
+    }
+
+    public record FailedItem(Long productId, String reason) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.avaks.inventory.exception;
+
+/**
+ * The sale is queued for a group commit that has not finished in time. It may still commit;
+ * its outcome can be polled under the request id.
+ */
+public class SalePendingException extends RuntimeException {
+
+    private final String requestId;
+
+    public SalePendingException(String requestId) {
+        super("Sale is still being processed");
+        this.requestId = requestId;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+}
@@ -0,0 +1,7 @@
+package com.avaks.inventory.exception;
+
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.avaks.inventory.exception;
+
+public class SyncVersionExpiredException extends RuntimeException {
+    private final long currentVersion;
+
+    public SyncVersionExpiredException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
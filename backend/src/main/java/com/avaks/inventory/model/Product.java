@@ -19,7 +19,29 @@ public class Product {
     private double sellingPrice;
     private int stock;
 
-    @ManyToOne
+    // Number of stock stripes while the product is in hot mode; 0 means stock lives in this row.
+    // Only StockStripeRepository changes it, under the product row lock, so saving an entity
+    // read earlier cannot undo a concurrent enable or disable.
+    @Column(name = "hot_stripes", nullable = false, updatable = false)
+    private int hotStripes;
+
+    // Tenant-wide change version of the last write; see SyncService. Holds a placeholder until
+    // the writing transaction commits, so it is not serialized.
+    @Column(name = "change_version", nullable = false)
+    @JsonIgnore
+    private long changeVersion;
+
+    // Stock level at or below which the product counts as low; 0 alerts only when out of stock.
+    @Column(name = "reorder_level", nullable = false)
+    private int reorderLevel;
+
+    // Generated by the database as stock - reorder_level and indexed for the low-stock query.
+    @Column(name = "stock_headroom", insertable = false, updatable = false)
+    @JsonIgnore
+    private Integer stockHeadroom;
+
+    // Lazy: listings read ProductViewDTO projections; paths that serialize the entity fetch-join it.
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "supplier_id")
     @JsonIgnoreProperties({"products", "user"})
     private Supplier supplier;
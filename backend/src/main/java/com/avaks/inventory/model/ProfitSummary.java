@@ -0,0 +1,38 @@
+package com.avaks.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One stripe of a user's running profit total. Most sales add to stripe 0; sales of hot
+ * products spread over several stripes, and the total is their sum.
+ */
+@Entity
+@Table(name = "profit_summary")
+@IdClass(ProfitSummary.Key.class)
+@Data
+public class ProfitSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "stripe")
+    private int stripe;
+
+    @Column(name = "total_profit", nullable = false)
+    private double totalProfit;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class Key implements Serializable {
+        private Long userId;
+        private int stripe;
+    }
+}
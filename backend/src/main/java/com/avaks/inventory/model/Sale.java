@@ -13,6 +13,11 @@ public class Sale {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long saleId;
+
+    // Plain id rather than a relation so sale history survives product deletion.
+    @Column(name = "product_id")
+    private Long productId;
+
     private String productName;
     private int quantitySold;
     private double totalBillAmount;
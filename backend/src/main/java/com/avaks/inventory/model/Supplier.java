@@ -36,6 +36,12 @@ public class Supplier {
     @Column(name = "address")
     private String address;
 
+    // Tenant-wide change version of the last write; see SyncService. Holds a placeholder until
+    // the writing transaction commits, so it is not serialized.
+    @Column(name = "change_version", nullable = false)
+    @JsonIgnore
+    private long changeVersion;
+
     @OneToMany(mappedBy = "supplier", fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Product> products;
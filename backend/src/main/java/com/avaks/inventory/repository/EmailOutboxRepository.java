@@ -0,0 +1,65 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Rows that are due, including SENDING rows whose lease ran out after a crash. Must run
+     * inside a transaction; SKIP LOCKED lets several nodes drain the outbox concurrently.
+     */
+    @Query(value = """
+            SELECT * FROM email_outbox
+            WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EmailOutbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENDING', e.nextAttemptAt = :leaseUntil WHERE e.id IN :ids")
+    int markSending(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :sentAt, e.nextAttemptAt = :sentAt, e.attempts = e.attempts + 1, "
+            + "e.lastError = NULL, e.htmlBody = NULL, e.templateParams = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'PENDING', e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError WHERE e.id = :id")
+    int markRetry(@Param("id") Long id,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                  @Param("lastError") String lastError);
+
+    /** Gives up on a row for good; its body and parameters are dropped with it. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'FAILED', e.attempts = e.attempts + 1, e.nextAttemptAt = :failedAt, "
+            + "e.lastError = :lastError, e.htmlBody = NULL, e.templateParams = NULL WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("failedAt") LocalDateTime failedAt, @Param("lastError") String lastError);
+
+    /**
+     * Deletes up to {@code limit} sent or failed rows that finished before the cutoff. A
+     * finished row's next_attempt_at is the time it was sent or given up on.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM email_outbox
+            WHERE status IN ('SENT', 'FAILED') AND next_attempt_at < :cutoff
+            LIMIT :limit
+            """, nativeQuery = true)
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -2,13 +2,25 @@ package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-	Optional<Order> findByIdAndUserId(Long id, Long userId);
-	List<Order> findAllByUserId(Long userId);
-	void deleteAllByUserId(Long userId);
+	// Orders are serialized with their product and its supplier, so both are fetched in the same statement.
+	@Query("SELECT o FROM Order o LEFT JOIN FETCH o.product p LEFT JOIN FETCH p.supplier WHERE o.id = :id AND o.user.id = :userId")
+	Optional<Order> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+	@Query("SELECT o FROM Order o LEFT JOIN FETCH o.product p LEFT JOIN FETCH p.supplier WHERE o.user.id = :userId")
+	List<Order> findAllByUserId(@Param("userId") Long userId);
+
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM orders WHERE user_id = :userId AND id <= :maxId LIMIT :limit", nativeQuery = true)
+	int deleteChunkByUserId(@Param("userId") Long userId, @Param("maxId") long maxId, @Param("limit") int limit);
 }
 
 
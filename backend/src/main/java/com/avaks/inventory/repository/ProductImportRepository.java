@@ -0,0 +1,70 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.dto.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC access for bulk product imports. Like the sale path, inserts bypass Hibernate because
+ * IDENTITY ids disable its batching; with rewriteBatchedStatements each batch is one
+ * multi-row INSERT.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductImportRepository {
+
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO product (name, description, price, selling_price, stock, reorder_level, hot_stripes, supplier_id, user_id, change_version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The tenant's suppliers keyed by id and by lower-cased name, loaded once per import. */
+    public SupplierLookup loadSuppliers(Long userId) {
+        Set<Long> ids = new HashSet<>();
+        Map<String, Long> idsByName = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM supplier WHERE user_id = ?", rs -> {
+            long id = rs.getLong("id");
+            ids.add(id);
+            String name = rs.getString("name");
+            if (name != null) {
+                idsByName.putIfAbsent(name.trim().toLowerCase(Locale.ROOT), id);
+            }
+        }, userId);
+        return new SupplierLookup(ids, idsByName);
+    }
+
+    public void insertProducts(Long userId, List<ProductDTO> products, long changeVersion) {
+        List<Object[]> args = new ArrayList<>(products.size());
+        for (ProductDTO product : products) {
+            args.add(new Object[]{
+                    product.getName(),
+                    product.getDescription(),
+                    product.getPrice(),
+                    product.getSellingPrice(),
+                    product.getStock(),
+                    product.getReorderLevel() == null ? 0 : product.getReorderLevel(),
+                    product.getSupplierId(),
+                    userId,
+                    changeVersion
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, args);
+    }
+
+    public record SupplierLookup(Set<Long> ids, Map<String, Long> idsByName) {
+
+        public Long byName(String name) {
+            return name == null ? null : idsByName.get(name.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.avaks.inventory.repository;
 
+import com.avaks.inventory.dto.LowStockProductDTO;
+import com.avaks.inventory.dto.ProductSaleDTO;
+import com.avaks.inventory.dto.ProductViewDTO;
 import com.avaks.inventory.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
@@ -7,17 +10,94 @@ import java.util.List;
 
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import java.util.Collection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByNameAndUserId(String name, Long userId);
     Optional<Product> findByIdAndUserId(Long id, Long userId);
     List<Product> findAllByUserId(Long userId);
-    void deleteAllByUserId(Long userId);
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM product WHERE user_id = :userId AND id <= :maxId LIMIT :limit", nativeQuery = true)
+    int deleteChunkByUserId(@Param("userId") Long userId, @Param("maxId") long maxId, @Param("limit") int limit);
+
+    // Read-only so that adjusting stock on the returned snapshots is never flushed back.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier WHERE p.user.id = :userId AND p.id IN :ids")
+    List<Product> findAllForSale(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    // Read model for listings: one statement per call, no entities and no supplier lookups.
+    String VIEW_SELECT = "SELECT new com.avaks.inventory.dto.ProductViewDTO(p.id, p.name, p.description, p.price, "
+            + "p.sellingPrice, p.stock, p.reorderLevel, p.hotStripes, s.id, s.name) FROM Product p LEFT JOIN p.supplier s ";
+
+    @Query(VIEW_SELECT + "WHERE p.user.id = :userId ORDER BY p.id")
+    List<ProductViewDTO> findViewsByUserId(@Param("userId") Long userId);
+
+    @Query(VIEW_SELECT + "WHERE p.id = :id AND p.user.id = :userId")
+    Optional<ProductViewDTO> findViewByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT new com.avaks.inventory.dto.ProductSaleDTO(p.id, p.name, p.sellingPrice, p.price, p.stock, p.hotStripes) "
+            + "FROM Product p WHERE p.user.id = :userId ORDER BY p.id")
+    List<ProductSaleDTO> findSaleViewsByUserId(@Param("userId") Long userId);
+
+    // Keyset pages: the caller passes the last (name, id) or id it has seen and a Pageable that
+    // only carries the row limit, so no count query runs.
+    @Query(VIEW_SELECT + "WHERE p.user.id = :userId AND p.id > :afterId ORDER BY p.id")
+    List<ProductViewDTO> findViewPageByUserIdOrderById(@Param("userId") Long userId, @Param("afterId") long afterId,
+                                                       Pageable page);
+
+    @Query(VIEW_SELECT + "WHERE p.user.id = :userId "
+            + "AND (p.name > :afterName OR (p.name = :afterName AND p.id > :afterId)) ORDER BY p.name, p.id")
+    List<ProductViewDTO> findViewPageByUserIdOrderByName(@Param("userId") Long userId, @Param("afterName") String afterName,
+                                                         @Param("afterId") long afterId, Pageable page);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier WHERE p.id = :id AND p.user.id = :userId")
+    Optional<Product> findWithSupplierByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier WHERE p.user.id = :userId AND p.changeVersion > :since ORDER BY p.changeVersion")
+    List<Product> findChangedSince(@Param("userId") Long userId, @Param("since") long since);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier WHERE p.user.id = :userId AND p.id IN :ids")
+    List<Product> findWithSupplierByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id, p.name, p.description FROM Product p WHERE p.user.id = :userId")
+    List<Object[]> findSearchFieldsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.user.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
+
+    // Search for tenants too large to index in memory; the pattern is lower-cased and escaped with '!'.
+    @Query("SELECT p.id, p.name, p.description FROM Product p WHERE p.user.id = :userId " +
+           "AND (LOWER(p.name) LIKE :pattern ESCAPE '!' OR LOWER(p.description) LIKE :pattern ESCAPE '!') " +
+           "ORDER BY p.name, p.id")
+    List<Object[]> findSearchFieldsMatching(@Param("userId") Long userId, @Param("pattern") String pattern, Pageable page);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.user.id = :userId AND p.id IN :ids")
+    List<Object[]> findNamesByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    // Both range-scan idx_product_user_stock_headroom; stock_headroom is stock - reorder_level.
+    // Hot products are left out: their stock column lags behind their stripes.
+    @Query("SELECT new com.avaks.inventory.dto.LowStockProductDTO(p.id, p.name, p.stock, p.reorderLevel) "
+            + "FROM Product p WHERE p.user.id = :userId AND p.stockHeadroom <= 0 AND p.hotStripes = 0 "
+            + "ORDER BY p.stockHeadroom, p.id")
+    List<LowStockProductDTO> findLowStockByUserId(@Param("userId") Long userId, Pageable page);
+
+    @Query("SELECT new com.avaks.inventory.dto.LowStockProductDTO(p.id, p.name, p.stock, p.reorderLevel) "
+            + "FROM Product p WHERE p.user.id = :userId AND p.id IN :ids AND p.stockHeadroom <= 0 AND p.hotStripes = 0")
+    List<LowStockProductDTO> findLowStockByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
 
+    // Products in hot mode keep their stock in stripes; see StockStripeService.
     @Modifying
-    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :id AND p.user.id = :userId AND p.stock >= :quantity")
-    int decrementStockForUser(@Param("id") Long id, @Param("userId") Long userId, @Param("quantity") int quantity);
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.changeVersion = :version "
+            + "WHERE p.id = :id AND p.user.id = :userId AND p.stock >= :quantity AND p.hotStripes = 0")
+    int decrementStockForUser(@Param("id") Long id, @Param("userId") Long userId, @Param("quantity") int quantity,
+                              @Param("version") long version);
 }
 
 
@@ -2,10 +2,59 @@ package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.ProfitRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface ProfitRecordRepository extends JpaRepository<ProfitRecord, Long> {
-    ProfitRecord findTopByUserIdOrderByTimestampDesc(Long userId);
-    void deleteAllByUserId(Long userId);
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM profit_record WHERE user_id = :userId AND id <= :maxId LIMIT :limit", nativeQuery = true)
+    int deleteChunkByUserId(@Param("userId") Long userId, @Param("maxId") long maxId, @Param("limit") int limit);
+
+    /**
+     * Appends one closing-total row for every user whose profit changed since {@code since},
+     * read from the profit_summary stripes.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO profit_record (profit, timestamp, user_id)
+            SELECT SUM(total_profit), :closedAt, user_id FROM profit_summary
+            GROUP BY user_id
+            HAVING MAX(updated_at) >= :since
+            """, nativeQuery = true)
+    int insertSnapshots(@Param("since") LocalDateTime since, @Param("closedAt") LocalDateTime closedAt);
+
+    @Query(value = "SELECT DISTINCT user_id FROM profit_record WHERE user_id IS NOT NULL", nativeQuery = true)
+    List<Long> findUserIds();
+
+    /**
+     * The user's days before {@code before} that hold more than one row, each as the day and
+     * the id of its last row. Reads only the user's range of the (user_id, timestamp) index.
+     */
+    @Query(value = """
+            SELECT DATE(timestamp), MAX(id) FROM profit_record
+            WHERE user_id = :userId AND timestamp < :before
+            GROUP BY DATE(timestamp)
+            HAVING COUNT(*) > 1
+            """, nativeQuery = true)
+    List<Object[]> findDaysWithSupersededRows(@Param("userId") Long userId, @Param("before") LocalDateTime before);
+
+    /** Deletes up to {@code limit} of the user's rows in {@code [from, to)} that precede {@code keepId}. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM profit_record
+            WHERE user_id = :userId AND timestamp >= :from AND timestamp < :to AND id < :keepId
+            LIMIT :limit
+            """, nativeQuery = true)
+    int deleteSupersededChunk(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to, @Param("keepId") long keepId, @Param("limit") int limit);
 }
@@ -0,0 +1,42 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.model.ProfitSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProfitSummaryRepository extends JpaRepository<ProfitSummary, ProfitSummary.Key> {
+
+    // Single atomic upsert; concurrent sales on the same stripe serialize on its row instead of losing updates.
+    @Modifying
+    @Query(value = """
+            INSERT INTO profit_summary (user_id, stripe, total_profit, updated_at)
+            VALUES (:userId, :stripe, :delta, :now)
+            ON DUPLICATE KEY UPDATE total_profit = total_profit + VALUES(total_profit), updated_at = VALUES(updated_at)
+            """, nativeQuery = true)
+    int addProfit(@Param("userId") Long userId, @Param("stripe") int stripe, @Param("delta") double delta, @Param("now") LocalDateTime now);
+
+    // Collapses the stripes back into stripe 0 with a zero total.
+    @Modifying
+    @Query(value = """
+            INSERT INTO profit_summary (user_id, stripe, total_profit, updated_at)
+            VALUES (:userId, 0, 0, :now)
+            ON DUPLICATE KEY UPDATE total_profit = 0, updated_at = VALUES(updated_at)
+            """, nativeQuery = true)
+    int resetProfit(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM profit_summary WHERE user_id = :userId AND stripe > 0", nativeQuery = true)
+    int deleteStripes(@Param("userId") Long userId);
+
+    @Query(value = "SELECT SUM(total_profit) FROM profit_summary WHERE user_id = :userId", nativeQuery = true)
+    Double findTotalProfit(@Param("userId") Long userId);
+
+    List<ProfitSummary> findAllByUserId(Long userId);
+}
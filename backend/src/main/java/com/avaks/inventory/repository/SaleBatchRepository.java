@@ -0,0 +1,72 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.model.Sale;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC batches for the sale path. Sale uses IDENTITY ids, which turns off Hibernate
+ * insert batching, so multi-item sales go through JdbcTemplate instead. Together with
+ * rewriteBatchedStatements on the driver, each call is a single round trip. Calls join the
+ * surrounding JPA transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SaleBatchRepository {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE product SET stock = stock - ?, change_version = ? WHERE id = ? AND user_id = ? AND stock >= ? AND hot_stripes = 0";
+
+    private static final String INSERT_SALE_SQL =
+            "INSERT INTO sale (product_id, product_name, quantity_sold, total_bill_amount, profit_earned, timestamp, user_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applies every decrement as one batched statement and returns the product ids whose
+     * update matched no row, i.e. whose stock was no longer sufficient. Rows are updated in id
+     * order, so two sales of the same products lock them in the same order and cannot deadlock.
+     */
+    public List<Long> decrementStock(Long userId, Map<Long, Integer> quantitiesByProductId, long changeVersion) {
+        List<Long> productIds = new ArrayList<>(quantitiesByProductId.keySet());
+        productIds.sort(null);
+        List<Object[]> args = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            int quantity = quantitiesByProductId.get(productId);
+            args.add(new Object[]{quantity, changeVersion, productId, userId, quantity});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, args);
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                failed.add(productIds.get(i));
+            }
+        }
+        return failed;
+    }
+
+    public void insertSales(Long userId, List<Sale> sales) {
+        List<Object[]> args = new ArrayList<>(sales.size());
+        for (Sale sale : sales) {
+            args.add(new Object[]{
+                    sale.getProductId(),
+                    sale.getProductName(),
+                    sale.getQuantitySold(),
+                    sale.getTotalBillAmount(),
+                    sale.getProfitEarned(),
+                    Timestamp.valueOf(sale.getTimestamp()),
+                    userId
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SALE_SQL, args);
+    }
+}
@@ -0,0 +1,48 @@
+package com.avaks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only read of a tenant's sale history for exports. With a fetch size of
+ * Integer.MIN_VALUE Connector/J streams the result set row by row instead of buffering it,
+ * so memory stays flat regardless of how many rows are exported.
+ */
+@Repository
+public class SaleExportRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT sale_id, timestamp, product_name, quantity_sold, total_bill_amount, profit_earned "
+                    + "FROM sale WHERE user_id = ?";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public SaleExportRepository(DataSource dataSource) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public void streamSales(Long userId, LocalDateTime from, LocalDateTime to, RowCallbackHandler rowHandler) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY timestamp, sale_id");
+
+        streamingJdbcTemplate.query(sql.toString(), rowHandler, args.toArray());
+    }
+}
@@ -1,12 +1,29 @@
 package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.Sale;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
-	void deleteAllByUserId(Long userId);
+	@Query("SELECT COALESCE(MAX(s.saleId), 0) FROM Sale s WHERE s.user.id = :userId")
+	long findMaxSaleIdByUserId(@Param("userId") Long userId);
+
+	// Newest first; sale ids grow with time, so this follows the sale timestamps.
+	@Query("SELECT s FROM Sale s WHERE s.user.id = :userId AND s.saleId < :beforeId ORDER BY s.saleId DESC")
+	List<Sale> findPageByUserId(@Param("userId") Long userId, @Param("beforeId") long beforeId, Pageable page);
+
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM sale WHERE user_id = :userId AND sale_id <= :maxId LIMIT :limit", nativeQuery = true)
+	int deleteChunkByUserId(@Param("userId") Long userId, @Param("maxId") long maxId, @Param("limit") int limit);
 }
 
 
@@ -0,0 +1,135 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.dto.SalesStatsDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hourly and daily sales aggregates per user and product. Sales add to them with batched
+ * upserts inside the sale transaction, and the stats endpoint reads only these tables, so
+ * chart cost depends on the number of buckets, not on the size of the sale history. A bucket
+ * may be split across stripe rows so that concurrent sales of a hot product lock different
+ * rows; readers always sum over the stripes.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupRepository {
+
+    public enum Granularity {
+        HOUR("sales_rollup_hourly", ChronoUnit.HOURS),
+        DAY("sales_rollup_daily", ChronoUnit.DAYS);
+
+        private final String table;
+        private final ChronoUnit unit;
+
+        Granularity(String table, ChronoUnit unit) {
+            this.table = table;
+            this.unit = unit;
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime timestamp) {
+            return timestamp.truncatedTo(unit);
+        }
+    }
+
+    /** Sale totals for one product within one batch; productId 0 means the product is unknown. */
+    public record Delta(long productId, long quantity, double revenue, double profit, long saleCount) {
+    }
+
+    /** One product's totals for one day. */
+    public record DailyProductTotal(Long userId, LocalDate day, long productId, long quantity, double profit) {
+    }
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO %s (user_id, bucket_start, product_id, stripe, quantity, revenue, profit, sale_count)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                quantity = quantity + VALUES(quantity),
+                revenue = revenue + VALUES(revenue),
+                profit = profit + VALUES(profit),
+                sale_count = sale_count + VALUES(sale_count)
+            """;
+
+    private static final String RANGE_SQL = """
+            SELECT bucket_start, SUM(quantity) AS quantity, SUM(revenue) AS revenue,
+                   SUM(profit) AS profit, SUM(sale_count) AS sale_count
+            FROM %s
+            WHERE user_id = ? AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY bucket_start
+            ORDER BY bucket_start
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Upserts go in product id order so that concurrent sales of the same products take the
+    // bucket rows' locks in the same order and cannot deadlock.
+    public void apply(Long userId, LocalDateTime soldAt, int stripe, List<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Delta> ordered = deltas.stream().sorted(Comparator.comparingLong(Delta::productId)).toList();
+        for (Granularity granularity : Granularity.values()) {
+            Timestamp bucketStart = Timestamp.valueOf(granularity.bucketOf(soldAt));
+            List<Object[]> args = new ArrayList<>(ordered.size());
+            for (Delta delta : ordered) {
+                args.add(new Object[]{
+                        userId,
+                        bucketStart,
+                        delta.productId(),
+                        stripe,
+                        delta.quantity(),
+                        delta.revenue(),
+                        delta.profit(),
+                        delta.saleCount()
+                });
+            }
+            jdbcTemplate.batchUpdate(UPSERT_SQL.formatted(granularity.table), args);
+        }
+    }
+
+    public void deleteForUser(Long userId) {
+        for (Granularity granularity : Granularity.values()) {
+            jdbcTemplate.update("DELETE FROM " + granularity.table + " WHERE user_id = ?", userId);
+        }
+    }
+
+    /** Streams every known product's daily totals from the given day on, across all users. */
+    public void forEachDailyProductTotal(LocalDate since, Consumer<DailyProductTotal> consumer) {
+        jdbcTemplate.query(
+                "SELECT user_id, bucket_start, product_id, SUM(quantity) AS quantity, SUM(profit) AS profit "
+                        + "FROM sales_rollup_daily WHERE bucket_start >= ? AND product_id > 0 "
+                        + "GROUP BY user_id, bucket_start, product_id",
+                (RowCallbackHandler) rs -> consumer.accept(new DailyProductTotal(
+                        rs.getLong("user_id"),
+                        rs.getTimestamp("bucket_start").toLocalDateTime().toLocalDate(),
+                        rs.getLong("product_id"),
+                        rs.getLong("quantity"),
+                        rs.getDouble("profit"))),
+                Timestamp.valueOf(since.atStartOfDay()));
+    }
+
+    public List<SalesStatsDTO> findRange(Long userId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(
+                RANGE_SQL.formatted(granularity.table),
+                (rs, rowNum) -> new SalesStatsDTO(
+                        rs.getTimestamp("bucket_start").toLocalDateTime(),
+                        rs.getLong("quantity"),
+                        rs.getDouble("revenue"),
+                        rs.getDouble("profit"),
+                        rs.getLong("sale_count")),
+                userId,
+                Timestamp.valueOf(granularity.bucketOf(from)),
+                Timestamp.valueOf(to));
+    }
+}
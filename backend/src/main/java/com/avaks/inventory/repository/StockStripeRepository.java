@@ -0,0 +1,171 @@
+package com.avaks.inventory.repository;
+
+import com.avaks.inventory.dto.LowStockProductDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock counters for products in hot mode. The stock of such a product is the sum of its
+ * stripe rows, so concurrent sales lock different rows instead of queueing on the product row.
+ * All methods must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockStripeRepository {
+
+    private static final String LOW_STOCK_SQL = """
+            SELECT p.id, p.name, SUM(s.stock) AS stock, p.reorder_level
+            FROM product p JOIN product_stock_stripe s ON s.product_id = p.id
+            WHERE p.user_id = ? AND p.hot_stripes > 0%s
+            GROUP BY p.id, p.name, p.reorder_level
+            HAVING SUM(s.stock) <= p.reorder_level
+            """;
+
+    private static final RowMapper<LowStockProductDTO> LOW_STOCK_ROW = (rs, rowNum) -> new LowStockProductDTO(
+            rs.getLong("id"), rs.getString("name"), rs.getInt("stock"), rs.getInt("reorder_level"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean decrementStripe(Long productId, int stripe, int quantity, long changeVersion) {
+        return jdbcTemplate.update(
+                "UPDATE product_stock_stripe SET stock = stock - ?, change_version = ? WHERE product_id = ? AND stripe = ? AND stock >= ?",
+                quantity, changeVersion, productId, stripe, quantity) == 1;
+    }
+
+    /**
+     * Locks every stripe of the product in stripe order and returns their stock, indexed by stripe.
+     */
+    public int[] lockStripes(Long productId, int stripes) {
+        int[] stock = new int[stripes];
+        jdbcTemplate.query(
+                "SELECT stripe, stock FROM product_stock_stripe WHERE product_id = ? ORDER BY stripe FOR UPDATE",
+                rs -> {
+                    int stripe = rs.getInt("stripe");
+                    if (stripe >= 0 && stripe < stripes) {
+                        stock[stripe] = rs.getInt("stock");
+                    }
+                },
+                productId);
+        return stock;
+    }
+
+    /**
+     * Locks the product's stripes that no other transaction holds, in stripe order, without
+     * waiting for the rest. Returns their stock indexed by stripe, and -1 for the skipped ones.
+     */
+    public int[] lockUnheldStripes(Long productId, int stripes) {
+        int[] stock = new int[stripes];
+        Arrays.fill(stock, -1);
+        jdbcTemplate.query(
+                "SELECT stripe, stock FROM product_stock_stripe WHERE product_id = ? ORDER BY stripe FOR UPDATE SKIP LOCKED",
+                rs -> {
+                    int stripe = rs.getInt("stripe");
+                    if (stripe >= 0 && stripe < stripes) {
+                        stock[stripe] = rs.getInt("stock");
+                    }
+                },
+                productId);
+        return stock;
+    }
+
+    /** Subtracts {@code taken[stripe]} from each stripe; the stripes must already be locked. */
+    public void takeFromStripes(Long productId, int[] taken, long changeVersion) {
+        List<Object[]> args = new ArrayList<>();
+        for (int stripe = 0; stripe < taken.length; stripe++) {
+            if (taken[stripe] > 0) {
+                args.add(new Object[]{taken[stripe], changeVersion, productId, stripe});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE product_stock_stripe SET stock = stock - ?, change_version = ? WHERE product_id = ? AND stripe = ?",
+                args);
+    }
+
+    public void writeStripes(Long productId, int[] stock, long changeVersion) {
+        List<Object[]> args = new ArrayList<>(stock.length);
+        for (int stripe = 0; stripe < stock.length; stripe++) {
+            args.add(new Object[]{productId, stripe, stock[stripe], changeVersion});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO product_stock_stripe (product_id, stripe, stock, change_version) VALUES (?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE stock = VALUES(stock), change_version = VALUES(change_version)",
+                args);
+    }
+
+    public void deleteStripes(Long productId) {
+        jdbcTemplate.update("DELETE FROM product_stock_stripe WHERE product_id = ?", productId);
+    }
+
+    public Map<Long, Integer> sumStock(Collection<Long> productIds) {
+        Map<Long, Integer> totals = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return totals;
+        }
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query(
+                "SELECT product_id, SUM(stock) AS total FROM product_stock_stripe WHERE product_id IN (" + placeholders + ") GROUP BY product_id",
+                (RowCallbackHandler) rs -> totals.put(rs.getLong("product_id"), rs.getInt("total")),
+                productIds.toArray());
+        return totals;
+    }
+
+    /**
+     * Returns the user's hot products whose stripes together hold no more than the reorder
+     * level, with that total as their stock. The product rows' stock column lags behind.
+     */
+    public List<LowStockProductDTO> findLowStock(Long userId) {
+        return jdbcTemplate.query(LOW_STOCK_SQL.formatted(""), LOW_STOCK_ROW, userId);
+    }
+
+    public List<LowStockProductDTO> findLowStock(Long userId, Long productId) {
+        return jdbcTemplate.query(LOW_STOCK_SQL.formatted(" AND p.id = ?"), LOW_STOCK_ROW, userId, productId);
+    }
+
+    /**
+     * Locks the product row for a hot-mode transition and returns its stock and stripe count,
+     * or null if the product does not belong to the user.
+     */
+    public int[] lockProduct(Long productId, Long userId) {
+        List<int[]> rows = jdbcTemplate.query(
+                "SELECT stock, hot_stripes FROM product WHERE id = ? AND user_id = ? FOR UPDATE",
+                (rs, rowNum) -> new int[]{rs.getInt("stock"), rs.getInt("hot_stripes")},
+                productId, userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void updateProductStock(Long productId, int stock, int hotStripes, long changeVersion) {
+        jdbcTemplate.update("UPDATE product SET stock = ?, hot_stripes = ?, change_version = ? WHERE id = ?",
+                stock, hotStripes, changeVersion, productId);
+    }
+
+    /**
+     * Returns the user's hot products with a stripe written after the given version. Stripe
+     * writes leave the product row alone, so the sync feed looks here as well.
+     */
+    public List<Long> findProductIdsChangedSince(Long userId, long since) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT s.product_id FROM product_stock_stripe s JOIN product p ON p.id = s.product_id "
+                        + "WHERE p.user_id = ? AND p.hot_stripes > 0 AND s.change_version > ?",
+                Long.class, userId, since);
+    }
+
+    /**
+     * Returns {productId, userId} for every product currently in hot mode.
+     */
+    public List<long[]> findHotProducts() {
+        return jdbcTemplate.query(
+                "SELECT id, user_id FROM product WHERE hot_stripes > 0",
+                (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("user_id")});
+    }
+}
@@ -1,14 +1,34 @@
 package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.Supplier;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
 	Optional<Supplier> findByIdAndUserId(Long id, Long userId);
 	List<Supplier> findAllByUserId(Long userId);
-	void deleteAllByUserId(Long userId);
+
+	@Query("SELECT s FROM Supplier s WHERE s.user.id = :userId AND s.changeVersion > :since ORDER BY s.changeVersion")
+	List<Supplier> findChangedSince(@Param("userId") Long userId, @Param("since") long since);
+
+	@Query("SELECT s FROM Supplier s WHERE s.user.id = :userId AND s.id > :afterId ORDER BY s.id")
+	List<Supplier> findPageByUserIdOrderById(@Param("userId") Long userId, @Param("afterId") long afterId, Pageable page);
+
+	@Query("SELECT s FROM Supplier s WHERE s.user.id = :userId "
+			+ "AND (s.name > :afterName OR (s.name = :afterName AND s.id > :afterId)) ORDER BY s.name, s.id")
+	List<Supplier> findPageByUserIdOrderByName(@Param("userId") Long userId, @Param("afterName") String afterName,
+											   @Param("afterId") long afterId, Pageable page);
+
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM supplier WHERE user_id = :userId AND id <= :maxId LIMIT :limit", nativeQuery = true)
+	int deleteChunkByUserId(@Param("userId") Long userId, @Param("maxId") long maxId, @Param("limit") int limit);
 }
 
 
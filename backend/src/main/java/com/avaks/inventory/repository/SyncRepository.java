@@ -0,0 +1,101 @@
+package com.avaks.inventory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-tenant change versions and delete tombstones for the sync feed. Must be called inside a
+ * transaction: the version upsert and LAST_INSERT_ID() have to run on the same connection, and
+ * the counter row stays locked until commit so versions become visible in order. Writers take
+ * versions through {@link com.avaks.inventory.service.ChangeVersionService}, which does so only
+ * at commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SyncRepository {
+
+    public enum EntityType {
+        PRODUCT,
+        SUPPLIER
+    }
+
+    public record Tombstone(EntityType entityType, long entityId, long changeVersion) {
+    }
+
+    private static final String NEXT_VERSION_SQL = """
+            INSERT INTO tenant_change_version (user_id, version) VALUES (?, LAST_INSERT_ID(1))
+            ON DUPLICATE KEY UPDATE version = LAST_INSERT_ID(version + 1)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long nextVersion(Long userId) {
+        jdbcTemplate.update(NEXT_VERSION_SQL, userId);
+        Long version = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+        return version == null ? 0L : version;
+    }
+
+    /** Replaces a transaction's placeholder version with the allocated one on every row it stamped. */
+    public void assignVersion(Long userId, long placeholder, long version) {
+        jdbcTemplate.update("UPDATE product SET change_version = ? WHERE user_id = ? AND change_version = ?",
+                version, userId, placeholder);
+        jdbcTemplate.update("UPDATE supplier SET change_version = ? WHERE user_id = ? AND change_version = ?",
+                version, userId, placeholder);
+        jdbcTemplate.update("UPDATE sync_tombstone SET change_version = ? WHERE user_id = ? AND change_version = ?",
+                version, userId, placeholder);
+        jdbcTemplate.update("UPDATE product_stock_stripe SET change_version = ? WHERE change_version = ?",
+                version, placeholder);
+    }
+
+    /** Returns {version, tombstoneFloor} for the tenant, zeros if it never wrote anything. */
+    public long[] findVersionAndFloor(Long userId) {
+        List<long[]> rows = jdbcTemplate.query(
+                "SELECT version, tombstone_floor FROM tenant_change_version WHERE user_id = ?",
+                (rs, rowNum) -> new long[]{rs.getLong("version"), rs.getLong("tombstone_floor")},
+                userId);
+        return rows.isEmpty() ? new long[]{0L, 0L} : rows.get(0);
+    }
+
+    public void recordTombstone(Long userId, EntityType entityType, long entityId, long changeVersion) {
+        jdbcTemplate.update(
+                "INSERT INTO sync_tombstone (user_id, entity_type, entity_id, change_version, deleted_at) VALUES (?, ?, ?, ?, ?)",
+                userId, entityType.name(), entityId, changeVersion, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public List<Tombstone> findTombstonesSince(Long userId, long sinceVersion) {
+        return jdbcTemplate.query(
+                "SELECT entity_type, entity_id, change_version FROM sync_tombstone "
+                        + "WHERE user_id = ? AND change_version > ? ORDER BY change_version",
+                (rs, rowNum) -> new Tombstone(
+                        EntityType.valueOf(rs.getString("entity_type")),
+                        rs.getLong("entity_id"),
+                        rs.getLong("change_version")),
+                userId, sinceVersion);
+    }
+
+    /** Returns {userId, maxVersion} of the tombstones older than the cutoff, per tenant. */
+    public List<long[]> findExpiredTombstoneBounds(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.query(
+                "SELECT user_id, MAX(change_version) AS max_version FROM sync_tombstone "
+                        + "WHERE deleted_at < ? GROUP BY user_id LIMIT ?",
+                (rs, rowNum) -> new long[]{rs.getLong("user_id"), rs.getLong("max_version")},
+                Timestamp.valueOf(cutoff), limit);
+    }
+
+    public void raiseTombstoneFloor(long userId, long floor) {
+        jdbcTemplate.update(
+                "UPDATE tenant_change_version SET tombstone_floor = GREATEST(tombstone_floor, ?) WHERE user_id = ?",
+                floor, userId);
+    }
+
+    public int deleteTombstonesChunk(long userId, long maxVersion, int limit) {
+        return jdbcTemplate.update(
+                "DELETE FROM sync_tombstone WHERE user_id = ? AND change_version <= ? LIMIT ?",
+                userId, maxVersion, limit);
+    }
+}
@@ -2,10 +2,21 @@ package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.UserOtp;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
 
+/**
+ * OTPs now live in an {@link com.avaks.inventory.service.otp.OtpStore}; the table is only
+ * swept of rows left over from the database-backed implementation.
+ */
 public interface UserOtpRepository extends JpaRepository<UserOtp, Long> {
-    Optional<UserOtp> findTopByUserIdOrderByCreatedAtDesc(Long userId);
-    void deleteByUserId(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM user_otp WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
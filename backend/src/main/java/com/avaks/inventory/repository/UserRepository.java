@@ -2,12 +2,41 @@ package com.avaks.inventory.repository;
 
 import com.avaks.inventory.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 	Optional<User> findByEmail(String email);
 	boolean existsByEmail(String email);
-}
 
+	@Transactional
+	@Modifying
+	@Query("UPDATE User u SET u.password = :newPassword WHERE u.id = :id AND u.password = :currentPassword")
+	int replacePasswordHash(@Param("id") Long id,
+							@Param("currentPassword") String currentPassword,
+							@Param("newPassword") String newPassword);
 
+	/**
+	 * Removes never-verified sign-ups older than the cutoff. Accounts that own any inventory
+	 * data are kept, which protects legacy rows that predate OTP verification.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = """
+			DELETE FROM `user`
+			WHERE is_verified = FALSE
+			  AND email IS NOT NULL
+			  AND created_at < :cutoff
+			  AND NOT EXISTS (SELECT 1 FROM product p WHERE p.user_id = `user`.id)
+			  AND NOT EXISTS (SELECT 1 FROM supplier s WHERE s.user_id = `user`.id)
+			  AND NOT EXISTS (SELECT 1 FROM sale sa WHERE sa.user_id = `user`.id)
+			  AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.user_id = `user`.id)
+			LIMIT :limit
+			""", nativeQuery = true)
+	int deleteStaleUnverifiedChunk(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,70 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.UserOtpRepository;
+import com.avaks.inventory.repository.UserRepository;
+import com.avaks.inventory.service.otp.OtpStore;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps the auth tables small: purges expired OTPs and sign-ups that were never verified.
+ * Deletes run in bounded chunks, each in its own short transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuthDataSweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthDataSweeper.class);
+
+    private final OtpStore otpStore;
+    private final UserOtpRepository userOtpRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.otp.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.otp.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.otp.unverified-account-retention-hours:72}")
+    private long unverifiedAccountRetentionHours;
+
+    @Scheduled(fixedDelayString = "${app.otp.sweeper.interval-ms:900000}", initialDelayString = "${app.otp.sweeper.initial-delay-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            otpStore.purgeExpired();
+
+            LocalDateTime now = LocalDateTime.now();
+            int expiredOtps = deleteInChunks(() -> userOtpRepository.deleteExpiredChunk(now, chunkSize));
+            LocalDateTime cutoff = now.minusHours(unverifiedAccountRetentionHours);
+            int staleUsers = deleteInChunks(() -> userRepository.deleteStaleUnverifiedChunk(cutoff, chunkSize));
+
+            if (expiredOtps > 0 || staleUsers > 0) {
+                LOGGER.info("Auth sweep removed {} expired OTP rows and {} stale unverified accounts", expiredOtps, staleUsers);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Auth sweep failed: {}", ex.getMessage());
+        }
+    }
+
+    private int deleteInChunks(IntSupplier deleteChunk) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = deleteChunk.getAsInt();
+            total += deleted;
+        } while (deleted >= chunkSize);
+        return total;
+    }
+}
@@ -1,5 +1,6 @@
 package com.avaks.inventory.service;
 
+import com.avaks.inventory.config.VerifiedPrincipalCache;
 import com.avaks.inventory.dto.auth.AuthResponse;
 import com.avaks.inventory.dto.auth.ForgotPasswordRequest;
 import com.avaks.inventory.dto.auth.LoginRequest;
@@ -8,13 +9,15 @@ import com.avaks.inventory.dto.auth.ResetPasswordRequest;
 import com.avaks.inventory.dto.auth.VerifyOtpRequest;
 import com.avaks.inventory.exception.AuthException;
 import com.avaks.inventory.exception.DuplicateEmailException;
+import com.avaks.inventory.exception.OtpCooldownException;
 import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.regex.Pattern;
 
@@ -27,32 +30,49 @@ public class AuthService {
     );
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final OtpService otpService;
     private final EmailService emailService;
     private final JwtService jwtService;
+    private final VerifiedPrincipalCache principalCache;
+    private final PlatformTransactionManager transactionManager;
 
     @Value("${app.otp.expiration-minutes:10}")
     private long otpExpirationMinutes;
 
-    @Transactional
+    /**
+     * The password is hashed on the bcrypt pool before the transaction opens, so no DB
+     * connection is held while waiting for a hashing thread.
+     */
     public void register(RegisterRequest request) {
         String email = normalizeEmail(request.getEmail());
 
         validatePasswordStrength(request.getPassword());
 
+        // Checked again inside the transaction; this only spares the hash for a taken email.
+        if (userRepository.findByEmail(email).filter(user -> Boolean.TRUE.equals(user.getIsVerified())).isPresent()) {
+            throw new DuplicateEmailException("Email is already registered");
+        }
+        String passwordHash = passwordHashingService.encode(request.getPassword());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> saveUnverifiedUser(
+                email, request.getStoreName().trim(), passwordHash));
+    }
+
+    private void saveUnverifiedUser(String email, String storeName, String passwordHash) {
         User existingUser = userRepository.findByEmail(email).orElse(null);
         if (existingUser != null) {
             if (Boolean.TRUE.equals(existingUser.getIsVerified())) {
                 throw new DuplicateEmailException("Email is already registered");
             }
 
-            existingUser.setStoreName(request.getStoreName().trim());
-            existingUser.setPassword(passwordEncoder.encode(request.getPassword()));
+            existingUser.setStoreName(storeName);
+            existingUser.setPassword(passwordHash);
             existingUser.setRole("ROLE_USER");
             existingUser.setIsVerified(false);
 
             User updatedUser = userRepository.save(existingUser);
+            principalCache.invalidateUser(updatedUser.getEmail());
             String otp = otpService.generateAndStoreOtp(updatedUser);
             emailService.sendOtpEmail(updatedUser.getEmail(), updatedUser.getStoreName(), otp, otpExpirationMinutes);
             return;
@@ -60,8 +80,8 @@ public class AuthService {
 
         User user = new User();
         user.setEmail(email);
-        user.setStoreName(request.getStoreName().trim());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setStoreName(storeName);
+        user.setPassword(passwordHash);
         user.setRole("ROLE_USER");
         user.setIsVerified(false);
 
@@ -99,7 +119,13 @@ public class AuthService {
             if (!Boolean.TRUE.equals(user.getIsVerified())) {
                 return;
             }
-            String otp = otpService.generateAndStoreOtp(user);
+            String otp;
+            try {
+                otp = otpService.generateAndStoreOtp(user);
+            } catch (OtpCooldownException ex) {
+                // Stay silent so the response does not reveal whether the email is registered.
+                return;
+            }
             emailService.sendPasswordResetOtpEmail(user.getEmail(), user.getStoreName(), otp, otpExpirationMinutes);
         });
     }
@@ -116,7 +142,7 @@ public class AuthService {
         otpService.verifyOtp(user, request.getOtp());
     }
 
-    @Transactional
+    /** Not transactional for the same reason as register; the save runs in its own transaction. */
     public void resetForgotPassword(ResetPasswordRequest request) {
         User user = userRepository.findByEmail(normalizeEmail(request.getEmail()))
                 .orElseThrow(() -> new AuthException("Invalid email or OTP"));
@@ -128,18 +154,22 @@ public class AuthService {
         otpService.verifyOtp(user, request.getOtp());
         validatePasswordStrength(request.getNewPassword());
 
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.invalidateUser(user.getEmail());
         otpService.clearOtp(user);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Deliberately not transactional: no DB connection is held while bcrypt runs on the
+     * hashing pool.
+     */
     public AuthResponse login(LoginRequest request) {
         String email = normalizeEmail(request.getEmail());
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AuthException("Invalid email or password"));
 
-        if (user.getPassword() == null || !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (user.getPassword() == null || !passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new AuthException("Invalid email or password");
         }
 
@@ -147,6 +177,11 @@ public class AuthService {
             throw new AuthException("Email is not verified. Please verify OTP first.");
         }
 
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            String rehashed = passwordHashingService.encode(request.getPassword());
+            userRepository.replacePasswordHash(user.getId(), user.getPassword(), rehashed);
+        }
+
         String token = jwtService.generateToken(user.getId(), user.getEmail());
         return new AuthResponse(token, user.getId(), user.getEmail(), user.getStoreName());
     }
@@ -0,0 +1,72 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.SyncRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Change versions for the sync feed. A writing transaction stamps its rows with a negative
+ * placeholder of its own; just before commit the placeholder is swapped for the tenant's next
+ * version. The tenant's counter row is therefore locked only while the transaction commits, not
+ * while it runs, and versions still become visible in commit order.
+ */
+@Service
+public class ChangeVersionService {
+
+    private final SyncRepository syncRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChangeVersionService(SyncRepository syncRepository) {
+        this.syncRepository = syncRepository;
+    }
+
+    /**
+     * Returns the placeholder the current transaction stamps the tenant's rows with. Calls for
+     * the same tenant in the same transaction get the same placeholder.
+     */
+    public long pendingVersion(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Change versions can only be taken inside a transaction");
+        }
+        // Looked up among the synchronizations rather than bound as a resource, so a nested
+        // REQUIRES_NEW transaction, which suspends them, gets a placeholder of its own.
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingVersion pending && pending.userId.equals(userId)) {
+                return pending.placeholder;
+            }
+        }
+
+        PendingVersion pending = new PendingVersion(userId, -ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.placeholder;
+    }
+
+    private final class PendingVersion implements TransactionSynchronization {
+        private final Long userId;
+        private final long placeholder;
+
+        private PendingVersion(Long userId, long placeholder) {
+            this.userId = userId;
+            this.placeholder = placeholder;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (readOnly) {
+                return;
+            }
+            // Entities stamped with the placeholder must reach the database before the swap.
+            entityManager.flush();
+            // Counter first: the swap's index locks are then taken only while holding it.
+            long version = syncRepository.nextVersion(userId);
+            syncRepository.assignVersion(userId, placeholder, version);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.CacheKeyUtil;
+import com.avaks.inventory.config.cache.CacheNames;
+import com.avaks.inventory.service.etag.CollectionVersionStore;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * ETags for the tenant list endpoints. Each list is tagged with its collection's version, read
+ * before the list itself, and writers bump the version after commit. The bump first drops the
+ * tenant's cached lists directly, because annotation evictions may still be pending at that
+ * point and a new tag must never be attached to an old cached list. A list that embeds other
+ * collections' entities, as orders embed their product and its supplier, is tagged with those
+ * versions too, so writers only bump the collection they changed.
+ */
+@Service
+@RequiredArgsConstructor
+public class CollectionVersionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollectionVersionService.class);
+
+    public enum VersionedCollection {
+        PRODUCTS("products", CacheNames.PRODUCTS_BY_USER, CacheNames.PRODUCTS_SALE_INFO_BY_USER),
+        SUPPLIERS("suppliers", CacheNames.SUPPLIERS_BY_USER),
+        ORDERS("orders");
+
+        private final String key;
+        private final List<String> listCaches;
+
+        VersionedCollection(String key, String... listCaches) {
+            this.key = key;
+            this.listCaches = List.of(listCaches);
+        }
+
+        // The collections whose versions make up this list's tag, its own first.
+        private List<VersionedCollection> tagged() {
+            return this == ORDERS ? List.of(ORDERS, PRODUCTS, SUPPLIERS) : List.of(this);
+        }
+    }
+
+    private final CollectionVersionStore collectionVersionStore;
+    private final CacheManager cacheManager;
+
+    /** Strong ETag for one representation of the collection, or null if the store is unavailable. */
+    public String etag(Long userId, VersionedCollection collection, String representation) {
+        try {
+            StringBuilder tag = new StringBuilder("\"").append(representation);
+            for (VersionedCollection tagged : collection.tagged()) {
+                tag.append('-').append(collectionVersionStore.current(userId, tagged.key));
+            }
+            return tag.append('"').toString();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Collection version lookup failed, serving {} without an ETag: {}", representation, ex.getMessage());
+            return null;
+        }
+    }
+
+    public void bumpAfterCommit(Long userId, VersionedCollection... collections) {
+        String email = CacheKeyUtil.currentUserEmail();
+        Runnable bump = () -> {
+            for (VersionedCollection collection : collections) {
+                try {
+                    evictLists(email, collection);
+                    collectionVersionStore.bump(userId, collection.key);
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Bumping {} version for user {} failed: {}", collection.key, userId, ex.getMessage());
+                }
+            }
+        };
+
+        AfterCommit.run(bump);
+    }
+
+    private void evictLists(String email, VersionedCollection collection) {
+        // Off the request thread (group-commit sales) the tenant's cache key is unknown; the
+        // request thread evicts those lists itself once the commit is done.
+        if ("anonymous".equals(email)) {
+            return;
+        }
+        for (String cacheName : collection.listCaches) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                // evictIfPresent is immediate even on transaction-aware caches.
+                cache.evictIfPresent(email);
+            }
+        }
+    }
+}
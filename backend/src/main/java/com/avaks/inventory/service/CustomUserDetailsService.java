@@ -1,5 +1,6 @@
 package com.avaks.inventory.service;
 
+import com.avaks.inventory.config.AuthenticatedUser;
 import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -24,8 +25,10 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         String role = user.getRole() == null || user.getRole().isBlank() ? "ROLE_USER" : user.getRole();
 
-        return new org.springframework.security.core.userdetails.User(
+        return new AuthenticatedUser(
+                user.getId(),
                 user.getEmail(),
+                user.getStoreName(),
                 user.getPassword(),
                 List.of(new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role))
         );
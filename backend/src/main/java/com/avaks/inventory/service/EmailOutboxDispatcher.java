@@ -0,0 +1,274 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.model.EmailOutbox;
+import com.avaks.inventory.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drains the email outbox. Each poll claims a batch of due rows with SKIP LOCKED, leases them
+ * as SENDING, and hands them to a small worker pool. Every worker sends its share through a
+ * single {@code JavaMailSender.send(MimeMessage...)} call, which keeps one SMTP connection
+ * open for the whole slice instead of reconnecting per message.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final String LOGO_PATH = "static/logo-white-bg.png";
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int PURGE_CHUNK_SIZE = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final int workerCount;
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    private volatile ByteArrayResource logo;
+    private volatile boolean missingSenderLogged;
+
+    @Value("${spring.mail.username:}")
+    private String senderEmail;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.mail.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${app.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.mail.outbox.retention-days:14}")
+    private long retentionDays;
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository emailOutboxRepository,
+            EmailService emailService,
+            JavaMailSender mailSender,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.mail.outbox.workers:2}") int workerCount) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerCount = Math.max(1, workerCount);
+
+        this.workers = Executors.newFixedThreadPool(this.workerCount, new DaemonThreadFactory("email-outbox"));
+
+        this.sentCounter = Counter.builder("email.outbox.deliveries").tag("result", "sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("email.outbox.deliveries").tag("result", "retry").register(meterRegistry);
+        this.failedCounter = Counter.builder("email.outbox.deliveries").tag("result", "failed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (senderEmail == null || senderEmail.isBlank()) {
+            if (!missingSenderLogged) {
+                missingSenderLogged = true;
+                LOGGER.warn("Mail sender is not configured. Set MAIL_USERNAME; queued emails will stay pending.");
+            }
+            return;
+        }
+
+        List<EmailOutbox> claimed = claimBatch();
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        List<List<EmailOutbox>> slices = new ArrayList<>();
+        int sliceCount = Math.min(workerCount, claimed.size());
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (int i = 0; i < claimed.size(); i++) {
+            slices.get(i % sliceCount).add(claimed.get(i));
+        }
+
+        List<Future<?>> futures = new ArrayList<>(slices.size());
+        for (List<EmailOutbox> slice : slices) {
+            futures.add(workers.submit(() -> deliver(slice)));
+        }
+
+        // Wait for the batch so the next poll never re-claims rows that are still in flight here.
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Email outbox worker failed: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /** Deletes sent and failed rows past retention, in chunks so no delete holds locks for long. */
+    @Scheduled(cron = "${app.mail.outbox.retention-cron:0 15 4 * * *}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = emailOutboxRepository.deleteFinishedBefore(cutoff, PURGE_CHUNK_SIZE);
+            purged += deleted;
+        } while (deleted >= PURGE_CHUNK_SIZE);
+        if (purged > 0) {
+            LOGGER.info("Purged {} finished emails older than {} days", purged, retentionDays);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        List<EmailOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = emailOutboxRepository.lockDueBatch(now, batchSize);
+            if (!due.isEmpty()) {
+                emailOutboxRepository.markSending(
+                        due.stream().map(EmailOutbox::getId).toList(),
+                        now.plusSeconds(leaseSeconds));
+            }
+            return due;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private void deliver(List<EmailOutbox> slice) {
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : slice) {
+            try {
+                messages.put(buildMessage(email), email);
+            } catch (MessagingException | RuntimeException ex) {
+                recordFailure(email, ex);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException ex) {
+            failures = ex.getFailedMessages();
+            if (failures.isEmpty()) {
+                messages.values().forEach(email -> recordFailure(email, ex));
+                return;
+            }
+        } catch (MailException ex) {
+            messages.values().forEach(email -> recordFailure(email, ex));
+            return;
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                sentIds.add(entry.getValue().getId());
+            } else {
+                recordFailure(entry.getValue(), failure);
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            emailOutboxRepository.markSent(sentIds, LocalDateTime.now());
+            sentCounter.increment(sentIds.size());
+        }
+    }
+
+    private MimeMessage buildMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
+        helper.setFrom(senderEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(emailService.render(email), true);
+        helper.addInline("logoImage", logo(), "image/png");
+        return message;
+    }
+
+    private void recordFailure(EmailOutbox email, Exception ex) {
+        int attempts = email.getAttempts() + 1;
+        String error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        if (attempts >= maxAttempts) {
+            emailOutboxRepository.markFailed(email.getId(), LocalDateTime.now(), error);
+            failedCounter.increment();
+            LOGGER.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(), attempts, error);
+            return;
+        }
+
+        emailOutboxRepository.markRetry(email.getId(), LocalDateTime.now().plus(backoff(attempts)), error);
+        retriedCounter.increment();
+        LOGGER.warn("Email {} delivery attempt {} failed, will retry: {}", email.getId(), attempts, error);
+    }
+
+    private Duration backoff(int attempts) {
+        long seconds = initialBackoffSeconds << Math.min(attempts - 1, 20);
+        return Duration.ofSeconds(Math.min(seconds, maxBackoffSeconds));
+    }
+
+    private ByteArrayResource logo() {
+        ByteArrayResource cached = logo;
+        if (cached == null) {
+            try (InputStream input = new ClassPathResource(LOGO_PATH).getInputStream()) {
+                cached = new ByteArrayResource(input.readAllBytes());
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to load email logo", ex);
+            }
+            logo = cached;
+        }
+        return cached;
+    }
+}
@@ -1,111 +1,164 @@
 package com.avaks.inventory.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.avaks.inventory.model.EmailOutbox;
+import com.avaks.inventory.repository.EmailOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Queues transactional emails in the email outbox and renders them for delivery. Rows are
+ * written in the caller's transaction, so a rolled-back registration never sends an OTP;
+ * delivery happens later in {@link EmailOutboxDispatcher}.
+ */
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final String OTP_TEMPLATE = """
+            <html>
+            <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
+              <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
+                <div style='padding:28px 28px 0 28px;text-align:center;'>
+                  <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
+                  <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Verify your account</h2>
+                  <p style='margin:0;color:#9ca3af;'>Your one-time password for %s</p>
+                </div>
+                <div style='padding:24px 28px;'>
+                  <div style='text-align:center;background:#0f172a;border:1px dashed #334155;border-radius:10px;padding:18px;'>
+                    <div style='font-size:34px;letter-spacing:6px;font-weight:800;color:#f8fafc;'>%s</div>
+                  </div>
+                  <p style='margin:18px 0 0 0;color:#93c5fd;'>This OTP will expire in %s minutes.</p>
+                  <p style='margin:10px 0 0 0;color:#9ca3af;font-size:14px;'>If you did not request this email, you can safely ignore it.</p>
+                </div>
+              </div>
+            </body>
+            </html>
+            """;
 
-    @Value("${spring.mail.username:}")
-    private String senderEmail;
+    private static final String WELCOME_TEMPLATE = """
+            <html>
+            <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
+              <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
+                <div style='padding:28px;text-align:center;'>
+                  <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
+                  <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Welcome to Inventory Management</h2>
+                  <p style='margin:0;color:#9ca3af;'>Your store <strong style='color:#e2e8f0;'>%s</strong> is now verified.</p>
+                  <p style='margin:18px 0 0 0;color:#cbd5e1;'>You can now log in and start managing products, suppliers, orders, and sales securely.</p>
+                </div>
+              </div>
+            </body>
+            </html>
+            """;
 
-    public void sendOtpEmail(String to, String storeName, String otp, long expiryMinutes) {
-        String html = """
-                <html>
-                <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
-                  <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
-                    <div style='padding:28px 28px 0 28px;text-align:center;'>
-                      <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
-                      <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Verify your account</h2>
-                      <p style='margin:0;color:#9ca3af;'>Your one-time password for %s</p>
-                    </div>
-                    <div style='padding:24px 28px;'>
-                      <div style='text-align:center;background:#0f172a;border:1px dashed #334155;border-radius:10px;padding:18px;'>
-                        <div style='font-size:34px;letter-spacing:6px;font-weight:800;color:#f8fafc;'>%s</div>
-                      </div>
-                      <p style='margin:18px 0 0 0;color:#93c5fd;'>This OTP will expire in %d minutes.</p>
-                      <p style='margin:10px 0 0 0;color:#9ca3af;font-size:14px;'>If you did not request this email, you can safely ignore it.</p>
-                    </div>
+    private static final String PASSWORD_RESET_TEMPLATE = """
+            <html>
+            <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
+              <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
+                <div style='padding:28px 28px 0 28px;text-align:center;'>
+                  <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
+                  <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Reset your password</h2>
+                  <p style='margin:0;color:#9ca3af;'>Use this OTP to set a new password for %s</p>
+                </div>
+                <div style='padding:24px 28px;'>
+                  <div style='text-align:center;background:#0f172a;border:1px dashed #334155;border-radius:10px;padding:18px;'>
+                    <div style='font-size:34px;letter-spacing:6px;font-weight:800;color:#f8fafc;'>%s</div>
                   </div>
-                </body>
-                </html>
-                """.formatted(escape(storeName), escape(otp), expiryMinutes);
+                  <p style='margin:18px 0 0 0;color:#93c5fd;'>This OTP will expire in %s minutes.</p>
+                  <p style='margin:10px 0 0 0;color:#9ca3af;font-size:14px;'>If you did not request a password reset, ignore this email.</p>
+                </div>
+              </div>
+            </body>
+            </html>
+            """;
+
+    /**
+     * The emails the outbox can send. Rows store the template and its parameters, and the
+     * dispatcher renders them at send time; the parameters, which may hold an OTP, are cleared
+     * once the row is sent or given up on.
+     */
+    public enum Template {
+        OTP("Your Inventory OTP Code", OTP_TEMPLATE, "storeName", "otp", "expiryMinutes"),
+        WELCOME("Welcome to Inventory Management", WELCOME_TEMPLATE, "storeName"),
+        PASSWORD_RESET("Inventory Password Reset OTP", PASSWORD_RESET_TEMPLATE, "storeName", "otp", "expiryMinutes");
 
-        sendHtmlWithLogo(to, "Your Inventory OTP Code", html);
+        private final String subject;
+        private final String html;
+        private final List<String> parameters;
+
+        Template(String subject, String html, String... parameters) {
+            this.subject = subject;
+            this.html = html;
+            this.parameters = List.of(parameters);
+        }
     }
 
-    public void sendWelcomeEmail(String to, String storeName) {
-        String html = """
-                <html>
-                <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
-                  <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
-                    <div style='padding:28px;text-align:center;'>
-                      <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
-                      <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Welcome to Inventory Management</h2>
-                      <p style='margin:0;color:#9ca3af;'>Your store <strong style='color:#e2e8f0;'>%s</strong> is now verified.</p>
-                      <p style='margin:18px 0 0 0;color:#cbd5e1;'>You can now log in and start managing products, suppliers, orders, and sales securely.</p>
-                    </div>
-                  </div>
-                </body>
-                </html>
-                """.formatted(escape(storeName));
+    private static final TypeReference<Map<String, String>> PARAMS_TYPE = new TypeReference<>() {
+    };
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final ObjectMapper objectMapper;
 
-        sendHtmlWithLogo(to, "Welcome to Inventory Management", html);
+    public void sendOtpEmail(String to, String storeName, String otp, long expiryMinutes) {
+        enqueue(to, Template.OTP, Map.of("storeName", nullToEmpty(storeName), "otp", otp, "expiryMinutes", String.valueOf(expiryMinutes)));
+    }
+
+    public void sendWelcomeEmail(String to, String storeName) {
+        enqueue(to, Template.WELCOME, Map.of("storeName", nullToEmpty(storeName)));
     }
 
     public void sendPasswordResetOtpEmail(String to, String storeName, String otp, long expiryMinutes) {
-        String html = """
-                <html>
-                <body style='margin:0;padding:0;background:#0b1220;color:#e5e7eb;font-family:Arial,sans-serif;'>
-                  <div style='max-width:600px;margin:24px auto;background:#111827;border:1px solid #1f2937;border-radius:14px;overflow:hidden;'>
-                    <div style='padding:28px 28px 0 28px;text-align:center;'>
-                      <img src='cid:logoImage' alt='Inventory Logo' style='height:56px;object-fit:contain;' />
-                      <h2 style='margin:18px 0 8px 0;color:#f9fafb;'>Reset your password</h2>
-                      <p style='margin:0;color:#9ca3af;'>Use this OTP to set a new password for %s</p>
-                    </div>
-                    <div style='padding:24px 28px;'>
-                      <div style='text-align:center;background:#0f172a;border:1px dashed #334155;border-radius:10px;padding:18px;'>
-                        <div style='font-size:34px;letter-spacing:6px;font-weight:800;color:#f8fafc;'>%s</div>
-                      </div>
-                      <p style='margin:18px 0 0 0;color:#93c5fd;'>This OTP will expire in %d minutes.</p>
-                      <p style='margin:10px 0 0 0;color:#9ca3af;font-size:14px;'>If you did not request a password reset, ignore this email.</p>
-                    </div>
-                  </div>
-                </body>
-                </html>
-                """.formatted(escape(storeName), escape(otp), expiryMinutes);
+        enqueue(to, Template.PASSWORD_RESET, Map.of("storeName", nullToEmpty(storeName), "otp", otp, "expiryMinutes", String.valueOf(expiryMinutes)));
+    }
 
-        sendHtmlWithLogo(to, "Inventory Password Reset OTP", html);
+    @Transactional
+    public void enqueue(String to, Template template, Map<String, String> params) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(template.subject);
+        email.setTemplate(template.name());
+        try {
+            email.setTemplateParams(objectMapper.writeValueAsString(params));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Email parameters cannot be serialized", ex);
+        }
+        email.setStatus(EmailOutbox.Status.PENDING);
+        emailOutboxRepository.save(email);
     }
 
-    private void sendHtmlWithLogo(String to, String subject, String htmlBody) {
-        if (senderEmail == null || senderEmail.isBlank()) {
-          throw new IllegalStateException("Mail sender is not configured. Set MAIL_USERNAME in environment.");
+    /** Renders a queued row. Rows queued before templates were stored carry their HTML instead. */
+    public String render(EmailOutbox email) {
+        if (email.getTemplate() == null) {
+            if (email.getHtmlBody() == null) {
+                throw new IllegalStateException("Email " + email.getId() + " has neither a template nor a body");
+            }
+            return email.getHtmlBody();
+        }
+        if (email.getTemplateParams() == null) {
+            throw new IllegalStateException("Email " + email.getId() + " has no template parameters");
         }
 
+        Template template = Template.valueOf(email.getTemplate());
+        Map<String, String> params;
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
-            helper.setFrom(senderEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true);
-            helper.addInline("logoImage", new ClassPathResource("static/logo-white-bg.png"));
-            mailSender.send(message);
-        } catch (MessagingException ex) {
-            throw new IllegalStateException("Failed to send email", ex);
+            params = objectMapper.readValue(email.getTemplateParams(), PARAMS_TYPE);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Email " + email.getId() + " has unreadable template parameters", ex);
         }
+        Object[] values = template.parameters.stream()
+                .map(name -> escape(params.get(name)))
+                .toArray();
+        return template.html.formatted(values);
+    }
+
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
     }
 
     private String escape(String value) {
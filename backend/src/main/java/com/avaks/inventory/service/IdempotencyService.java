@@ -0,0 +1,138 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.service.idempotency.IdempotencyRecord;
+import com.avaks.inventory.service.idempotency.IdempotencyStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Makes retried POSTs safe. The first request with a given Idempotency-Key runs; duplicates
+ * get the stored response back, or a 409 while the first one is still running. Only 2xx
+ * responses are stored, because failed requests roll back and may be retried for real.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.in-flight-ttl-seconds:60}")
+    private long inFlightTtlSeconds;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    public ResponseEntity<?> execute(String idempotencyKey, String operation, Object requestBody,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, IDEMPOTENCY_KEY_HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = operation + ":" + userService.getCurrentUserId() + ":" + idempotencyKey;
+        String fingerprint = fingerprint(operation, requestBody);
+
+        IdempotencyRecord existing = idempotencyStore
+                .tryBegin(key, fingerprint, Duration.ofSeconds(inFlightTtlSeconds))
+                .orElse(null);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException ex) {
+            idempotencyStore.release(key);
+            throw ex;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyStore.release(key);
+            return response;
+        }
+
+        try {
+            String body = objectMapper.writeValueAsString(response.getBody());
+            idempotencyStore.complete(
+                    key,
+                    IdempotencyRecord.completed(fingerprint, response.getStatusCode().value(), body),
+                    Duration.ofHours(ttlHours));
+        } catch (JsonProcessingException | RuntimeException ex) {
+            // The work is committed; keep the IN_FLIGHT claim so a retry is refused rather than re-run.
+            LOGGER.warn("Failed to store idempotent response for {}: {}", operation, ex.getMessage());
+        }
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        idempotencyStore.purgeExpired();
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord existing, String fingerprint) {
+        if (!existing.fingerprint().equals(fingerprint)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, IDEMPOTENCY_KEY_HEADER + " was already used with a different request");
+        }
+        if (existing.state() == IdempotencyRecord.State.IN_FLIGHT) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("timestamp", LocalDateTime.now());
+            body.put("error", "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still being processed");
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(body);
+        }
+        return ResponseEntity.status(existing.statusCode())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(existing.body());
+    }
+
+    private String fingerprint(String operation, Object requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(requestBody));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to fingerprint request", ex);
+        }
+    }
+
+    private ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("error", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
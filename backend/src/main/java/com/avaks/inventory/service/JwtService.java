@@ -1,6 +1,7 @@
 package com.avaks.inventory.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -14,12 +15,16 @@ import java.util.Date;
 public class JwtService {
 
     private final SecretKey jwtSecretKey;
+    private final JwtParser jwtParser;
     private final long expirationMs;
 
     public JwtService(@Value("${app.jwt.secret}") String jwtSecret,
                       @Value("${app.jwt.expiration-ms}") long expirationMs) {
         byte[] keyBytes = Decoders.BASE64.decode(java.util.Base64.getEncoder().encodeToString(jwtSecret.getBytes()));
         this.jwtSecretKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser()
+                .verifyWith(jwtSecretKey)
+                .build();
         this.expirationMs = expirationMs;
     }
 
@@ -38,11 +43,15 @@ public class JwtService {
     }
 
     public String extractEmail(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public Long extractUserId(String token) {
-        Object userId = extractAllClaims(token).get("userId");
+        return extractUserId(parseClaims(token));
+    }
+
+    public Long extractUserId(Claims claims) {
+        Object userId = claims.get("userId");
         if (userId instanceof Number number) {
             return number.longValue();
         }
@@ -50,7 +59,10 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, String email) {
-        Claims claims = extractAllClaims(token);
+        return isTokenValid(parseClaims(token), email);
+    }
+
+    public boolean isTokenValid(Claims claims, String email) {
         String subject = claims.getSubject();
         Date expiration = claims.getExpiration();
         return subject != null
@@ -59,10 +71,12 @@ public class JwtService {
                 && expiration.after(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(jwtSecretKey)
-                .build()
+    /**
+     * Verifies the signature once and returns the payload. The parser is immutable and
+     * thread-safe, so it is built a single time instead of per call.
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
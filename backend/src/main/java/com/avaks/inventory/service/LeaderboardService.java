@@ -0,0 +1,90 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.dto.TopSellerDTO;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.SalesRollupRepository;
+import com.avaks.inventory.service.leaderboard.LeaderboardEntry;
+import com.avaks.inventory.service.leaderboard.LeaderboardMetric;
+import com.avaks.inventory.service.leaderboard.LeaderboardStore;
+import com.avaks.inventory.service.leaderboard.LeaderboardWindow;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-selling products per tenant. Sales feed the ranked store only after their transaction
+ * commits, so rolled-back or rejected sales never show up, and a store failure is logged
+ * instead of failing a sale that is already durable.
+ */
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private final LeaderboardStore leaderboardStore;
+    private final ProductRepository productRepository;
+
+    public void recordAfterCommit(Long userId, List<SalesRollupRepository.Delta> deltas) {
+        Map<Long, Double> units = new HashMap<>();
+        Map<Long, Double> profit = new HashMap<>();
+        for (SalesRollupRepository.Delta delta : deltas) {
+            if (delta.productId() <= 0) {
+                continue;
+            }
+            units.merge(delta.productId(), (double) delta.quantity(), Double::sum);
+            profit.merge(delta.productId(), delta.profit(), Double::sum);
+        }
+        if (units.isEmpty()) {
+            return;
+        }
+
+        afterCommit(() -> {
+            LocalDate today = LocalDate.now();
+            leaderboardStore.increment(userId, today, LeaderboardMetric.UNITS, units);
+            leaderboardStore.increment(userId, today, LeaderboardMetric.PROFIT, profit);
+        }, userId);
+    }
+
+    public void resetAfterCommit(Long userId) {
+        afterCommit(() -> leaderboardStore.reset(userId), userId);
+    }
+
+    public List<TopSellerDTO> top(Long userId, LeaderboardWindow window, LeaderboardMetric metric, int limit) {
+        List<LeaderboardEntry> entries = leaderboardStore.top(userId, LocalDate.now(), window, metric, limit);
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = entries.stream().map(LeaderboardEntry::productId).toList();
+        Map<Long, String> names = new HashMap<>();
+        for (Object[] row : productRepository.findNamesByUserIdAndIdIn(userId, ids)) {
+            names.put((Long) row[0], (String) row[1]);
+        }
+
+        List<TopSellerDTO> result = new ArrayList<>(entries.size());
+        for (LeaderboardEntry entry : entries) {
+            result.add(new TopSellerDTO(entry.productId(), names.get(entry.productId()), entry.score()));
+        }
+        return result;
+    }
+
+    private void afterCommit(Runnable action, Long userId) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Leaderboard update for user {} failed: {}", userId, ex.getMessage());
+            }
+        };
+
+        AfterCommit.run(guarded);
+    }
+}
@@ -0,0 +1,84 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.dto.LowStockProductDTO;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.service.stream.LiveEvent;
+import com.avaks.inventory.service.stream.LiveEventBroker;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes compact change events to the tenant's live streams once the write commits. A
+ * broker failure is logged rather than failing a write that is already durable.
+ */
+@Service
+@RequiredArgsConstructor
+public class LiveEventService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveEventService.class);
+
+    private final LiveEventBroker liveEventBroker;
+
+    /** Stock moved by a sale or order; deltas are negative for units sold. */
+    public void stockChangedAfterCommit(Long userId, Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> items = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> items.add(Map.of("id", productId, "delta", delta)));
+        afterCommit(new LiveEvent(userId, "stock", Map.of("items", items)));
+    }
+
+    public void productSavedAfterCommit(Long userId, Product product) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("op", "upsert");
+        data.put("id", product.getId());
+        data.put("name", product.getName());
+        data.put("stock", product.getStock());
+        data.put("sellingPrice", product.getSellingPrice());
+        data.put("reorderLevel", product.getReorderLevel());
+        afterCommit(new LiveEvent(userId, "product", data));
+    }
+
+    public void productDeletedAfterCommit(Long userId, Long productId) {
+        afterCommit(new LiveEvent(userId, "product", Map.of("op", "delete", "id", productId)));
+    }
+
+    // Too many rows to describe one by one; clients reload the list.
+    public void productsImportedAfterCommit(Long userId, long imported) {
+        afterCommit(new LiveEvent(userId, "product", Map.of("op", "reload", "imported", imported)));
+    }
+
+    // Like stock, only the delta: the total is spread over stripes and not read on the sale path.
+    public void profitChangedAfterCommit(Long userId, double delta) {
+        afterCommit(new LiveEvent(userId, "profit", Map.of("delta", delta)));
+    }
+
+    public void profitResetAfterCommit(Long userId) {
+        afterCommit(new LiveEvent(userId, "profit", Map.of("total", 0.0, "reset", true)));
+    }
+
+    /** Call from an after-commit hook; publishes immediately. */
+    public void lowStock(Long userId, List<LowStockProductDTO> products) {
+        publish(new LiveEvent(userId, "low-stock", Map.of("items", products)));
+    }
+
+    private void afterCommit(LiveEvent event) {
+        AfterCommit.run(() -> publish(event));
+    }
+
+    private void publish(LiveEvent event) {
+        try {
+            liveEventBroker.publish(event);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Live event {} for user {} was not published: {}", event.type(), event.userId(), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.exception.ServiceBusyException;
+import com.avaks.inventory.service.stream.LiveEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The live streams held by this node, grouped by tenant. Each client has its own bounded queue
+ * that a small sender pool drains, so neither the committing request nor the broker's listener
+ * thread ever waits on a client socket, events reach each client in publish order, and a slow
+ * client only delays itself. A client whose queue fills up is disconnected; it reconnects and
+ * catches up through /api/sync.
+ */
+@Service
+public class LiveStreamService {
+
+    private final Map<Long, Set<Client>> clientsByUser = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final long timeoutMs;
+    private final int maxConnectionsPerUser;
+    private final int clientQueueCapacity;
+
+    private final Counter delivered;
+    private final Counter dropped;
+    private final Counter lagging;
+
+    public LiveStreamService(
+            MeterRegistry meterRegistry,
+            @Value("${app.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${app.stream.max-connections-per-user:10}") int maxConnectionsPerUser,
+            @Value("${app.stream.client-queue-capacity:256}") int clientQueueCapacity,
+            @Value("${app.stream.sender-threads:4}") int senderThreads) {
+        this.timeoutMs = timeoutMs;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.clientQueueCapacity = clientQueueCapacity;
+        this.senders = Executors.newFixedThreadPool(senderThreads, new DaemonThreadFactory("live-stream-sender"));
+
+        this.delivered = Counter.builder("stream.events").tag("result", "delivered").register(meterRegistry);
+        this.dropped = Counter.builder("stream.events").tag("result", "dropped").register(meterRegistry);
+        this.lagging = Counter.builder("stream.clients.lagging").register(meterRegistry);
+        Gauge.builder("stream.connections", clientsByUser,
+                        map -> map.values().stream().mapToInt(Set::size).sum())
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        Client client = new Client(userId, new SseEmitter(timeoutMs));
+        clientsByUser.compute(userId, (ignored, clients) -> {
+            Set<Client> current = clients != null ? clients : ConcurrentHashMap.newKeySet();
+            if (current.size() >= maxConnectionsPerUser) {
+                throw new ServiceBusyException("Too many live connections for this account. Close another tab and retry.");
+            }
+            current.add(client);
+            return current;
+        });
+
+        Runnable remove = () -> client.close(null);
+        client.emitter.onCompletion(remove);
+        client.emitter.onTimeout(remove);
+        client.emitter.onError(ex -> remove.run());
+
+        // Flushes the response headers so the client sees the stream as open right away.
+        client.enqueue(SseEmitter.event().comment("connected"), false);
+        return client.emitter;
+    }
+
+    public void deliver(LiveEvent event) {
+        Set<Client> clients = clientsByUser.get(event.userId());
+        if (clients == null || clients.isEmpty()) {
+            return;
+        }
+        for (Client client : clients) {
+            client.enqueue(SseEmitter.event()
+                    .name(event.type())
+                    .data(event.data(), MediaType.APPLICATION_JSON), true);
+        }
+    }
+
+    // Keeps idle connections from being closed by proxies and detects clients that went away.
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        clientsByUser.values().forEach(clients -> clients.forEach(client ->
+                client.enqueue(SseEmitter.event().comment("ping"), false)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        clientsByUser.values().forEach(clients -> clients.forEach(client -> client.emitter.complete()));
+    }
+
+    private void remove(Client client) {
+        clientsByUser.computeIfPresent(client.userId, (ignored, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    private record Outgoing(SseEmitter.SseEventBuilder event, boolean counted) {
+    }
+
+    private final class Client {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Outgoing> queue = new ArrayBlockingQueue<>(clientQueueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Client(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event, boolean counted) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(new Outgoing(event, counted))) {
+                lagging.increment();
+                close(new IOException("Live stream client fell " + clientQueueCapacity + " events behind"));
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException ignored) {
+                    // Shutting down; the clients will reconnect to another node.
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Outgoing outgoing;
+                while (!closed.get() && (outgoing = queue.poll()) != null) {
+                    emitter.send(outgoing.event());
+                    if (outgoing.counted()) {
+                        delivered.increment();
+                    }
+                }
+            } catch (IOException | IllegalStateException ex) {
+                close(ex);
+            } finally {
+                draining.set(false);
+                if (!closed.get() && !queue.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        // With a cause, the emitter is ended here; without one it already completed on its own.
+        private void close(Exception cause) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            remove(this);
+            dropped.increment(queue.size() + (cause != null ? 1 : 0));
+            queue.clear();
+            if (cause != null) {
+                emitter.completeWithError(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.dto.LowStockProductDTO;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.StockStripeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Low-stock queries and alerts. A product is low once its stock is at or below its reorder
+ * level; the database keeps stock - reorder_level as an indexed generated column, so both the
+ * list and the per-sale check only touch rows that are already low. Hot products keep their
+ * stock in stripes, so they are listed by their stripe totals and their crossings are found by
+ * the stripe rebalancer.
+ */
+@Service
+public class LowStockService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LowStockService.class);
+
+    private static final Comparator<LowStockProductDTO> MOST_URGENT = Comparator
+            .comparingInt((LowStockProductDTO product) -> product.getStock() - product.getReorderLevel())
+            .thenComparingLong(LowStockProductDTO::getId);
+
+    private final ProductRepository productRepository;
+    private final StockStripeRepository stockStripeRepository;
+    private final LiveEventService liveEventService;
+    private final Counter crossings;
+
+    public LowStockService(ProductRepository productRepository, StockStripeRepository stockStripeRepository,
+                           LiveEventService liveEventService, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.stockStripeRepository = stockStripeRepository;
+        this.liveEventService = liveEventService;
+        this.crossings = Counter.builder("products.low_stock.crossings").register(meterRegistry);
+    }
+
+    public List<LowStockProductDTO> lowStock(Long userId, int limit) {
+        List<LowStockProductDTO> products = productRepository.findLowStockByUserId(userId, PageRequest.ofSize(limit));
+        List<LowStockProductDTO> hot = stockStripeRepository.findLowStock(userId);
+        if (hot.isEmpty()) {
+            return products;
+        }
+
+        List<LowStockProductDTO> merged = new ArrayList<>(products);
+        merged.addAll(hot);
+        merged.sort(MOST_URGENT);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Call after the guarded stock decrement, inside the same transaction. Reports the products
+     * that this write moved from above their reorder level to at or below it, once the
+     * transaction commits. Row locks serialize concurrent decrements, so each crossing is seen
+     * by exactly one writer.
+     */
+    public void detectCrossingsAfterCommit(Long userId, Map<Long, Integer> decrementedQuantities) {
+        if (decrementedQuantities.isEmpty()) {
+            return;
+        }
+
+        List<LowStockProductDTO> crossed = new ArrayList<>();
+        for (LowStockProductDTO product : productRepository.findLowStockByUserIdAndIdIn(userId, decrementedQuantities.keySet())) {
+            Integer quantity = decrementedQuantities.get(product.getId());
+            if (quantity != null && product.getStock() + quantity > product.getReorderLevel()) {
+                crossed.add(product);
+            }
+        }
+        publishAfterCommit(userId, crossed);
+    }
+
+    /**
+     * Call from the stripe rebalancer after it replaced a hot product's stock copy with the
+     * stripe total, inside the same transaction. It holds every stripe lock, so as with regular
+     * products each crossing is seen once, at most one rebalance interval late.
+     */
+    public void detectStripeCrossingAfterCommit(Long userId, Long productId, int previousStock) {
+        List<LowStockProductDTO> crossed = stockStripeRepository.findLowStock(userId, productId).stream()
+                .filter(product -> previousStock > product.getReorderLevel())
+                .toList();
+        publishAfterCommit(userId, crossed);
+    }
+
+    private void publishAfterCommit(Long userId, List<LowStockProductDTO> crossed) {
+        if (crossed.isEmpty()) {
+            return;
+        }
+
+        Runnable publish = () -> {
+            crossings.increment(crossed.size());
+            for (LowStockProductDTO product : crossed) {
+                LOGGER.info("Product {} of user {} is low on stock: {} left, reorder level {}",
+                        product.getId(), userId, product.getStock(), product.getReorderLevel());
+            }
+            liveEventService.lowStock(userId, crossed);
+        };
+
+        AfterCommit.run(publish);
+    }
+}
@@ -1,11 +1,12 @@
 package com.avaks.inventory.service;
 
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
 import com.avaks.inventory.dto.OrderDTO;
 import com.avaks.inventory.exception.OutOfStockException;
 import com.avaks.inventory.exception.ResourceNotFoundException;
+import com.avaks.inventory.exception.ServiceBusyException;
 import com.avaks.inventory.model.Order;
 import com.avaks.inventory.model.Product;
-import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.OrderRepository;
 import com.avaks.inventory.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -28,34 +30,68 @@ public class OrderService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private StockStripeService stockStripeService;
+
+    @Autowired
+    private TenantCacheEvictor tenantCacheEvictor;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private LowStockService lowStockService;
+
+    @Autowired
+    private LiveEventService liveEventService;
+
     @Transactional
     public Order createOrder(OrderDTO orderDTO) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
+        Long userId = userService.getCurrentUserId();
 
-        Product product = productRepository.findByIdAndUserId(orderDTO.getProductId(), currentUser.getId())
+        Product product = productRepository.findWithSupplierByIdAndUserId(orderDTO.getProductId(), userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + orderDTO.getProductId()));
 
         // Perform Atomic Stock Decrement
-        int rowsUpdated = productRepository.decrementStockForUser(orderDTO.getProductId(), currentUser.getId(), orderDTO.getQuantity());
-        if (rowsUpdated == 0) {
+        if (product.getHotStripes() > 0) {
+            StockStripeService.Decrement outcome = stockStripeService.decrement(
+                    product.getId(), userId, product.getHotStripes(), orderDTO.getQuantity());
+            if (outcome == StockStripeService.Decrement.CONTENDED) {
+                throw new ServiceBusyException("Stock for product " + product.getName() + " is busy with other sales. Please retry.");
+            }
+            if (outcome == StockStripeService.Decrement.OUT_OF_STOCK) {
+                throw new OutOfStockException("Insufficient stock for product: " + product.getName());
+            }
+        } else if (productRepository.decrementStockForUser(orderDTO.getProductId(), userId, orderDTO.getQuantity(),
+                syncService.pendingVersion(userId)) == 0) {
             throw new OutOfStockException("Insufficient stock or concurrent update for product: " + product.getName());
         }
 
         Order order = new Order();
         order.setProduct(product);
-        order.setUser(currentUser);
+        order.setUser(userService.getUserReference(userId));
         order.setQuantity(orderDTO.getQuantity());
         order.setOrderDate(LocalDateTime.now());
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        tenantCacheEvictor.evictProductsForCurrentUser(List.of(product.getId()));
+        if (product.getHotStripes() == 0) {
+            lowStockService.detectCrossingsAfterCommit(userId, Map.of(product.getId(), orderDTO.getQuantity()));
+        }
+        liveEventService.stockChangedAfterCommit(userId, Map.of(product.getId(), -orderDTO.getQuantity()));
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.ORDERS, CollectionVersionService.VersionedCollection.PRODUCTS);
+        return saved;
     }
 
     public Optional<Order> getOrderById(Long id) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return orderRepository.findByIdAndUserId(id, currentUser.getId());
+        Long userId = userService.getCurrentUserId();
+        return orderRepository.findByIdAndUserId(id, userId);
     }
 
     public List<Order> getAllOrders() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return orderRepository.findAllByUserId(currentUser.getId());
+        Long userId = userService.getCurrentUserId();
+        return orderRepository.findAllByUserId(userId);
     }
 }
@@ -1,56 +1,94 @@
 package com.avaks.inventory.service;
 
+import com.avaks.inventory.exception.OtpCooldownException;
 import com.avaks.inventory.exception.OtpVerificationException;
 import com.avaks.inventory.model.User;
-import com.avaks.inventory.model.UserOtp;
-import com.avaks.inventory.repository.UserOtpRepository;
+import com.avaks.inventory.service.otp.OtpStore;
+import com.avaks.inventory.service.otp.StoredOtp;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.time.Instant;
 
 @Service
 @RequiredArgsConstructor
 public class OtpService {
 
-    private final UserOtpRepository userOtpRepository;
+    private final OtpStore otpStore;
     private final SecureRandom secureRandom = new SecureRandom();
 
     @Value("${app.otp.expiration-minutes:10}")
     private long otpExpirationMinutes;
 
-    @Transactional
+    @Value("${app.otp.resend-cooldown-seconds:60}")
+    private long resendCooldownSeconds;
+
+    @Value("${app.otp.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Starts the resend cooldown and stores a new OTP for the user. Both live outside the
+     * database, so when called inside a transaction they are undone if it rolls back; otherwise
+     * a failed registration would lock the email out of a retry and leave an OTP behind for a
+     * user that was never saved.
+     */
     public String generateAndStoreOtp(User user) {
-        String otp = String.format("%06d", secureRandom.nextInt(1_000_000));
-        userOtpRepository.deleteByUserId(user.getId());
+        if (!otpStore.tryStartCooldown(user.getEmail(), Duration.ofSeconds(resendCooldownSeconds))) {
+            throw new OtpCooldownException("An OTP was sent recently. Please wait before requesting another one.");
+        }
 
-        UserOtp userOtp = new UserOtp();
-        userOtp.setUser(user);
-        userOtp.setOtp(otp);
-        userOtp.setExpiresAt(LocalDateTime.now().plusMinutes(otpExpirationMinutes));
-        userOtpRepository.save(userOtp);
+        String otp = String.format("%06d", secureRandom.nextInt(1_000_000));
+        otpStore.save(user.getId(), otp, Duration.ofMinutes(otpExpirationMinutes));
+        undoOnRollback(user);
         return otp;
     }
 
-    @Transactional(readOnly = true)
     public void verifyOtp(User user, String otp) {
-        UserOtp latestOtp = userOtpRepository.findTopByUserIdOrderByCreatedAtDesc(user.getId())
+        StoredOtp storedOtp = otpStore.find(user.getId())
                 .orElseThrow(() -> new OtpVerificationException("Invalid OTP"));
 
-        if (LocalDateTime.now().isAfter(latestOtp.getExpiresAt())) {
+        if (Instant.now().isAfter(storedOtp.expiresAt())) {
+            otpStore.delete(user.getId());
             throw new OtpVerificationException("OTP has expired");
         }
 
-        if (!latestOtp.getOtp().equals(otp)) {
+        if (otp == null || !MessageDigest.isEqual(
+                storedOtp.otp().getBytes(StandardCharsets.UTF_8),
+                otp.getBytes(StandardCharsets.UTF_8))) {
+            int attempts = otpStore.recordFailedAttempt(user.getId());
+            if (attempts < 0 || attempts >= maxAttempts) {
+                otpStore.delete(user.getId());
+                throw new OtpVerificationException("Too many invalid attempts. Please request a new OTP.");
+            }
             throw new OtpVerificationException("Invalid OTP");
         }
     }
 
-    @Transactional
     public void clearOtp(User user) {
-        userOtpRepository.deleteByUserId(user.getId());
+        otpStore.delete(user.getId());
+    }
+
+    private void undoOnRollback(User user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Long userId = user.getId();
+        String email = user.getEmail();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    otpStore.delete(userId);
+                    otpStore.endCooldown(email);
+                }
+            }
+        });
     }
 }
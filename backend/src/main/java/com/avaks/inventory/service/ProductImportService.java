@@ -0,0 +1,447 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.dto.ProductDTO;
+import com.avaks.inventory.exception.ProductImportException;
+import com.avaks.inventory.repository.ProductImportRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from a CSV or NDJSON stream. Rows are read in chunks of the batch size,
+ * validated in parallel against the tenant's suppliers (loaded once per import), and the
+ * valid ones are inserted as one JDBC batch per chunk in its own transaction. Invalid rows are
+ * reported by row number and never block the rest of the file. Caches and the search index
+ * are invalidated once at the end instead of per product, also when the import stops part way:
+ * the chunks committed by then stay imported and must show up in the product lists.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public record RowError(long row, String error) {
+    }
+
+    public record ImportReport(long imported, long failed, List<RowError> errors, boolean errorsTruncated) {
+    }
+
+    private record RawRow(long row, Map<String, String> fields, String parseError) {
+    }
+
+    private record RowResult(long row, ProductDTO product, String error) {
+    }
+
+    private final ProductImportRepository productImportRepository;
+    private final ProductSearchService productSearchService;
+    private final SyncService syncService;
+    private final CollectionVersionService collectionVersionService;
+    private final LiveEventService liveEventService;
+    private final TenantCacheEvictor tenantCacheEvictor;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService validators;
+    private final int validatorCount;
+    private final Counter importedCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${app.products.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.products.import.max-rows:50000}")
+    private long maxRows;
+
+    @Value("${app.products.import.max-errors:1000}")
+    private int maxErrors;
+
+    public ProductImportService(
+            ProductImportRepository productImportRepository,
+            ProductSearchService productSearchService,
+            SyncService syncService,
+            CollectionVersionService collectionVersionService,
+            LiveEventService liveEventService,
+            TenantCacheEvictor tenantCacheEvictor,
+            Validator validator,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.products.import.threads:2}") int validatorCount) {
+        this.productImportRepository = productImportRepository;
+        this.productSearchService = productSearchService;
+        this.syncService = syncService;
+        this.collectionVersionService = collectionVersionService;
+        this.liveEventService = liveEventService;
+        this.tenantCacheEvictor = tenantCacheEvictor;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validatorCount = Math.max(1, validatorCount);
+
+        this.validators = Executors.newFixedThreadPool(this.validatorCount, new DaemonThreadFactory("product-import"));
+
+        this.importedCounter = Counter.builder("products.import.rows").tag("result", "imported").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("products.import.rows").tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Imports the stream and reports the outcome per row. A failure that stops the import, such
+     * as a CSV header without the required columns or a broken stream, is thrown as a
+     * {@link ProductImportException} carrying how many products were imported before it.
+     */
+    public ImportReport importProducts(Long userId, Format format, InputStream input) {
+        ProductImportRepository.SupplierLookup suppliers = productImportRepository.loadSuppliers(userId);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Iterator<RawRow> rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+
+        long read = 0;
+        long imported = 0;
+        long failed = 0;
+        List<RowError> errors = new ArrayList<>();
+        List<RawRow> chunk = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                RawRow next = rows.hasNext() ? rows.next() : null;
+                if (next != null && ++read > maxRows) {
+                    errors.add(new RowError(next.row(), "Import is limited to " + maxRows + " rows; the rest was ignored"));
+                    next = null;
+                }
+                if (next != null) {
+                    chunk.add(next);
+                }
+                if (chunk.size() >= batchSize || (next == null && !chunk.isEmpty())) {
+                    List<ProductDTO> valid = new ArrayList<>(chunk.size());
+                    for (RowResult result : validate(chunk, suppliers)) {
+                        if (result.error() == null) {
+                            valid.add(result.product());
+                        } else {
+                            failed++;
+                            if (errors.size() < maxErrors) {
+                                errors.add(new RowError(result.row(), result.error()));
+                            }
+                        }
+                    }
+                    if (!valid.isEmpty()) {
+                        transactionTemplate.executeWithoutResult(status ->
+                                productImportRepository.insertProducts(userId, valid, syncService.pendingVersion(userId)));
+                        imported += valid.size();
+                    }
+                    chunk = new ArrayList<>(batchSize);
+                }
+                if (next == null) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            Throwable cause = ex instanceof UncheckedIOException ? ex.getCause() : ex;
+            String reason = cause.getMessage() != null ? cause.getMessage() : "Product import failed";
+            String message = imported > 0
+                    ? "Import stopped after " + imported + " products were imported: " + reason
+                    : reason;
+            throw new ProductImportException(message, imported, failed, cause);
+        } finally {
+            importedCounter.increment(imported);
+            rejectedCounter.increment(failed);
+            if (imported > 0) {
+                tenantCacheEvictor.evictProductListsForCurrentUser();
+                productSearchService.invalidateAfterCommit(userId);
+                collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+                liveEventService.productsImportedAfterCommit(userId, imported);
+            }
+        }
+
+        return new ImportReport(imported, failed, errors, failed > errors.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validators.shutdown();
+    }
+
+    private List<RowResult> validate(List<RawRow> chunk, ProductImportRepository.SupplierLookup suppliers) {
+        int sliceSize = (chunk.size() + validatorCount - 1) / validatorCount;
+        List<Future<List<RowResult>>> futures = new ArrayList<>();
+        for (int start = 0; start < chunk.size(); start += sliceSize) {
+            List<RawRow> slice = chunk.subList(start, Math.min(chunk.size(), start + sliceSize));
+            futures.add(validators.submit(() -> slice.stream().map(row -> validate(row, suppliers)).toList()));
+        }
+
+        List<RowResult> results = new ArrayList<>(chunk.size());
+        for (Future<List<RowResult>> future : futures) {
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Product import was interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Product import validation failed", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    private RowResult validate(RawRow raw, ProductImportRepository.SupplierLookup suppliers) {
+        if (raw.parseError() != null) {
+            return new RowResult(raw.row(), null, raw.parseError());
+        }
+
+        Map<String, String> fields = raw.fields();
+        ProductDTO product = new ProductDTO();
+        try {
+            product.setName(trimToNull(fields.get("name")));
+            product.setDescription(trimToNull(fields.get("description")));
+            product.setPrice(parseDouble(required(fields.get("price"), "price"), "price"));
+            product.setSellingPrice(parseDouble(required(fields.get("sellingprice"), "sellingPrice"), "sellingPrice"));
+            product.setStock(parseInt(required(fields.get("stock"), "stock"), "stock"));
+            product.setReorderLevel(parseInt(fields.get("reorderlevel"), "reorderLevel"));
+        } catch (IllegalArgumentException ex) {
+            return new RowResult(raw.row(), null, ex.getMessage());
+        }
+
+        String supplierId = trimToNull(fields.get("supplierid"));
+        String supplierName = trimToNull(fields.get("suppliername"));
+        if (supplierId != null) {
+            Long id;
+            try {
+                id = Long.parseLong(supplierId);
+            } catch (NumberFormatException ex) {
+                return new RowResult(raw.row(), null, "supplierId must be a number");
+            }
+            if (!suppliers.ids().contains(id)) {
+                return new RowResult(raw.row(), null, "Supplier not found with id " + id);
+            }
+            product.setSupplierId(id);
+        } else if (supplierName != null) {
+            Long id = suppliers.byName(supplierName);
+            if (id == null) {
+                return new RowResult(raw.row(), null, "Supplier not found with name " + supplierName);
+            }
+            product.setSupplierId(id);
+        }
+
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            String error = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new RowResult(raw.row(), null, error);
+        }
+        return new RowResult(raw.row(), product, null);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String required(String value, String field) {
+        if (trimToNull(value) == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static double parseDouble(String value, String field) {
+        String trimmed = trimToNull(value);
+        if (trimmed == null) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(trimmed);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+    }
+
+    private static int parseInt(String value, String field) {
+        String trimmed = trimToNull(value);
+        if (trimmed == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(trimmed);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(field + " must be a whole number");
+        }
+    }
+
+    // Header names are matched case-insensitively and ignoring separators, so
+    // "sellingPrice", "selling_price" and "Selling Price" are the same column.
+    private static String normalizeField(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private abstract static class LineRows implements Iterator<RawRow> {
+        private final BufferedReader reader;
+        private String pending;
+        protected long lineNumber;
+
+        LineRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pending == null) {
+                String line = readLine(reader);
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if (!line.isBlank() && accept(line)) {
+                    pending = line;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public RawRow next() {
+            hasNext();
+            String line = pending;
+            pending = null;
+            return parse(line);
+        }
+
+        /** Returns false for lines that are consumed without producing a row, such as a header. */
+        protected boolean accept(String line) {
+            return true;
+        }
+
+        protected abstract RawRow parse(String line);
+    }
+
+    /** CSV with a header row. Quoted fields may contain commas and doubled quotes but not line breaks. */
+    private static final class CsvRows extends LineRows {
+        private static final List<String> REQUIRED_COLUMNS = List.of("name", "price", "sellingprice", "stock");
+
+        private List<String> header;
+
+        CsvRows(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected boolean accept(String line) {
+            if (header == null) {
+                header = splitCsv(line).stream().map(ProductImportService::normalizeField).toList();
+                List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !header.contains(column)).toList();
+                if (!missing.isEmpty()) {
+                    throw new IllegalArgumentException("CSV header is missing required columns: " + String.join(", ", missing));
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected RawRow parse(String line) {
+            List<String> values = splitCsv(line);
+            if (values.size() > header.size()) {
+                return new RawRow(lineNumber, null, "Row has more columns than the header");
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new RawRow(lineNumber, fields, null);
+        }
+
+        private static List<String> splitCsv(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+    }
+
+    private final class NdjsonRows extends LineRows {
+
+        NdjsonRows(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected RawRow parse(String line) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException ex) {
+                return new RawRow(lineNumber, null, "Invalid JSON: " + ex.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new RawRow(lineNumber, null, "Each line must be a JSON object");
+            }
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(entry -> fields.put(
+                    normalizeField(entry.getKey()),
+                    entry.getValue().isNull() ? null : entry.getValue().asText()));
+            return new RawRow(lineNumber, fields, null);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.service.search.ProductSearchIndex;
+import com.avaks.inventory.service.stream.LiveEvent;
+import com.avaks.inventory.service.stream.LiveEventBroker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves product search from per-tenant in-memory indexes. An index is built from one
+ * projection query on the tenant's first search and kept current by product writes after
+ * they commit; writes on other nodes arrive through the live event broker. Idle tenants are
+ * dropped after the TTL, the least recently used ones once more than the configured number
+ * are loaded, and every index is rebuilt once it is older than the TTL so changes made outside
+ * ProductService are eventually picked up. Tenants whose index would exceed the per-tenant
+ * document or byte bound are searched with SQL LIKE instead until their next rebuild.
+ */
+@Service
+public class ProductSearchService {
+
+    /** Broker event type for index changes; routed here rather than to live streams. */
+    public static final String INDEX_EVENT = "search-index";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductSearchService.class);
+
+    // The database fallback fetches a few more rows than asked for so ranking has candidates.
+    private static final int FALLBACK_CANDIDATES_PER_HIT = 4;
+
+    private final ProductRepository productRepository;
+    private final LiveEventBroker liveEventBroker;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Tenant> tenants = new ConcurrentHashMap<>();
+    private final Timer searchTimer;
+    private final Timer buildTimer;
+    private final Counter fallbackSearches;
+
+    @Value("${app.search.max-tenants:500}")
+    private int maxTenants;
+
+    @Value("${app.search.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.search.max-documents-per-tenant:20000}")
+    private long maxDocumentsPerTenant;
+
+    @Value("${app.search.max-bytes-per-tenant:50331648}")
+    private long maxBytesPerTenant;
+
+    public ProductSearchService(ProductRepository productRepository, LiveEventBroker liveEventBroker,
+                                MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.liveEventBroker = liveEventBroker;
+        this.searchTimer = Timer.builder("products.search")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.buildTimer = Timer.builder("products.search.index.build")
+                .register(meterRegistry);
+        this.fallbackSearches = Counter.builder("products.search.fallback")
+                .register(meterRegistry);
+        Gauge.builder("products.search.index.tenants", tenants, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("products.search.index.bytes", tenants, map -> map.values().stream()
+                        .map(tenant -> tenant.index)
+                        .filter(index -> index != null)
+                        .mapToLong(ProductSearchIndex::estimatedBytes)
+                        .sum())
+                .register(meterRegistry);
+    }
+
+    public List<ProductSearchIndex.Hit> search(Long userId, String query, int limit) {
+        long startedAt = System.nanoTime();
+        try {
+            ProductSearchIndex index = indexFor(userId);
+            return index != null ? index.search(query, limit) : searchDatabase(userId, query, limit);
+        } finally {
+            searchTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void indexAfterCommit(Long userId, Product product) {
+        long productId = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        AfterCommit.run(() -> {
+            put(userId, productId, name, description);
+            Map<String, Object> data = new HashMap<>();
+            data.put("op", "put");
+            data.put("id", productId);
+            data.put("name", name);
+            data.put("description", description);
+            broadcast(userId, data);
+        });
+    }
+
+    public void removeAfterCommit(Long userId, Long productId) {
+        AfterCommit.run(() -> {
+            remove(userId, productId);
+            broadcast(userId, new HashMap<>(Map.of("op", "remove", "id", productId)));
+        });
+    }
+
+    /** Drops the tenant's index so the next search rebuilds it, e.g. after a bulk change. */
+    public void invalidateAfterCommit(Long userId) {
+        AfterCommit.run(() -> {
+            tenants.remove(userId);
+            broadcast(userId, new HashMap<>(Map.of("op", "invalidate")));
+        });
+    }
+
+    /** Applies an index change published by another node; this node's own changes are skipped. */
+    public void onIndexEvent(LiveEvent event) {
+        Map<String, Object> data = event.data();
+        if (nodeId.equals(data.get("origin"))) {
+            return;
+        }
+        switch (String.valueOf(data.get("op"))) {
+            case "put" -> put(event.userId(), ((Number) data.get("id")).longValue(),
+                    (String) data.get("name"), (String) data.get("description"));
+            case "remove" -> remove(event.userId(), ((Number) data.get("id")).longValue());
+            default -> tenants.remove(event.userId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.eviction-interval-ms:60000}")
+    public void evictIdleTenants() {
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        tenants.values().removeIf(tenant -> now - tenant.lastAccessMs > ttlMs);
+
+        int excess = tenants.size() - maxTenants;
+        if (excess > 0) {
+            tenants.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccessMs))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(tenants::remove);
+        }
+    }
+
+    private void put(Long userId, long productId, String name, String description) {
+        Tenant tenant = tenants.get(userId);
+        if (tenant != null) {
+            tenant.modifications.incrementAndGet();
+            ProductSearchIndex index = tenant.index;
+            if (index != null) {
+                index.put(productId, name, description);
+                if (exceedsBounds(index)) {
+                    tenant.oversized = true;
+                    tenant.index = null;
+                }
+            }
+        }
+    }
+
+    private void remove(Long userId, long productId) {
+        Tenant tenant = tenants.get(userId);
+        if (tenant != null) {
+            tenant.modifications.incrementAndGet();
+            ProductSearchIndex index = tenant.index;
+            if (index != null) {
+                index.remove(productId);
+            }
+        }
+    }
+
+    // Returns null when the tenant is searched in the database instead.
+    private ProductSearchIndex indexFor(Long userId) {
+        Tenant tenant = tenants.computeIfAbsent(userId, ignored -> new Tenant());
+        long now = System.currentTimeMillis();
+        tenant.lastAccessMs = now;
+
+        long ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        if (now - tenant.builtAtMs < ttlMs && (tenant.index != null || tenant.oversized)) {
+            return tenant.index;
+        }
+
+        synchronized (tenant) {
+            if (now - tenant.builtAtMs < ttlMs && (tenant.index != null || tenant.oversized)) {
+                return tenant.index;
+            }
+            // A write committing while we load may be missing from the rows we read, so the
+            // result is only kept if no write was applied during the build.
+            long modificationsBefore = tenant.modifications.get();
+            ProductSearchIndex built = buildTimer.record(() -> build(userId));
+            if (tenant.modifications.get() == modificationsBefore) {
+                tenant.index = built;
+                tenant.oversized = built == null;
+                tenant.builtAtMs = System.currentTimeMillis();
+            }
+            return built;
+        }
+    }
+
+    private ProductSearchIndex build(Long userId) {
+        if (productRepository.countByUserId(userId) > maxDocumentsPerTenant) {
+            return null;
+        }
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (Object[] row : productRepository.findSearchFieldsByUserId(userId)) {
+            index.put((Long) row[0], (String) row[1], (String) row[2]);
+            if (index.estimatedBytes() > maxBytesPerTenant) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    private boolean exceedsBounds(ProductSearchIndex index) {
+        return index.size() > maxDocumentsPerTenant || index.estimatedBytes() > maxBytesPerTenant;
+    }
+
+    // Ranks the LIKE matches with a throwaway index so results look the same as indexed ones,
+    // less the typo tolerance.
+    private List<ProductSearchIndex.Hit> searchDatabase(Long userId, String query, int limit) {
+        String needle = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        fallbackSearches.increment();
+        String pattern = "%" + needle.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        ProductSearchIndex candidates = new ProductSearchIndex();
+        for (Object[] row : productRepository.findSearchFieldsMatching(
+                userId, pattern, PageRequest.ofSize(limit * FALLBACK_CANDIDATES_PER_HIT))) {
+            candidates.put((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        return candidates.search(query, limit).stream()
+                .filter(hit -> hit.matchType() != ProductSearchIndex.MatchType.FUZZY)
+                .toList();
+    }
+
+    private void broadcast(Long userId, Map<String, Object> data) {
+        data.put("origin", nodeId);
+        try {
+            liveEventBroker.publish(new LiveEvent(userId, INDEX_EVENT, data));
+        } catch (RuntimeException ex) {
+            // Other nodes still rebuild once their index is older than the TTL.
+            LOGGER.warn("Search index change for user {} was not published: {}", userId, ex.getMessage());
+        }
+    }
+
+    private static final class Tenant {
+        private final AtomicLong modifications = new AtomicLong();
+        private volatile ProductSearchIndex index;
+        private volatile boolean oversized;
+        private volatile long builtAtMs;
+        private volatile long lastAccessMs;
+    }
+}
@@ -1,17 +1,22 @@
 package com.avaks.inventory.service;
 
 import com.avaks.inventory.config.cache.CacheNames;
+import com.avaks.inventory.dto.KeysetCursor;
+import com.avaks.inventory.dto.PageResponse;
 import com.avaks.inventory.dto.ProductDTO;
+import com.avaks.inventory.dto.ProductSaleDTO;
+import com.avaks.inventory.dto.ProductViewDTO;
 import com.avaks.inventory.exception.ResourceNotFoundException;
 import com.avaks.inventory.model.Product;
 import com.avaks.inventory.model.Supplier;
-import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.ProductRepository;
 import com.avaks.inventory.repository.SupplierRepository;
+import com.avaks.inventory.repository.SyncRepository;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -30,14 +35,29 @@ public class ProductService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private StockStripeService stockStripeService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private LiveEventService liveEventService;
+
+    // A new id cannot have a cached productByUserAndId entry, so only the list caches are evicted.
     @Transactional
         @Caching(evict = {
             @CacheEvict(value = CacheNames.PRODUCTS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
-            @CacheEvict(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
-            @CacheEvict(value = CacheNames.PRODUCT_BY_USER_AND_ID, allEntries = true)
+            @CacheEvict(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
         })
-    public Product createProduct(ProductDTO productDTO) {
-    User currentUser = userService.getCurrentAuthenticatedUser();
+    public ProductViewDTO createProduct(ProductDTO productDTO) {
+    Long userId = userService.getCurrentUserId();
 
     Product product = new Product();
     product.setName(productDTO.getName());
@@ -45,21 +65,29 @@ public class ProductService {
     product.setPrice(productDTO.getPrice());
     product.setSellingPrice(productDTO.getSellingPrice());
     product.setStock(productDTO.getStock());
-    product.setUser(currentUser);
+    product.setReorderLevel(productDTO.getReorderLevel() == null ? 0 : productDTO.getReorderLevel());
+    product.setUser(userService.getUserReference(userId));
+    product.setChangeVersion(syncService.pendingVersion(userId));
     if (productDTO.getSupplierId() != null) {
-        Supplier supplier = supplierRepository.findByIdAndUserId(productDTO.getSupplierId(), currentUser.getId())
+        Supplier supplier = supplierRepository.findByIdAndUserId(productDTO.getSupplierId(), userId)
             .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id " + productDTO.getSupplierId()));
         product.setSupplier(supplier);
     } else {
         product.setSupplier(null);
     }
-    return productRepository.save(product);
+    Product saved = productRepository.save(product);
+    productSearchService.indexAfterCommit(userId, saved);
+    collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+    liveEventService.productSavedAfterCommit(userId, saved);
+    return ProductViewDTO.of(saved);
     }
 
     @Cacheable(value = CacheNames.PRODUCT_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
-    public Optional<Product> getProductById(Long id) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return productRepository.findByIdAndUserId(id, currentUser.getId());
+    public Optional<ProductViewDTO> getProductById(Long id) {
+        Long userId = userService.getCurrentUserId();
+        Optional<ProductViewDTO> product = productRepository.findViewByIdAndUserId(id, userId);
+        product.ifPresent(found -> applyStripeTotals(List.of(found)));
+        return product;
     }
 
     @Transactional
@@ -68,23 +96,38 @@ public class ProductService {
             @CacheEvict(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
             @CacheEvict(value = CacheNames.PRODUCT_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
     })
-    public Product updateProduct(Long id, ProductDTO productDetails) {
-    User currentUser = userService.getCurrentAuthenticatedUser();
-    Product product = productRepository.findByIdAndUserId(id, currentUser.getId())
+    public ProductViewDTO updateProduct(Long id, ProductDTO productDetails) {
+    Long userId = userService.getCurrentUserId();
+    // Lock the row before reading it, so hot mode cannot be switched on or off between deciding
+    // where the new stock goes and committing it.
+    int hotStripes = stockStripeService.lockHotStripes(id, userId);
+    Product product = productRepository.findByIdAndUserId(id, userId)
         .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
+    product.setHotStripes(hotStripes);
     product.setName(productDetails.getName());
     product.setDescription(productDetails.getDescription());
     product.setPrice(productDetails.getPrice());
     product.setSellingPrice(productDetails.getSellingPrice());
+    if (hotStripes > 0) {
+        stockStripeService.resetStock(product.getId(), userId, hotStripes, productDetails.getStock());
+    }
     product.setStock(productDetails.getStock());
+    if (productDetails.getReorderLevel() != null) {
+        product.setReorderLevel(productDetails.getReorderLevel());
+    }
+    product.setChangeVersion(syncService.pendingVersion(userId));
     if (productDetails.getSupplierId() != null) {
-        Supplier supplier = supplierRepository.findByIdAndUserId(productDetails.getSupplierId(), currentUser.getId())
+        Supplier supplier = supplierRepository.findByIdAndUserId(productDetails.getSupplierId(), userId)
             .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id " + productDetails.getSupplierId()));
         product.setSupplier(supplier);
     } else {
         product.setSupplier(null);
     }
-    return productRepository.save(product);
+    Product saved = productRepository.save(product);
+    productSearchService.indexAfterCommit(userId, saved);
+    collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+    liveEventService.productSavedAfterCommit(userId, saved);
+    return ProductViewDTO.of(saved);
     }
 
     @Transactional
@@ -94,34 +137,91 @@ public class ProductService {
             @CacheEvict(value = CacheNames.PRODUCT_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
     })
     public void deleteProduct(Long id) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        Product product = productRepository.findByIdAndUserId(id, currentUser.getId())
+        Long userId = userService.getCurrentUserId();
+        Product product = productRepository.findByIdAndUserId(id, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
         productRepository.delete(product);
+        syncService.recordDeletion(userId, SyncRepository.EntityType.PRODUCT, id);
+        productSearchService.removeAfterCommit(userId, id);
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+        liveEventService.productDeletedAfterCommit(userId, id);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(value = CacheNames.PRODUCTS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
+            @CacheEvict(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
+            @CacheEvict(value = CacheNames.PRODUCT_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
+    })
+    public void setHotMode(Long id, int stripes) {
+        Long userId = userService.getCurrentUserId();
+        if (stripes > 0) {
+            stockStripeService.enable(id, userId, stripes);
+        } else {
+            stockStripeService.disable(id, userId);
+        }
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
     }
 
     @Cacheable(value = CacheNames.PRODUCTS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
-    public List<Product> getAllProducts() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return productRepository.findAllByUserId(currentUser.getId());
+    public List<ProductViewDTO> getAllProducts() {
+        Long userId = userService.getCurrentUserId();
+        List<ProductViewDTO> products = productRepository.findViewsByUserId(userId);
+        applyStripeTotals(products);
+        return products;
     }
 
     @Cacheable(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
-    public List<com.avaks.inventory.dto.ProductSaleDTO> getAllProductsForSale() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        List<Product> products = productRepository.findAllByUserId(currentUser.getId());
-        List<com.avaks.inventory.dto.ProductSaleDTO> saleDTOs = new java.util.ArrayList<>();
-        for (Product product : products) {
-            com.avaks.inventory.dto.ProductSaleDTO dto = new com.avaks.inventory.dto.ProductSaleDTO();
-            dto.setId(product.getId());
-            dto.setName(product.getName());
-            dto.setSellingPrice(product.getSellingPrice());
-            dto.setPrice(product.getPrice());
-            dto.setQuantity(product.getStock());
-            saleDTOs.add(dto);
+    public List<ProductSaleDTO> getAllProductsForSale() {
+        Long userId = userService.getCurrentUserId();
+        List<ProductSaleDTO> products = productRepository.findSaleViewsByUserId(userId);
+        stockStripeService.applyStripeTotals(products, ProductSaleDTO::getId, ProductSaleDTO::getHotStripes, ProductSaleDTO::setQuantity);
+        return products;
+    }
+
+    /**
+     * One keyset page of the caller's products sorted by "id" or "name". Pages are not cached;
+     * each is a single bounded index seek.
+     */
+    public PageResponse<ProductViewDTO> getProductsPage(int limit, String cursor, String sort) {
+        List<ProductViewDTO> products = fetchPage(limit, cursor, sort);
+        return PageResponse.of(products, limit, product -> cursorOf(product, sort), product -> product);
+    }
+
+    public PageResponse<ProductSaleDTO> getProductsForSalePage(int limit, String cursor, String sort) {
+        List<ProductViewDTO> products = fetchPage(limit, cursor, sort);
+        return PageResponse.of(products, limit, product -> cursorOf(product, sort), this::toSaleDTO);
+    }
+
+    private List<ProductViewDTO> fetchPage(int limit, String cursor, String sort) {
+        PageResponse.checkLimit(limit);
+        Long userId = userService.getCurrentUserId();
+        PageRequest page = PageRequest.ofSize(limit + 1);
+
+        List<ProductViewDTO> products;
+        if ("name".equals(sort)) {
+            KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor, sort);
+            products = productRepository.findViewPageByUserIdOrderByName(
+                    userId, after == null ? "" : after.key(), after == null ? 0L : after.id(), page);
+        } else if ("id".equals(sort)) {
+            KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor, sort);
+            products = productRepository.findViewPageByUserIdOrderById(userId, after == null ? 0L : after.id(), page);
+        } else {
+            throw new IllegalArgumentException("sort must be 'id' or 'name'");
         }
-        return saleDTOs;
+        applyStripeTotals(products);
+        return products;
+    }
+
+    private void applyStripeTotals(List<ProductViewDTO> products) {
+        stockStripeService.applyStripeTotals(products, ProductViewDTO::getId, ProductViewDTO::getHotStripes, ProductViewDTO::setStock);
     }
-}
 
+    private KeysetCursor cursorOf(ProductViewDTO product, String sort) {
+        return new KeysetCursor(sort, product.getId(), "name".equals(sort) ? product.getName() : null);
+    }
 
+    private ProductSaleDTO toSaleDTO(ProductViewDTO product) {
+        return new ProductSaleDTO(product.getId(), product.getName(), product.getSellingPrice(), product.getPrice(),
+                product.getStock(), product.getHotStripes());
+    }
+}
@@ -0,0 +1,82 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.ProfitRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps profit history as daily snapshots. Sales only update profit_summary; right after
+ * midnight every user whose profit changed the day before gets one closing-total row read from
+ * it, so sales committing in the moments after midnight may land in the previous day's row.
+ * Later, days that still hold several rows (a reset marker, a second node's snapshot, or the
+ * per-sale rows written by earlier versions) are cut down to their last row, one user and one
+ * day at a time so every statement stays on the (user_id, timestamp) index.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProfitHistoryCompactor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfitHistoryCompactor.class);
+
+    private final ProfitRecordRepository profitRecordRepository;
+
+    @Value("${app.profit.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.profit.compaction.chunk-size:1000}")
+    private int chunkSize;
+
+    @Scheduled(cron = "${app.profit.snapshot.cron:0 0 0 * * *}")
+    public void snapshot() {
+        try {
+            LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
+            int written = profitRecordRepository.insertSnapshots(startOfToday.minusDays(1), startOfToday.minusSeconds(1));
+            if (written > 0) {
+                LOGGER.info("Profit history snapshot written for {} users", written);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Profit history snapshot failed: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.profit.compaction.cron:0 15 3 * * *}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
+            long total = 0;
+            for (Long userId : profitRecordRepository.findUserIds()) {
+                for (Object[] day : profitRecordRepository.findDaysWithSupersededRows(userId, startOfToday)) {
+                    LocalDateTime from = toLocalDate(day[0]).atStartOfDay();
+                    long keepId = ((Number) day[1]).longValue();
+                    int deleted;
+                    do {
+                        deleted = profitRecordRepository.deleteSupersededChunk(userId, from, from.plusDays(1), keepId, chunkSize);
+                        total += deleted;
+                    } while (deleted >= chunkSize);
+                }
+            }
+
+            if (total > 0) {
+                LOGGER.info("Profit history compaction removed {} superseded rows", total);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Profit history compaction failed: {}", ex.getMessage());
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+}
@@ -0,0 +1,188 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.SaleExportRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.avaks.inventory.exception.ExportLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a tenant's sale history straight from the JDBC cursor to the response stream.
+ * Nothing is collected in between, so an export holds one row and the write buffers at a time.
+ * It does hold a pooled connection for as long as the client takes to read, so only a few
+ * exports run at once; see {@link #reserve()}.
+ */
+@Service
+public class SaleExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "sale_id,timestamp,product_name,quantity_sold,total_bill_amount,profit_earned\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SaleExportRepository saleExportRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore slots;
+    private final Counter rejected;
+
+    public SaleExportService(
+            SaleExportRepository saleExportRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.sales.export.max-concurrent:4}") int maxConcurrent) {
+        this.saleExportRepository = saleExportRepository;
+        this.objectMapper = objectMapper;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent));
+        this.rejected = Counter.builder("sales.export.rejected").register(meterRegistry);
+        Gauge.builder("sales.export.active", slots, semaphore -> Math.max(1, maxConcurrent) - semaphore.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one of the node's export slots, or throws {@link ExportLimitException} if all are
+     * in use. Called on the request thread so the client gets a 429 rather than a stream that
+     * never starts; the returned slot must be closed once the export ends.
+     */
+    public ExportSlot reserve() {
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new ExportLimitException("Too many exports are running. Please retry shortly.");
+        }
+        return new ExportSlot(slots);
+    }
+
+    public void export(Long userId, Format format, LocalDateTime from, LocalDateTime to,
+                       boolean gzip, OutputStream target) throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(target, BUFFER_SIZE) : target;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        try {
+            if (format == Format.CSV) {
+                writeCsv(userId, from, to, writer);
+            } else {
+                writeNdjson(userId, from, to, writer);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        writer.flush();
+        if (out instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        target.flush();
+    }
+
+    private void writeCsv(Long userId, LocalDateTime from, LocalDateTime to, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        saleExportRepository.streamSales(userId, from, to, rs -> {
+            try {
+                writer.write(Long.toString(rs.getLong("sale_id")));
+                writer.write(',');
+                writer.write(formatTimestamp(rs.getTimestamp("timestamp")));
+                writer.write(',');
+                writer.write(csvField(rs.getString("product_name")));
+                writer.write(',');
+                writer.write(Integer.toString(rs.getInt("quantity_sold")));
+                writer.write(',');
+                writer.write(Double.toString(rs.getDouble("total_bill_amount")));
+                writer.write(',');
+                writer.write(Double.toString(rs.getDouble("profit_earned")));
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private void writeNdjson(Long userId, LocalDateTime from, LocalDateTime to, Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        saleExportRepository.streamSales(userId, from, to, rs -> {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("saleId", rs.getLong("sale_id"));
+                generator.writeStringField("timestamp", formatTimestamp(rs.getTimestamp("timestamp")));
+                generator.writeStringField("productName", rs.getString("product_name"));
+                generator.writeNumberField("quantitySold", rs.getInt("quantity_sold"));
+                generator.writeNumberField("totalBillAmount", rs.getDouble("total_bill_amount"));
+                generator.writeNumberField("profitEarned", rs.getDouble("profit_earned"));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        generator.flush();
+    }
+
+    private String formatTimestamp(Timestamp timestamp) {
+        return timestamp == null ? "" : timestamp.toLocalDateTime().toString();
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Keep spreadsheet apps from evaluating product names as formulas.
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    public static final class ExportSlot implements AutoCloseable {
+        private final Semaphore slots;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ExportSlot(Semaphore slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.CacheKeyUtil;
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.dto.SaleItemRequest;
+import com.avaks.inventory.exception.SaleFailedException;
+import com.avaks.inventory.exception.SalePendingException;
+import com.avaks.inventory.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional group-commit path for /api/sales/sell (app.sales.ingestion.mode=group-commit).
+ * Sales are validated, queued on a bounded per-tenant lane and applied by a flusher in one
+ * transaction per batch. Callers are released only after the batch commit, so one commit
+ * fsync is shared by up to batch-size sales instead of paid by each. When a sale fails, the
+ * whole group is rolled back, the failing sale is retried alone in its own transaction and
+ * the rest are committed together again, so a failing basket never leaves partial writes or
+ * stale persistence-context state behind for its neighbours.
+ */
+@Service
+public class SaleIngestionService {
+
+    private final SaleService saleService;
+    private final TenantCacheEvictor tenantCacheEvictor;
+    private final CollectionVersionService collectionVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate isolatedTransaction;
+    private final ScheduledExecutorService flusher;
+    private final Map<Long, TenantLane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, PendingSale> timedOut = new ConcurrentHashMap<>();
+
+    private final Timer commitTimer;
+    private final Timer waitTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter rejected;
+    private final Counter isolated;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.sales.ingestion.mode:direct}")
+    private String mode;
+
+    @Value("${app.sales.ingestion.batch-size:64}")
+    private int batchSize;
+
+    @Value("${app.sales.ingestion.max-delay-ms:5}")
+    private long maxDelayMs;
+
+    @Value("${app.sales.ingestion.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${app.sales.ingestion.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${app.sales.ingestion.pending-retention-minutes:15}")
+    private long pendingRetentionMinutes;
+
+    @Value("${app.sales.ingestion.lane-idle-minutes:10}")
+    private long laneIdleMinutes;
+
+    public SaleIngestionService(
+            SaleService saleService,
+            TenantCacheEvictor tenantCacheEvictor,
+            CollectionVersionService collectionVersionService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.sales.ingestion.flush-threads:2}") int flushThreads) {
+        this.saleService = saleService;
+        this.tenantCacheEvictor = tenantCacheEvictor;
+        this.collectionVersionService = collectionVersionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.isolatedTransaction = new TransactionTemplate(transactionManager);
+        this.isolatedTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.flusher = Executors.newScheduledThreadPool(Math.max(1, flushThreads), new DaemonThreadFactory("sale-ingestion"));
+
+        this.commitTimer = Timer.builder("sales.ingestion.commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("sales.ingestion.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("sales.ingestion.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("sales.ingestion.rejected").register(meterRegistry);
+        this.isolated = Counter.builder("sales.ingestion.isolated").register(meterRegistry);
+        Gauge.builder("sales.ingestion.queued", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return "group-commit".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Queues the sale and waits for its group commit. If the commit takes longer than the
+     * timeout, throws {@link SalePendingException}; the sale may still commit and its outcome
+     * stays available from {@link #findPending} for a while.
+     */
+    public Map<String, Object> recordSale(Long userId, List<SaleItemRequest> productsToSell) {
+        validate(productsToSell);
+
+        PendingSale pending = new PendingSale(userId, CacheKeyUtil.currentUserEmail(), productsToSell, System.nanoTime());
+        // Offering inside compute keeps evictIdleLanes from dropping the lane between lookup and offer.
+        boolean[] offered = {false};
+        TenantLane lane = lanes.compute(userId, (id, existing) -> {
+            TenantLane current = existing != null ? existing : new TenantLane(id, queueCapacity);
+            current.lastUsedMs = System.currentTimeMillis();
+            offered[0] = current.queue.offer(pending);
+            return current;
+        });
+        if (!offered[0]) {
+            rejected.increment();
+            throw new ServiceBusyException("Sale ingestion queue is full. Please retry shortly.");
+        }
+        queued.incrementAndGet();
+        scheduleFlush(lane, lane.queue.size() >= batchSize ? 0L : maxDelayMs);
+
+        try {
+            return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Sale ingestion failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            String requestId = UUID.randomUUID().toString();
+            timedOut.put(requestId, pending);
+            throw new SalePendingException(requestId);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Sale request was interrupted. Please retry.");
+        }
+    }
+
+    public Optional<PendingOutcome> findPending(String requestId, Long userId) {
+        PendingSale pending = timedOut.get(requestId);
+        if (pending == null || !pending.userId.equals(userId)) {
+            return Optional.empty();
+        }
+        if (!pending.result.isDone()) {
+            return Optional.of(new PendingOutcome(requestId, null, null));
+        }
+        return Optional.of(new PendingOutcome(requestId, pending.outcome, pending.failure));
+    }
+
+    @Scheduled(fixedDelayString = "${app.sales.ingestion.pending-cleanup-interval-ms:60000}")
+    public void evictFinishedPending() {
+        Instant cutoff = Instant.now().minus(pendingRetentionMinutes, ChronoUnit.MINUTES);
+        timedOut.values().removeIf(pending -> pending.finishedAt != null && pending.finishedAt.isBefore(cutoff));
+    }
+
+    /** Drops the lanes of tenants that have not sold for a while, so the map does not grow with every tenant. */
+    @Scheduled(fixedDelayString = "${app.sales.ingestion.pending-cleanup-interval-ms:60000}")
+    public void evictIdleLanes() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(laneIdleMinutes);
+        for (Long userId : lanes.keySet()) {
+            lanes.computeIfPresent(userId, (id, lane) ->
+                    lane.lastUsedMs < cutoff && lane.queue.isEmpty() && !lane.flushScheduled.get() ? null : lane);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+    }
+
+    private void validate(List<SaleItemRequest> productsToSell) {
+        List<SaleFailedException.FailedItem> invalid = new ArrayList<>();
+        for (SaleItemRequest item : productsToSell) {
+            if (item.getId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                invalid.add(new SaleFailedException.FailedItem(item.getId(), "Missing product id or invalid quantity"));
+            }
+        }
+        if (!invalid.isEmpty()) {
+            throw new SaleFailedException("Sale could not be completed", invalid);
+        }
+    }
+
+    private void scheduleFlush(TenantLane lane, long delayMs) {
+        if (lane.flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(() -> flush(lane), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(TenantLane lane) {
+        try {
+            List<PendingSale> batch = new ArrayList<>(batchSize);
+            while (lane.queue.drainTo(batch, batchSize) > 0) {
+                queued.addAndGet(-batch.size());
+                commitBatch(lane.userId, batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        } finally {
+            lane.flushScheduled.set(false);
+            if (!lane.queue.isEmpty()) {
+                scheduleFlush(lane, 0L);
+            }
+        }
+    }
+
+    private void commitBatch(Long userId, List<PendingSale> batch) {
+        batchSizeSummary.record(batch.size());
+
+        List<PendingSale> remaining = new ArrayList<>(batch);
+        while (!remaining.isEmpty()) {
+            GroupResult group = commitTogether(userId, remaining);
+            if (group.failedIndex < 0) {
+                if (group.failure != null) {
+                    remaining.forEach(pending -> finish(pending, null, group.failure));
+                } else {
+                    remaining.forEach(pending -> finish(pending, pending.outcome, null));
+                }
+                break;
+            }
+
+            // The group was rolled back as a whole. A group of one already ran in its own
+            // transaction; otherwise the failing sale is retried alone, then the rest together.
+            PendingSale failing = remaining.remove(group.failedIndex);
+            if (remaining.isEmpty()) {
+                finish(failing, null, group.failure);
+            } else {
+                isolated.increment();
+                commitAlone(userId, failing);
+            }
+        }
+
+        // The flusher has no security context, so the sales' own after-commit hooks bumped the
+        // collection version without evicting the tenant's lists. Evict now, then bump again so
+        // no new tag can point at a stale cached list.
+        for (PendingSale pending : batch) {
+            if (pending.failure == null) {
+                tenantCacheEvictor.evictProducts(pending.email, pending.items.stream().map(SaleItemRequest::getId).toList());
+                tenantCacheEvictor.evictProfit(pending.email);
+            }
+        }
+        if (batch.stream().anyMatch(pending -> pending.failure == null)) {
+            collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+        }
+
+        long finishedAt = System.nanoTime();
+        for (PendingSale pending : batch) {
+            waitTimer.record(finishedAt - pending.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            if (pending.failure != null) {
+                pending.result.completeExceptionally(pending.failure);
+            } else {
+                pending.result.complete(pending.outcome);
+            }
+        }
+    }
+
+    private GroupResult commitTogether(Long userId, List<PendingSale> group) {
+        long startedAt = System.nanoTime();
+        int[] current = {-1};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < group.size(); i++) {
+                    current[0] = i;
+                    PendingSale pending = group.get(i);
+                    pending.outcome = saleService.recordSaleForUser(userId, pending.items);
+                    // Keeps one sale's read-only product snapshots out of the next sale's reads.
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+                current[0] = -1;
+            });
+            return new GroupResult(-1, null);
+        } catch (RuntimeException ex) {
+            return new GroupResult(current[0], ex);
+        } finally {
+            commitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void commitAlone(Long userId, PendingSale pending) {
+        long startedAt = System.nanoTime();
+        try {
+            Map<String, Object> outcome = isolatedTransaction.execute(status -> saleService.recordSaleForUser(userId, pending.items));
+            finish(pending, outcome, null);
+        } catch (RuntimeException ex) {
+            finish(pending, null, ex);
+        } finally {
+            commitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void finish(PendingSale pending, Map<String, Object> outcome, RuntimeException failure) {
+        pending.outcome = failure == null ? outcome : null;
+        pending.failure = failure;
+        pending.finishedAt = Instant.now();
+    }
+
+    /** State of a timed-out sale: both fields null while it is still queued or committing. */
+    public record PendingOutcome(String requestId, Map<String, Object> result, RuntimeException failure) {
+
+        public boolean isDone() {
+            return result != null || failure != null;
+        }
+    }
+
+    private record GroupResult(int failedIndex, RuntimeException failure) {
+    }
+
+    private static final class TenantLane {
+        private final Long userId;
+        private final BlockingQueue<PendingSale> queue;
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private volatile long lastUsedMs;
+
+        private TenantLane(Long userId, int capacity) {
+            this.userId = userId;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private static final class PendingSale {
+        private final Long userId;
+        private final String email;
+        private final List<SaleItemRequest> items;
+        private final long enqueuedAtNanos;
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        private volatile Map<String, Object> outcome;
+        private volatile RuntimeException failure;
+        private volatile Instant finishedAt;
+
+        private PendingSale(Long userId, String email, List<SaleItemRequest> items, long enqueuedAtNanos) {
+            this.userId = userId;
+            this.email = email;
+            this.items = items;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+}
@@ -1,144 +1,343 @@
 package com.avaks.inventory.service;
 
 import com.avaks.inventory.config.cache.CacheNames;
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.dto.KeysetCursor;
+import com.avaks.inventory.dto.PageResponse;
 import com.avaks.inventory.dto.SaleItemRequest;
+import com.avaks.inventory.dto.SalesStatsDTO;
+import com.avaks.inventory.exception.SaleFailedException;
+import com.avaks.inventory.exception.ServiceBusyException;
 import com.avaks.inventory.model.Product;
 import com.avaks.inventory.model.ProfitRecord;
+import com.avaks.inventory.model.ProfitSummary;
 import com.avaks.inventory.model.Sale;
-import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.ProductRepository;
 import com.avaks.inventory.repository.ProfitRecordRepository;
+import com.avaks.inventory.repository.ProfitSummaryRepository;
+import com.avaks.inventory.repository.SaleBatchRepository;
+import com.avaks.inventory.repository.SalesRollupRepository;
 import com.avaks.inventory.repository.SaleRepository;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class SaleService {
 
+    private static final long MAX_STATS_BUCKETS = 5000;
+
     @Autowired
     private SaleRepository saleRepository;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private SaleBatchRepository saleBatchRepository;
+
+    @Autowired
+    private StockStripeService stockStripeService;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
     @Autowired
     private ProfitRecordRepository profitRecordRepository;
 
+    @Autowired
+    private ProfitSummaryRepository profitSummaryRepository;
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TenantPurgeService tenantPurgeService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TenantCacheEvictor tenantCacheEvictor;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Autowired
+    private LowStockService lowStockService;
+
+    @Autowired
+    private LiveEventService liveEventService;
+
     @Transactional
     @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCTS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
-            @CacheEvict(value = CacheNames.PRODUCTS_SALE_INFO_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
-            @CacheEvict(value = CacheNames.PRODUCT_BY_USER_AND_ID, allEntries = true),
             @CacheEvict(value = CacheNames.TOTAL_PROFIT_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
             @CacheEvict(value = CacheNames.LATEST_PROFIT_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
     })
     public Map<String, Object> recordSale(List<SaleItemRequest> productsToSell) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        double batchProfitEarned = 0.0;
-        List<Product> updatedProducts = new ArrayList<>();
+        Map<String, Object> result = recordSaleForUser(userService.getCurrentUserId(), productsToSell);
+        tenantCacheEvictor.evictProductsForCurrentUser(productsToSell.stream().map(SaleItemRequest::getId).toList());
+        return result;
+    }
+
+    /**
+     * Applies a sale with a fixed number of statements regardless of basket size: one IN
+     * query for the products, one batched stock decrement and one batched sale insert. Any
+     * failing item aborts the whole sale, and every failing item is reported. Runs in the
+     * caller's transaction; {@link SaleIngestionService} calls it inside group commits.
+     */
+    Map<String, Object> recordSaleForUser(Long userId, List<SaleItemRequest> productsToSell) {
+        List<SaleFailedException.FailedItem> failedItems = new ArrayList<>();
+        Map<Long, Integer> quantitiesByProductId = new LinkedHashMap<>();
 
         for (SaleItemRequest item : productsToSell) {
             Long productId = item.getId();
             Integer quantity = item.getQuantity();
-
             if (productId == null || quantity == null || quantity <= 0) {
-                throw new RuntimeException("Invalid sale request: missing product id or invalid quantity");
+                failedItems.add(new SaleFailedException.FailedItem(productId, "Missing product id or invalid quantity"));
+                continue;
+            }
+            quantitiesByProductId.merge(productId, quantity, Integer::sum);
+        }
+
+        Map<Long, Product> productsById = new HashMap<>();
+        if (!quantitiesByProductId.isEmpty()) {
+            for (Product product : productRepository.findAllForSale(userId, quantitiesByProductId.keySet())) {
+                productsById.put(product.getId(), product);
+            }
+            stockStripeService.applyStripeTotals(productsById.values());
+        }
+
+        for (Map.Entry<Long, Integer> entry : quantitiesByProductId.entrySet()) {
+            Product product = productsById.get(entry.getKey());
+            if (product == null) {
+                failedItems.add(new SaleFailedException.FailedItem(entry.getKey(), "Product not found"));
+            } else if (product.getStock() < entry.getValue()) {
+                failedItems.add(new SaleFailedException.FailedItem(entry.getKey(),
+                        "Insufficient stock for product: " + product.getName()));
             }
+        }
 
-            // 1. Fetch current price details (Pricing usually needs a point-in-time snapshot)
-            Product product = productRepository.findByIdAndUserId(productId, currentUser.getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: id=" + productId));
+        if (!failedItems.isEmpty()) {
+            throw new SaleFailedException("Sale could not be completed", failedItems);
+        }
 
-            // 2. Perform Atomic Stock Decrement
-            int rowsUpdated = productRepository.decrementStockForUser(productId, currentUser.getId(), quantity);
-            if (rowsUpdated == 0) {
-                // This means either the ID changed (unlikely) or stock became insufficient between fetch and update
-                throw new RuntimeException("Insufficient stock or concurrent update for product: " + product.getName());
+        // The snapshot check above is only advisory; the guarded UPDATE is what enforces stock.
+        List<Product> hotProducts = new ArrayList<>();
+        Map<Long, Integer> regularQuantities = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantitiesByProductId.entrySet()) {
+            Product product = productsById.get(entry.getKey());
+            if (product.getHotStripes() > 0) {
+                hotProducts.add(product);
+            } else {
+                regularQuantities.put(entry.getKey(), entry.getValue());
             }
+        }
+        List<Long> contended = new ArrayList<>();
+        if (!hotProducts.isEmpty()) {
+            stockStripeService.decrement(userId, hotProducts, quantitiesByProductId).forEach((productId, outcome) -> {
+                if (outcome == StockStripeService.Decrement.CONTENDED) {
+                    contended.add(productId);
+                } else {
+                    failedItems.add(new SaleFailedException.FailedItem(productId,
+                            "Insufficient stock for product: " + productsById.get(productId).getName()));
+                }
+            });
+        }
+        if (!regularQuantities.isEmpty()) {
+            for (Long productId : saleBatchRepository.decrementStock(userId, regularQuantities, syncService.pendingVersion(userId))) {
+                failedItems.add(new SaleFailedException.FailedItem(productId,
+                        "Insufficient stock or concurrent update for product: " + productsById.get(productId).getName()));
+            }
+        }
+        if (!failedItems.isEmpty()) {
+            throw new SaleFailedException("Sale could not be completed", failedItems);
+        }
+        if (!contended.isEmpty()) {
+            // Stock may well be there; the sale lost a race for it and is worth retrying.
+            throw new ServiceBusyException("Stock for product " + productsById.get(contended.get(0)).getName()
+                    + " is busy with other sales. Please retry.");
+        }
 
-            // 3. Calculate profit based on the snapshot we took
-            double itemSellingPrice = product.getSellingPrice();
-            double itemCostPrice = product.getPrice();
-            double itemProfit = (itemSellingPrice - itemCostPrice) * quantity;
+        LocalDateTime now = LocalDateTime.now();
+        double batchProfitEarned = 0.0;
+        List<Sale> sales = new ArrayList<>(productsToSell.size());
+        for (SaleItemRequest item : productsToSell) {
+            Product product = productsById.get(item.getId());
+            int quantity = item.getQuantity();
+            double itemProfit = (product.getSellingPrice() - product.getPrice()) * quantity;
             batchProfitEarned += itemProfit;
 
-            // 4. Record the specific sale record
             Sale sale = new Sale();
+            sale.setProductId(product.getId());
             sale.setProductName(product.getName());
             sale.setQuantitySold(quantity);
-            sale.setTotalBillAmount(itemSellingPrice * quantity);
+            sale.setTotalBillAmount(product.getSellingPrice() * quantity);
             sale.setProfitEarned(itemProfit);
-            sale.setTimestamp(LocalDateTime.now());
-            sale.setUser(currentUser);
-            saleRepository.save(sale);
+            sale.setTimestamp(now);
+            sales.add(sale);
+        }
+        saleBatchRepository.insertSales(userId, sales);
+        int aggregateStripe = aggregateStripe(hotProducts);
+        List<SalesRollupRepository.Delta> deltas = rollupDeltas(productsToSell, productsById);
+        salesRollupRepository.apply(userId, now, aggregateStripe, deltas);
 
-            // 5. Get the updated product for the response (optional but good for UI)
-            product.setStock(product.getStock() - quantity); // Manually sync for response object
+        List<Product> updatedProducts = new ArrayList<>(quantitiesByProductId.size());
+        Map<Long, Integer> stockDeltas = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantitiesByProductId.entrySet()) {
+            Product product = productsById.get(entry.getKey());
+            product.setStock(product.getStock() - entry.getValue());
             updatedProducts.add(product);
+            stockDeltas.put(entry.getKey(), -entry.getValue());
         }
 
-        // 6. Update global profit record efficiently
-        updateTotalProfit(batchProfitEarned, currentUser);
-        
+        // One upsert per sale; the daily history is snapshotted from these rows by ProfitHistoryCompactor.
+        profitSummaryRepository.addProfit(userId, aggregateStripe, batchProfitEarned, now);
+        leaderboardService.recordAfterCommit(userId, deltas);
+        lowStockService.detectCrossingsAfterCommit(userId, regularQuantities);
+        liveEventService.stockChangedAfterCommit(userId, stockDeltas);
+        liveEventService.profitChangedAfterCommit(userId, batchProfitEarned);
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.PRODUCTS);
+
         Map<String, Object> response = new HashMap<>();
         response.put("profit", batchProfitEarned);
         response.put("updatedProducts", updatedProducts);
         return response;
     }
 
-    private void updateTotalProfit(double additionalProfit, User currentUser) {
-        ProfitRecord latest = profitRecordRepository.findTopByUserIdOrderByTimestampDesc(currentUser.getId());
-        double currentTotal = (latest != null) ? latest.getProfit() : 0.0;
-        
-        ProfitRecord newRecord = new ProfitRecord();
-        newRecord.setProfit(currentTotal + additionalProfit);
-        newRecord.setTimestamp(LocalDateTime.now());
-        newRecord.setUser(currentUser);
-        profitRecordRepository.save(newRecord);
+    /**
+     * Picks the rollup and profit stripe for a sale. Sales of hot products spread over as many
+     * stripes as the hottest product in the sale has, so that they do not all queue on the same
+     * aggregate rows after taking different stock stripes; other sales use stripe 0.
+     */
+    private int aggregateStripe(List<Product> hotProducts) {
+        int stripes = hotProducts.stream().mapToInt(Product::getHotStripes).max().orElse(0);
+        return stripes > 1 ? ThreadLocalRandom.current().nextInt(stripes) : 0;
+    }
+
+    private List<SalesRollupRepository.Delta> rollupDeltas(List<SaleItemRequest> items, Map<Long, Product> productsById) {
+        Map<Long, SalesRollupRepository.Delta> byProduct = new LinkedHashMap<>();
+        for (SaleItemRequest item : items) {
+            Product product = productsById.get(item.getId());
+            int quantity = item.getQuantity();
+            SalesRollupRepository.Delta delta = new SalesRollupRepository.Delta(
+                    product.getId(),
+                    quantity,
+                    product.getSellingPrice() * quantity,
+                    (product.getSellingPrice() - product.getPrice()) * quantity,
+                    1);
+            byProduct.merge(product.getId(), delta, (a, b) -> new SalesRollupRepository.Delta(
+                    a.productId(),
+                    a.quantity() + b.quantity(),
+                    a.revenue() + b.revenue(),
+                    a.profit() + b.profit(),
+                    a.saleCount() + b.saleCount()));
+        }
+        return new ArrayList<>(byProduct.values());
     }
 
     @Cacheable(value = CacheNames.TOTAL_PROFIT_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
     public double getTotalProfit() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        ProfitRecord latest = profitRecordRepository.findTopByUserIdOrderByTimestampDesc(currentUser.getId());
-        return (latest != null) ? latest.getProfit() : 0.0;
+        Long userId = userService.getCurrentUserId();
+        Double total = profitSummaryRepository.findTotalProfit(userId);
+        return (total != null) ? total : 0.0;
     }
 
-    public ProfitRecord getLatestProfitRecord() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return profitRecordRepository.findTopByUserIdOrderByTimestampDesc(currentUser.getId());
+    public List<SalesStatsDTO> getSalesStats(LocalDateTime from, LocalDateTime to, SalesRollupRepository.Granularity granularity) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long buckets = granularity == SalesRollupRepository.Granularity.HOUR
+                ? Duration.between(from, to).toHours()
+                : Duration.between(from, to).toDays();
+        if (buckets > MAX_STATS_BUCKETS) {
+            throw new IllegalArgumentException("Requested range is too large for granularity " + granularity.name().toLowerCase());
+        }
+        return salesRollupRepository.findRange(userService.getCurrentUserId(), granularity, from, to);
+    }
+
+    /** Sale history newest first, one keyset page at a time. */
+    public PageResponse<Sale> getSalesPage(int limit, String cursor) {
+        PageResponse.checkLimit(limit);
+        long beforeId = cursor == null ? Long.MAX_VALUE : KeysetCursor.decode(cursor, "id").id();
+        List<Sale> sales = saleRepository.findPageByUserId(userService.getCurrentUserId(), beforeId, PageRequest.ofSize(limit + 1));
+        return PageResponse.of(sales, limit, sale -> new KeysetCursor("id", sale.getSaleId(), null), sale -> sale);
+    }
+
+    /** The user's profit total folded over its stripes, or null if nothing was sold yet. */
+    public ProfitSummary getProfitSummary() {
+        Long userId = userService.getCurrentUserId();
+        List<ProfitSummary> stripes = profitSummaryRepository.findAllByUserId(userId);
+        if (stripes.isEmpty()) {
+            return null;
+        }
+        ProfitSummary summary = new ProfitSummary();
+        summary.setUserId(userId);
+        for (ProfitSummary stripe : stripes) {
+            summary.setTotalProfit(summary.getTotalProfit() + stripe.getTotalProfit());
+            if (summary.getUpdatedAt() == null || stripe.getUpdatedAt().isAfter(summary.getUpdatedAt())) {
+                summary.setUpdatedAt(stripe.getUpdatedAt());
+            }
+        }
+        return summary;
     }
 
-    @Transactional
     @Caching(evict = {
             @CacheEvict(value = CacheNames.TOTAL_PROFIT_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
             @CacheEvict(value = CacheNames.LATEST_PROFIT_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
     })
-    public LocalDateTime resetSales() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        saleRepository.deleteAllByUserId(currentUser.getId());
-        // Also clear profit history if resetting everything
-        profitRecordRepository.deleteAllByUserId(currentUser.getId());
-        
-        ProfitRecord profitRecord = new ProfitRecord();
-        profitRecord.setProfit(0.0);
-        profitRecord.setTimestamp(LocalDateTime.now());
-        profitRecord.setUser(currentUser);
-        profitRecordRepository.save(profitRecord);
-        return profitRecord.getTimestamp();
+    public ResetResult resetSales(boolean async) {
+        Long userId = userService.getCurrentUserId();
+
+        // Zero the totals first so reads are consistent at once; the history up to this point
+        // is then purged in chunks, inline or as a background job.
+        Map<TenantPurgeService.Target, Long> bounds = new EnumMap<>(TenantPurgeService.Target.class);
+        ProfitRecord marker = new TransactionTemplate(transactionManager).execute(status -> {
+            bounds.put(TenantPurgeService.Target.SALES, saleRepository.findMaxSaleIdByUserId(userId));
+            salesRollupRepository.deleteForUser(userId);
+
+            LocalDateTime now = LocalDateTime.now();
+            profitSummaryRepository.resetProfit(userId, now);
+            profitSummaryRepository.deleteStripes(userId);
+
+            ProfitRecord profitRecord = new ProfitRecord();
+            profitRecord.setProfit(0.0);
+            profitRecord.setTimestamp(now);
+            profitRecord.setUser(userService.getUserReference(userId));
+            return profitRecordRepository.save(profitRecord);
+        });
+        bounds.put(TenantPurgeService.Target.PROFIT_RECORDS, marker.getId() - 1);
+        leaderboardService.resetAfterCommit(userId);
+        liveEventService.profitResetAfterCommit(userId);
+
+        TenantPurgeService.PurgeJob job = async
+                ? tenantPurgeService.purgeAsync(userId, bounds)
+                : tenantPurgeService.purge(userId, bounds);
+        return new ResetResult(marker.getTimestamp(), job);
+    }
+
+    public record ResetResult(LocalDateTime resetTimestamp, TenantPurgeService.PurgeJob job) {
     }
 }
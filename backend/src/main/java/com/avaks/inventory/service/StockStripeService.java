@@ -0,0 +1,283 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.exception.ResourceNotFoundException;
+import com.avaks.inventory.exception.ServiceBusyException;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.StockStripeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hot-product mode. While a product is hot its stock is split across N stripe rows: a sale
+ * decrements one random stripe, so concurrent sales of the same SKU lock different rows. The
+ * product row keeps a lagging copy of the total that the background rebalancer refreshes while
+ * evening out the stripes; a refresh that takes the copy to or below the reorder level is when
+ * the low-stock alert fires. Such sales also add to a random stripe of the rollup and profit
+ * rows (see SaleService), so the aggregates do not become the row every sale queues on.
+ */
+@Service
+public class StockStripeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockStripeService.class);
+
+    /** What a hot-product decrement did; CONTENDED means stock may be there but stayed locked. */
+    public enum Decrement {
+        TAKEN,
+        OUT_OF_STOCK,
+        CONTENDED
+    }
+
+    private final StockStripeRepository stockStripeRepository;
+    private final ChangeVersionService changeVersionService;
+    private final LowStockService lowStockService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.stock.stripes.max:64}")
+    private int maxStripes;
+
+    @Value("${app.stock.stripes.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.stock.stripes.retry-delay-ms:5}")
+    private long retryDelayMs;
+
+    public StockStripeService(
+            StockStripeRepository stockStripeRepository,
+            ChangeVersionService changeVersionService,
+            LowStockService lowStockService,
+            PlatformTransactionManager transactionManager) {
+        this.stockStripeRepository = stockStripeRepository;
+        this.changeVersionService = changeVersionService;
+        this.lowStockService = lowStockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Takes each hot product's quantity from its stripes, visiting the products in id order so
+     * that two sales of the same products never lock their stripes in crossed order. Returns
+     * the outcome for every product whose quantity was not taken. Must run inside the caller's
+     * transaction.
+     */
+    public Map<Long, Decrement> decrement(Long userId, Collection<Product> hotProducts, Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Decrement> failed = new LinkedHashMap<>();
+        hotProducts.stream()
+                .sorted(Comparator.comparing(Product::getId))
+                .forEach(product -> {
+                    Decrement outcome = decrement(product.getId(), userId, product.getHotStripes(), quantitiesByProductId.get(product.getId()));
+                    if (outcome != Decrement.TAKEN) {
+                        failed.put(product.getId(), outcome);
+                    }
+                });
+        return failed;
+    }
+
+    /**
+     * Takes {@code quantity} from a hot product's stripes. Must run inside the caller's
+     * transaction.
+     */
+    public Decrement decrement(Long productId, Long userId, int stripes, int quantity) {
+        long changeVersion = changeVersionService.pendingVersion(userId);
+        if (stockStripeRepository.decrementStripe(productId, ThreadLocalRandom.current().nextInt(stripes), quantity, changeVersion)) {
+            return Decrement.TAKEN;
+        }
+
+        // The probed stripe stays locked even though the update missed, so waiting for the others
+        // here could deadlock with a sale that probed one of them. Take from the stripes nobody
+        // else holds instead, and look again a few times while the ones we skipped are busy:
+        // their holders are short sale transactions that commit within milliseconds.
+        for (int attempt = 1; ; attempt++) {
+            int[] stock = stockStripeRepository.lockUnheldStripes(productId, stripes);
+            int available = 0;
+            boolean skipped = false;
+            for (int value : stock) {
+                available += Math.max(value, 0);
+                skipped |= value < 0;
+            }
+
+            if (available >= quantity) {
+                int[] taken = new int[stripes];
+                int remaining = quantity;
+                for (int stripe = 0; stripe < stripes && remaining > 0; stripe++) {
+                    taken[stripe] = Math.min(Math.max(stock[stripe], 0), remaining);
+                    remaining -= taken[stripe];
+                }
+                stockStripeRepository.takeFromStripes(productId, taken, changeVersion);
+                return Decrement.TAKEN;
+            }
+            if (!skipped) {
+                return Decrement.OUT_OF_STOCK;
+            }
+            if (attempt >= maxAttempts) {
+                return Decrement.CONTENDED;
+            }
+            pause(retryDelayMs * attempt);
+        }
+    }
+
+    private void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Sale request was interrupted. Please retry.");
+        }
+    }
+
+    /**
+     * Replaces the lagging stock copy on hot products with the sum of their stripes. Only use
+     * on snapshots that are read-only or detached.
+     */
+    public void applyStripeTotals(Collection<Product> products) {
+        applyStripeTotals(products, Product::getId, Product::getHotStripes, Product::setStock);
+    }
+
+    /** Same as above for read-model DTOs that carry the product id and stripe count. */
+    public <T> void applyStripeTotals(Collection<T> items, Function<T, Long> id, ToIntFunction<T> hotStripes,
+                                      ObjIntConsumer<T> setStock) {
+        List<Long> hotIds = items.stream()
+                .filter(item -> hotStripes.applyAsInt(item) > 0)
+                .map(id)
+                .toList();
+        if (hotIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> totals = stockStripeRepository.sumStock(hotIds);
+        for (T item : items) {
+            Integer total = totals.get(id.apply(item));
+            if (hotStripes.applyAsInt(item) > 0 && total != null) {
+                setStock.accept(item, total);
+            }
+        }
+    }
+
+    /** Ids of the user's hot products whose stripes changed after the given version. */
+    public List<Long> findChangedSince(Long userId, long since) {
+        return stockStripeRepository.findProductIdsChangedSince(userId, since);
+    }
+
+    @Transactional
+    public void enable(Long productId, Long userId, int stripes) {
+        if (stripes < 2 || stripes > maxStripes) {
+            throw new IllegalArgumentException("stripes must be between 2 and " + maxStripes);
+        }
+
+        int[] product = lockProduct(productId, userId);
+        int total = product[1] > 0 ? sum(stockStripeRepository.lockStripes(productId, product[1])) : product[0];
+        long changeVersion = changeVersionService.pendingVersion(userId);
+        stockStripeRepository.deleteStripes(productId);
+        stockStripeRepository.writeStripes(productId, distribute(total, stripes), changeVersion);
+        stockStripeRepository.updateProductStock(productId, total, stripes, changeVersion);
+    }
+
+    @Transactional
+    public void disable(Long productId, Long userId) {
+        int[] product = lockProduct(productId, userId);
+        if (product[1] == 0) {
+            return;
+        }
+
+        int total = sum(stockStripeRepository.lockStripes(productId, product[1]));
+        if (total < product[0]) {
+            lowStockService.detectStripeCrossingAfterCommit(userId, productId, product[0]);
+        }
+        stockStripeRepository.deleteStripes(productId);
+        stockStripeRepository.updateProductStock(productId, total, 0, changeVersionService.pendingVersion(userId));
+    }
+
+    /**
+     * Locks the product row, as enable and disable do, and returns its current stripe count.
+     * Must run inside the caller's transaction.
+     */
+    public int lockHotStripes(Long productId, Long userId) {
+        return lockProduct(productId, userId)[1];
+    }
+
+    /**
+     * Sets a hot product's stock to an absolute value, e.g. after a manual edit. Must run
+     * inside the caller's transaction.
+     */
+    public void resetStock(Long productId, Long userId, int stripes, int stock) {
+        stockStripeRepository.lockStripes(productId, stripes);
+        stockStripeRepository.writeStripes(productId, distribute(stock, stripes), changeVersionService.pendingVersion(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.stripes.rebalance-interval-ms:5000}")
+    public void rebalance() {
+        for (long[] hot : stockStripeRepository.findHotProducts()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(hot[0], hot[1]));
+            } catch (Exception ex) {
+                LOGGER.warn("Stock stripe rebalance failed for product {}: {}", hot[0], ex.getMessage());
+            }
+        }
+    }
+
+    private void rebalance(Long productId, Long userId) {
+        int[] product = stockStripeRepository.lockProduct(productId, userId);
+        if (product == null || product[1] == 0) {
+            return;
+        }
+
+        int[] stock = stockStripeRepository.lockStripes(productId, product[1]);
+        int total = sum(stock);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int value : stock) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (max - min <= 1 && product[0] == total) {
+            return;
+        }
+
+        long changeVersion = changeVersionService.pendingVersion(userId);
+        stockStripeRepository.writeStripes(productId, distribute(total, product[1]), changeVersion);
+        stockStripeRepository.updateProductStock(productId, total, product[1], changeVersion);
+        if (total < product[0]) {
+            lowStockService.detectStripeCrossingAfterCommit(userId, productId, product[0]);
+        }
+    }
+
+    private int[] lockProduct(Long productId, Long userId) {
+        int[] product = stockStripeRepository.lockProduct(productId, userId);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product not found with id " + productId);
+        }
+        return product;
+    }
+
+    private int[] distribute(int total, int stripes) {
+        int[] stock = new int[stripes];
+        int base = total / stripes;
+        int remainder = total % stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            stock[stripe] = base + (stripe < remainder ? 1 : 0);
+        }
+        return stock;
+    }
+
+    private int sum(int[] stock) {
+        int total = 0;
+        for (int value : stock) {
+            total += value;
+        }
+        return total;
+    }
+}
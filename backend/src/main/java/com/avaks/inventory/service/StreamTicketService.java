@@ -0,0 +1,52 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.service.stream.StreamTicketStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues the short-lived, single-use tickets that authenticate GET /api/stream in place of
+ * the JWT; see {@link StreamTicketStore}.
+ */
+@Service
+public class StreamTicketService {
+
+    private static final int TICKET_BYTES = 32;
+
+    private final StreamTicketStore streamTicketStore;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.stream.ticket-ttl-seconds:30}")
+    private long ticketTtlSeconds;
+
+    public StreamTicketService(StreamTicketStore streamTicketStore) {
+        this.streamTicketStore = streamTicketStore;
+    }
+
+    public String issue(String email) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        secureRandom.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        streamTicketStore.save(ticket, email, Duration.ofSeconds(ticketTtlSeconds));
+        return ticket;
+    }
+
+    public Optional<String> redeem(String ticket) {
+        return streamTicketStore.redeem(ticket);
+    }
+
+    public long getTicketTtlSeconds() {
+        return ticketTtlSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stream.ticket-cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        streamTicketStore.purgeExpired();
+    }
+}
@@ -1,16 +1,19 @@
 package com.avaks.inventory.service;
 
 import com.avaks.inventory.config.cache.CacheNames;
+import com.avaks.inventory.dto.KeysetCursor;
+import com.avaks.inventory.dto.PageResponse;
 import com.avaks.inventory.dto.SupplierDTO;
 import com.avaks.inventory.exception.ResourceNotFoundException;
 import com.avaks.inventory.exception.SupplierHasProductsException;
 import com.avaks.inventory.model.Supplier;
-import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.SupplierRepository;
+import com.avaks.inventory.repository.SyncRepository;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -26,12 +29,16 @@ public class SupplierService {
     @Autowired
     private UserService userService;
 
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.SUPPLIERS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
-            @CacheEvict(value = CacheNames.SUPPLIER_BY_USER_AND_ID, allEntries = true)
-    })
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CollectionVersionService collectionVersionService;
+
+    @Transactional
+    @CacheEvict(value = CacheNames.SUPPLIERS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
     public Supplier createSupplier(SupplierDTO supplierDTO) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
+        Long userId = userService.getCurrentUserId();
 
         Supplier supplier = new Supplier();
         supplier.setName(supplierDTO.getName());
@@ -39,36 +46,65 @@ public class SupplierService {
         supplier.setEmail(supplierDTO.getEmail());
         supplier.setPhone(supplierDTO.getPhone());
         supplier.setAddress(supplierDTO.getAddress());
-        supplier.setUser(currentUser);
-        return supplierRepository.save(supplier);
+        supplier.setUser(userService.getUserReference(userId));
+        supplier.setChangeVersion(syncService.pendingVersion(userId));
+        Supplier saved = supplierRepository.save(supplier);
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.SUPPLIERS);
+        return saved;
     }
 
     @Cacheable(value = CacheNames.SUPPLIER_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
     public Optional<Supplier> getSupplierById(Long id) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return supplierRepository.findByIdAndUserId(id, currentUser.getId());
+        Long userId = userService.getCurrentUserId();
+        return supplierRepository.findByIdAndUserId(id, userId);
     }
 
     @Cacheable(value = CacheNames.SUPPLIERS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()")
     public List<Supplier> getAllSuppliers() {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        return supplierRepository.findAllByUserId(currentUser.getId());
+        Long userId = userService.getCurrentUserId();
+        return supplierRepository.findAllByUserId(userId);
+    }
+
+    public PageResponse<Supplier> getSuppliersPage(int limit, String cursor, String sort) {
+        PageResponse.checkLimit(limit);
+        Long userId = userService.getCurrentUserId();
+        PageRequest page = PageRequest.ofSize(limit + 1);
+
+        List<Supplier> suppliers;
+        if ("name".equals(sort)) {
+            KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor, sort);
+            suppliers = supplierRepository.findPageByUserIdOrderByName(
+                    userId, after == null ? "" : after.key(), after == null ? 0L : after.id(), page);
+        } else if ("id".equals(sort)) {
+            KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor, sort);
+            suppliers = supplierRepository.findPageByUserIdOrderById(userId, after == null ? 0L : after.id(), page);
+        } else {
+            throw new IllegalArgumentException("sort must be 'id' or 'name'");
+        }
+        return PageResponse.of(suppliers, limit,
+                supplier -> new KeysetCursor(sort, supplier.getId(), "name".equals(sort) ? supplier.getName() : null),
+                supplier -> supplier);
     }
 
+    @Transactional
     @Caching(evict = {
             @CacheEvict(value = CacheNames.SUPPLIERS_BY_USER, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).currentUserEmail()"),
             @CacheEvict(value = CacheNames.SUPPLIER_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
     })
     public Supplier updateSupplier(Long id, SupplierDTO supplierDetails) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        Supplier supplier = supplierRepository.findByIdAndUserId(id, currentUser.getId())
+        Long userId = userService.getCurrentUserId();
+        Supplier supplier = supplierRepository.findByIdAndUserId(id, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id " + id));
         supplier.setName(supplierDetails.getName());
         supplier.setContactPerson(supplierDetails.getContactPerson());
         supplier.setEmail(supplierDetails.getEmail());
         supplier.setPhone(supplierDetails.getPhone());
         supplier.setAddress(supplierDetails.getAddress());
-        return supplierRepository.save(supplier);
+        supplier.setChangeVersion(syncService.pendingVersion(userId));
+        Supplier saved = supplierRepository.save(supplier);
+        // Products embed their supplier, so their lists change too.
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.SUPPLIERS, CollectionVersionService.VersionedCollection.PRODUCTS);
+        return saved;
     }
 
     @Transactional
@@ -77,8 +113,8 @@ public class SupplierService {
             @CacheEvict(value = CacheNames.SUPPLIER_BY_USER_AND_ID, key = "T(com.avaks.inventory.config.cache.CacheKeyUtil).forCurrentUserWithId(#id)")
     })
     public void deleteSupplier(Long id) {
-        User currentUser = userService.getCurrentAuthenticatedUser();
-        Supplier supplier = supplierRepository.findByIdAndUserId(id, currentUser.getId())
+        Long userId = userService.getCurrentUserId();
+        Supplier supplier = supplierRepository.findByIdAndUserId(id, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id " + id));
         
         // Check if supplier has any linked products
@@ -89,6 +125,8 @@ public class SupplierService {
         }
         
         supplierRepository.deleteById(id);
+        syncService.recordDeletion(userId, SyncRepository.EntityType.SUPPLIER, id);
+        collectionVersionService.bumpAfterCommit(userId, CollectionVersionService.VersionedCollection.SUPPLIERS);
     }
 }
 
@@ -0,0 +1,148 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.exception.SyncVersionExpiredException;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.model.Supplier;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.SupplierRepository;
+import com.avaks.inventory.repository.SyncRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Delta sync for products and suppliers. Every write stamps the rows it changes with the
+ * tenant's next change version and every delete leaves a tombstone, so a client that knows
+ * version N only needs the rows and tombstones above N. Tombstones are kept for a retention
+ * period; a client older than the purged range is told to resync from scratch.
+ */
+@Service
+public class SyncService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncService.class);
+    private static final int PURGE_TENANTS_PER_RUN = 100;
+    private static final int PURGE_CHUNK_SIZE = 1000;
+
+    private final SyncRepository syncRepository;
+    private final ChangeVersionService changeVersionService;
+    private final ProductRepository productRepository;
+    private final SupplierRepository supplierRepository;
+    private final StockStripeService stockStripeService;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.sync.tombstone-retention-days:30}")
+    private long tombstoneRetentionDays;
+
+    public SyncService(
+            SyncRepository syncRepository,
+            ChangeVersionService changeVersionService,
+            ProductRepository productRepository,
+            SupplierRepository supplierRepository,
+            StockStripeService stockStripeService,
+            UserService userService,
+            PlatformTransactionManager transactionManager) {
+        this.syncRepository = syncRepository;
+        this.changeVersionService = changeVersionService;
+        this.productRepository = productRepository;
+        this.supplierRepository = supplierRepository;
+        this.stockStripeService = stockStripeService;
+        this.userService = userService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The version to stamp written rows with. Must run inside the writing transaction; the real
+     * version replaces it at commit.
+     */
+    public long pendingVersion(Long userId) {
+        return changeVersionService.pendingVersion(userId);
+    }
+
+    public void recordDeletion(Long userId, SyncRepository.EntityType entityType, long entityId) {
+        syncRepository.recordTombstone(userId, entityType, entityId, changeVersionService.pendingVersion(userId));
+    }
+
+    /**
+     * Changes above the given version, read from one snapshot so the returned version covers
+     * exactly the returned rows. since = 0 returns every live row.
+     */
+    @Transactional(readOnly = true)
+    public SyncChanges changesSince(long since) {
+        Long userId = userService.getCurrentUserId();
+        long[] versionAndFloor = syncRepository.findVersionAndFloor(userId);
+        long version = versionAndFloor[0];
+        if (since > version || (since > 0 && since < versionAndFloor[1])) {
+            throw new SyncVersionExpiredException("Sync version " + since + " is no longer available; fetch the full lists", version);
+        }
+
+        // Rows written before versioning existed carry version 0, so a full sync starts below it.
+        long after = since == 0 ? -1L : since;
+        List<Product> products = new ArrayList<>(productRepository.findChangedSince(userId, after));
+        // Hot-mode sales only write stripe rows; pick up those products too.
+        Set<Long> changedIds = products.stream().map(Product::getId).collect(Collectors.toSet());
+        List<Long> stripeChangedIds = stockStripeService.findChangedSince(userId, after).stream()
+                .filter(id -> !changedIds.contains(id))
+                .toList();
+        if (!stripeChangedIds.isEmpty()) {
+            products.addAll(productRepository.findWithSupplierByUserIdAndIdIn(userId, stripeChangedIds));
+        }
+        stockStripeService.applyStripeTotals(products);
+        List<Supplier> suppliers = supplierRepository.findChangedSince(userId, after);
+
+        List<Long> deletedProductIds = new ArrayList<>();
+        List<Long> deletedSupplierIds = new ArrayList<>();
+        if (since > 0) {
+            for (SyncRepository.Tombstone tombstone : syncRepository.findTombstonesSince(userId, since)) {
+                if (tombstone.entityType() == SyncRepository.EntityType.PRODUCT) {
+                    deletedProductIds.add(tombstone.entityId());
+                } else {
+                    deletedSupplierIds.add(tombstone.entityId());
+                }
+            }
+        }
+        return new SyncChanges(version, products, suppliers, deletedProductIds, deletedSupplierIds);
+    }
+
+    /**
+     * Drops tombstones past retention. The tenant's floor is raised first, so a client asking
+     * for a purged range gets a resync answer rather than silently missing deletes.
+     */
+    @Scheduled(cron = "${app.sync.tombstone-purge-cron:0 30 3 * * *}")
+    public void purgeExpiredTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        List<long[]> bounds = syncRepository.findExpiredTombstoneBounds(cutoff, PURGE_TENANTS_PER_RUN);
+        for (long[] bound : bounds) {
+            long userId = bound[0];
+            long maxVersion = bound[1];
+            try {
+                transactionTemplate.executeWithoutResult(status -> syncRepository.raiseTombstoneFloor(userId, maxVersion));
+                int deleted;
+                do {
+                    deleted = syncRepository.deleteTombstonesChunk(userId, maxVersion, PURGE_CHUNK_SIZE);
+                } while (deleted >= PURGE_CHUNK_SIZE);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Tombstone purge for user {} failed: {}", userId, ex.getMessage());
+            }
+        }
+    }
+
+    public record SyncChanges(
+            long version,
+            List<Product> products,
+            List<Supplier> suppliers,
+            List<Long> deletedProductIds,
+            List<Long> deletedSupplierIds) {
+    }
+}
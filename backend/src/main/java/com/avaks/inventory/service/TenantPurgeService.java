@@ -0,0 +1,200 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.OrderRepository;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.ProfitRecordRepository;
+import com.avaks.inventory.repository.SaleRepository;
+import com.avaks.inventory.repository.SupplierRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Set-based tenant deletes. Each target is removed with DELETE ... LIMIT in its own short
+ * transaction, so a purge never loads entities into memory or holds locks on a large range
+ * for long. Purges run inline or as a tracked background job.
+ */
+@Service
+public class TenantPurgeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TenantPurgeService.class);
+
+    /** Purge targets; when several are requested they run in this order so foreign keys hold. */
+    public enum Target {
+        SALES,
+        PROFIT_RECORDS,
+        ORDERS,
+        PRODUCTS,
+        SUPPLIERS
+    }
+
+    public enum JobState {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @FunctionalInterface
+    private interface ChunkDeleter {
+        int deleteChunk(Long userId, long maxId, int limit);
+    }
+
+    private final Map<Target, ChunkDeleter> deleters = new EnumMap<>(Target.class);
+    private final TransactionTemplate chunkTransaction;
+    private final ExecutorService jobExecutor;
+    private final Map<String, PurgeJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.purge.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    public TenantPurgeService(
+            SaleRepository saleRepository,
+            ProfitRecordRepository profitRecordRepository,
+            OrderRepository orderRepository,
+            ProductRepository productRepository,
+            SupplierRepository supplierRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.purge.threads:1}") int threads) {
+        deleters.put(Target.SALES, saleRepository::deleteChunkByUserId);
+        deleters.put(Target.PROFIT_RECORDS, profitRecordRepository::deleteChunkByUserId);
+        deleters.put(Target.ORDERS, orderRepository::deleteChunkByUserId);
+        deleters.put(Target.PRODUCTS, productRepository::deleteChunkByUserId);
+        deleters.put(Target.SUPPLIERS, supplierRepository::deleteChunkByUserId);
+
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.jobExecutor = Executors.newFixedThreadPool(Math.max(1, threads), new DaemonThreadFactory("tenant-purge"));
+    }
+
+    /**
+     * Deletes the user's rows for each target up to and including the given id, one chunk per
+     * transaction. Pass Long.MAX_VALUE to delete a target entirely.
+     */
+    public PurgeJob purge(Long userId, Map<Target, Long> maxIds) {
+        PurgeJob job = new PurgeJob(UUID.randomUUID().toString(), userId, maxIds.keySet());
+        run(job, maxIds);
+        return job;
+    }
+
+    public PurgeJob purgeAsync(Long userId, Map<Target, Long> maxIds) {
+        PurgeJob job = new PurgeJob(UUID.randomUUID().toString(), userId, maxIds.keySet());
+        jobs.put(job.getId(), job);
+        jobExecutor.submit(() -> {
+            try {
+                run(job, maxIds);
+            } catch (RuntimeException ignored) {
+                // Already recorded on the job.
+            }
+        });
+        return job;
+    }
+
+    public Optional<PurgeJob> findJob(String jobId, Long userId) {
+        PurgeJob job = jobs.get(jobId);
+        return job != null && job.userId.equals(userId) ? Optional.of(job) : Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${app.purge.job-cleanup-interval-ms:300000}")
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetentionMinutes, ChronoUnit.MINUTES);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdown();
+    }
+
+    private void run(PurgeJob job, Map<Target, Long> maxIds) {
+        try {
+            for (Target target : Target.values()) {
+                if (!maxIds.containsKey(target)) {
+                    continue;
+                }
+                long maxId = maxIds.get(target);
+                ChunkDeleter deleter = deleters.get(target);
+                int deleted;
+                do {
+                    Integer chunk = chunkTransaction.execute(status -> deleter.deleteChunk(job.userId, maxId, chunkSize));
+                    deleted = chunk == null ? 0 : chunk;
+                    job.deleted.get(target).addAndGet(deleted);
+                } while (deleted >= chunkSize);
+            }
+            job.finish(JobState.COMPLETED, null);
+        } catch (RuntimeException ex) {
+            job.finish(JobState.FAILED, ex.getMessage());
+            LOGGER.warn("Tenant purge {} for user {} failed: {}", job.getId(), job.userId, ex.getMessage());
+            throw ex;
+        }
+    }
+
+    public static final class PurgeJob {
+        private final String id;
+        private final Long userId;
+        private final Map<Target, AtomicLong> deleted = new EnumMap<>(Target.class);
+        private final Instant startedAt = Instant.now();
+        private volatile JobState state = JobState.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private PurgeJob(String id, Long userId, Iterable<Target> targets) {
+            this.id = id;
+            this.userId = userId;
+            targets.forEach(target -> deleted.put(target, new AtomicLong()));
+        }
+
+        private void finish(JobState state, String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public JobState getState() {
+            return state;
+        }
+
+        public Map<String, Long> getDeleted() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            deleted.forEach((target, count) -> counts.put(target.name().toLowerCase(), count.get()));
+            return counts;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public Instant getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
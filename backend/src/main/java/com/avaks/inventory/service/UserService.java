@@ -1,5 +1,7 @@
 package com.avaks.inventory.service;
 
+import com.avaks.inventory.config.AuthenticatedUser;
+import com.avaks.inventory.config.VerifiedPrincipalCache;
 import com.avaks.inventory.model.User;
 import com.avaks.inventory.repository.UserRepository;
 import com.avaks.inventory.exception.ResourceNotFoundException;
@@ -14,13 +16,16 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final VerifiedPrincipalCache principalCache;
 
     @Transactional
     public User updateStoreNameByEmail(String email, String newStoreName) {
         User user = userRepository.findByEmail(email)
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setStoreName(newStoreName.trim());
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        principalCache.invalidateUser(savedUser.getEmail());
+        return savedUser;
     }
     
     public User getUserById(Long id) {
@@ -30,15 +35,38 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public User getCurrentAuthenticatedUser() {
+        Authentication authentication = requireAuthentication();
+        String email = authentication.getName();
+        return userRepository.findByEmail(email)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    /**
+     * Resolves the tenant id from the JWT principal, so no user-table query is needed.
+     */
+    public Long getCurrentUserId() {
+        Authentication authentication = requireAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal && principal.getId() != null) {
+            return principal.getId();
+        }
+        return getCurrentAuthenticatedUser().getId();
+    }
+
+    /**
+     * Lazy reference for setting ownership on new rows; it is never initialized by the
+     * services because only its id is written.
+     */
+    public User getUserReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
+    private Authentication requireAuthentication() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null
                 || !authentication.isAuthenticated()
                 || authentication instanceof AnonymousAuthenticationToken) {
             throw new ResourceNotFoundException("Authenticated user not found");
         }
-
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return authentication;
     }
 }
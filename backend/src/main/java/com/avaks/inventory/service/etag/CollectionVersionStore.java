@@ -0,0 +1,13 @@
+package com.avaks.inventory.service.etag;
+
+/**
+ * Per-tenant version tokens for list resources. A token changes whenever the collection is
+ * bumped and never repeats a token issued earlier, even after a restart or a lost key, so it
+ * can back a strong ETag.
+ */
+public interface CollectionVersionStore {
+
+    String current(Long userId, String collection);
+
+    void bump(Long userId, String collection);
+}
@@ -0,0 +1,26 @@
+package com.avaks.inventory.service.etag;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryCollectionVersionStore implements CollectionVersionStore {
+
+    // Counters restart at zero with the process; the epoch keeps tokens from an earlier run
+    // from matching new ones.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public String current(Long userId, String collection) {
+        return epoch + "." + versions.getOrDefault(key(userId, collection), 0L);
+    }
+
+    @Override
+    public void bump(Long userId, String collection) {
+        versions.merge(key(userId, collection), 1L, Long::sum);
+    }
+
+    private String key(Long userId, String collection) {
+        return userId + ":" + collection;
+    }
+}
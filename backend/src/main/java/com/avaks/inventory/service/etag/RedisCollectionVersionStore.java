@@ -0,0 +1,40 @@
+package com.avaks.inventory.service.etag;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+public class RedisCollectionVersionStore implements CollectionVersionStore {
+
+    private static final String KEY_PREFIX = "collection_version:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisCollectionVersionStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public String current(Long userId, String collection) {
+        String key = key(userId, collection);
+        String version = redisTemplate.opsForValue().get(key);
+        if (version != null) {
+            return version;
+        }
+        // A missing key starts from the clock rather than from zero, so a key lost to eviction
+        // or a flush cannot hand out a token that was already issued.
+        redisTemplate.opsForValue().setIfAbsent(key, Long.toString(System.currentTimeMillis()));
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public void bump(Long userId, String collection) {
+        String key = key(userId, collection);
+        if (Boolean.FALSE.equals(redisTemplate.hasKey(key))) {
+            redisTemplate.opsForValue().setIfAbsent(key, Long.toString(System.currentTimeMillis()));
+        }
+        redisTemplate.opsForValue().increment(key);
+    }
+
+    private String key(Long userId, String collection) {
+        return KEY_PREFIX + userId + ":" + collection;
+    }
+}
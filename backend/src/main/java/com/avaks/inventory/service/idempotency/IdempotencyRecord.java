@@ -0,0 +1,21 @@
+package com.avaks.inventory.service.idempotency;
+
+/**
+ * State stored under an idempotency key. IN_FLIGHT rows only carry the request fingerprint;
+ * COMPLETED rows also hold the response to replay.
+ */
+public record IdempotencyRecord(State state, String fingerprint, int statusCode, String body) {
+
+    public enum State {
+        IN_FLIGHT,
+        COMPLETED
+    }
+
+    public static IdempotencyRecord inFlight(String fingerprint) {
+        return new IdempotencyRecord(State.IN_FLIGHT, fingerprint, 0, null);
+    }
+
+    public static IdempotencyRecord completed(String fingerprint, int statusCode, String body) {
+        return new IdempotencyRecord(State.COMPLETED, fingerprint, statusCode, body);
+    }
+}
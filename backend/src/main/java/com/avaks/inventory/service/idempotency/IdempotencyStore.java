@@ -0,0 +1,26 @@
+package com.avaks.inventory.service.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * TTL-backed storage for idempotency keys. Implementations must expire entries on their own.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key as IN_FLIGHT. Returns empty when the caller now owns the key, or the
+     * record that is already stored under it.
+     */
+    Optional<IdempotencyRecord> tryBegin(String key, String fingerprint, Duration inFlightTtl);
+
+    void complete(String key, IdempotencyRecord record, Duration ttl);
+
+    /**
+     * Drops an IN_FLIGHT claim so that a retry runs the request again.
+     */
+    void release(String key);
+
+    default void purgeExpired() {
+    }
+}
@@ -0,0 +1,41 @@
+package com.avaks.inventory.service.idempotency;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private record Entry(IdempotencyRecord record, Instant expiresAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<IdempotencyRecord> tryBegin(String key, String fingerprint, Duration inFlightTtl) {
+        Instant now = Instant.now();
+        Entry claim = new Entry(IdempotencyRecord.inFlight(fingerprint), now.plus(inFlightTtl));
+        Entry current = entries.compute(key, (ignored, existing) ->
+                existing != null && existing.expiresAt().isAfter(now) ? existing : claim);
+        return current == claim ? Optional.empty() : Optional.of(current.record());
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record, Duration ttl) {
+        entries.put(key, new Entry(record, Instant.now().plus(ttl)));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.computeIfPresent(key, (ignored, existing) ->
+                existing.record().state() == IdempotencyRecord.State.IN_FLIGHT ? null : existing);
+    }
+
+    @Override
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        entries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+    }
+}
@@ -0,0 +1,77 @@
+package com.avaks.inventory.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    // Delete only while the key is still IN_FLIGHT, so a late release never drops a stored response.
+    private static final DefaultRedisScript<Long> RELEASE_IN_FLIGHT = new DefaultRedisScript<>("""
+            local value = redis.call('GET', KEYS[1])
+            if value and string.find(value, '"state":"IN_FLIGHT"', 1, true) then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> tryBegin(String key, String fingerprint, Duration inFlightTtl) {
+        String redisKey = KEY_PREFIX + key;
+        String claim = serialize(IdempotencyRecord.inFlight(fingerprint));
+
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey, claim, inFlightTtl))) {
+                return Optional.empty();
+            }
+            String existing = redisTemplate.opsForValue().get(redisKey);
+            if (existing != null) {
+                return Optional.of(deserialize(existing));
+            }
+            // The entry expired between SET NX and GET; try to claim it again.
+        }
+        throw new IllegalStateException("Could not claim idempotency key");
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record, Duration ttl) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + key, serialize(record), ttl);
+    }
+
+    @Override
+    public void release(String key) {
+        redisTemplate.execute(RELEASE_IN_FLIGHT, List.of(KEY_PREFIX + key));
+    }
+
+    private String serialize(IdempotencyRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize idempotency record", ex);
+        }
+    }
+
+    private IdempotencyRecord deserialize(String value) {
+        try {
+            return objectMapper.readValue(value, IdempotencyRecord.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to read idempotency record", ex);
+        }
+    }
+}
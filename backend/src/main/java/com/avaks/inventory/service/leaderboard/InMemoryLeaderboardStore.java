@@ -0,0 +1,144 @@
+package com.avaks.inventory.service.leaderboard;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryLeaderboardStore implements LeaderboardStore {
+
+    private static final int RETAINED_DAYS = LeaderboardWindow.LAST_30_DAYS.days();
+    private static final double EPSILON = 1e-9;
+
+    private final Map<Long, Map<LeaderboardMetric, Board>> boards = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(Long userId, LocalDate today, LeaderboardMetric metric, Map<Long, Double> deltas) {
+        board(userId, metric).increment(today.toEpochDay(), deltas);
+    }
+
+    /**
+     * Adds one product's totals for a past day, e.g. from the daily rollups after a restart.
+     * Only the windows that still cover the day count them.
+     */
+    public void seed(Long userId, LocalDate day, long productId, double units, double profit) {
+        board(userId, LeaderboardMetric.UNITS).increment(day.toEpochDay(), Map.of(productId, units));
+        board(userId, LeaderboardMetric.PROFIT).increment(day.toEpochDay(), Map.of(productId, profit));
+    }
+
+    @Override
+    public List<LeaderboardEntry> top(Long userId, LocalDate today, LeaderboardWindow window, LeaderboardMetric metric, int limit) {
+        return board(userId, metric).top(today.toEpochDay(), window, limit);
+    }
+
+    @Override
+    public void reset(Long userId) {
+        boards.remove(userId);
+    }
+
+    private Board board(Long userId, LeaderboardMetric metric) {
+        return boards.computeIfAbsent(userId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(metric, ignored -> new Board());
+    }
+
+    private static final class Board {
+        private final TreeMap<Long, Map<Long, Double>> days = new TreeMap<>();
+        private final Map<LeaderboardWindow, RankedScores> windows = new EnumMap<>(LeaderboardWindow.class);
+        private long asOf = Long.MIN_VALUE;
+
+        private Board() {
+            for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                windows.put(window, new RankedScores());
+            }
+        }
+
+        synchronized void increment(long day, Map<Long, Double> deltas) {
+            roll(day);
+            if (day <= asOf - RETAINED_DAYS) {
+                return;
+            }
+            Map<Long, Double> bucket = days.computeIfAbsent(day, ignored -> new HashMap<>());
+            deltas.forEach((productId, delta) -> {
+                bucket.merge(productId, delta, Double::sum);
+                windows.forEach((window, scores) -> {
+                    if (day > asOf - window.days()) {
+                        scores.add(productId, delta);
+                    }
+                });
+            });
+        }
+
+        synchronized List<LeaderboardEntry> top(long today, LeaderboardWindow window, int limit) {
+            roll(today);
+            return windows.get(window).top(limit);
+        }
+
+        private void roll(long today) {
+            if (today <= asOf) {
+                return;
+            }
+
+            if (asOf == Long.MIN_VALUE || today - asOf >= RETAINED_DAYS) {
+                days.headMap(today - RETAINED_DAYS, true).clear();
+                for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                    RankedScores scores = new RankedScores();
+                    days.tailMap(today - window.days(), false)
+                            .values()
+                            .forEach(day -> day.forEach(scores::add));
+                    windows.put(window, scores);
+                }
+            } else {
+                for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                    RankedScores scores = windows.get(window);
+                    for (long expired = asOf - window.days() + 1; expired <= today - window.days(); expired++) {
+                        Map<Long, Double> day = days.get(expired);
+                        if (day != null) {
+                            day.forEach((productId, value) -> scores.add(productId, -value));
+                        }
+                    }
+                }
+                days.headMap(today - RETAINED_DAYS, true).clear();
+            }
+            asOf = today;
+        }
+    }
+
+    private static final class RankedScores {
+        private static final Comparator<LeaderboardEntry> BY_SCORE_DESC = Comparator
+                .comparingDouble(LeaderboardEntry::score).reversed()
+                .thenComparingLong(LeaderboardEntry::productId);
+
+        private final Map<Long, Double> scores = new HashMap<>();
+        private final TreeSet<LeaderboardEntry> ranking = new TreeSet<>(BY_SCORE_DESC);
+
+        void add(long productId, double delta) {
+            Double current = scores.get(productId);
+            if (current != null) {
+                ranking.remove(new LeaderboardEntry(productId, current));
+            }
+            double updated = (current == null ? 0.0 : current) + delta;
+            if (Math.abs(updated) < EPSILON) {
+                scores.remove(productId);
+                return;
+            }
+            scores.put(productId, updated);
+            ranking.add(new LeaderboardEntry(productId, updated));
+        }
+
+        List<LeaderboardEntry> top(int limit) {
+            List<LeaderboardEntry> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            Iterator<LeaderboardEntry> iterator = ranking.iterator();
+            while (iterator.hasNext() && top.size() < limit) {
+                top.add(iterator.next());
+            }
+            return top;
+        }
+    }
+}
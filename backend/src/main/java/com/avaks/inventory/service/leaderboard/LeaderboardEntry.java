@@ -0,0 +1,4 @@
+package com.avaks.inventory.service.leaderboard;
+
+public record LeaderboardEntry(long productId, double score) {
+}
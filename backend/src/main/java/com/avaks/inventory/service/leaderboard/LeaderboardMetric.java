@@ -0,0 +1,6 @@
+package com.avaks.inventory.service.leaderboard;
+
+public enum LeaderboardMetric {
+    UNITS,
+    PROFIT
+}
@@ -0,0 +1,19 @@
+package com.avaks.inventory.service.leaderboard;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-tenant ranked scores per product over rolling day windows. Implementations keep daily
+ * buckets for the longest window and roll the window aggregates forward lazily, so both
+ * updates and top-N reads are logarithmic in the number of ranked products.
+ */
+public interface LeaderboardStore {
+
+    void increment(Long userId, LocalDate today, LeaderboardMetric metric, Map<Long, Double> deltas);
+
+    List<LeaderboardEntry> top(Long userId, LocalDate today, LeaderboardWindow window, LeaderboardMetric metric, int limit);
+
+    void reset(Long userId);
+}
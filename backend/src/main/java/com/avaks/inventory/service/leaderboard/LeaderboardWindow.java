@@ -0,0 +1,32 @@
+package com.avaks.inventory.service.leaderboard;
+
+public enum LeaderboardWindow {
+    TODAY("today", 1),
+    LAST_7_DAYS("7d", 7),
+    LAST_30_DAYS("30d", 30);
+
+    private final String param;
+    private final int days;
+
+    LeaderboardWindow(String param, int days) {
+        this.param = param;
+        this.days = days;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public int days() {
+        return days;
+    }
+
+    public static LeaderboardWindow fromParam(String value) {
+        for (LeaderboardWindow window : values()) {
+            if (window.param.equalsIgnoreCase(value)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("window must be one of today, 7d, 30d");
+    }
+}
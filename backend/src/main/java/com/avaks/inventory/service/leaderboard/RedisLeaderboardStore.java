@@ -0,0 +1,184 @@
+package com.avaks.inventory.service.leaderboard;
+
+import com.avaks.inventory.config.RedisScripts;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sorted sets per tenant and metric: one per day plus one per rolling window. Scripts roll a
+ * window forward before touching it by subtracting the day sets that fell out of it, so the
+ * window sets always hold exact totals and reads are a single ZREVRANGE. Day keys are built
+ * inside the scripts, which assumes a single Redis node rather than a cluster.
+ */
+public class RedisLeaderboardStore implements LeaderboardStore {
+
+    private static final String KEY_PREFIX = "leaderboard:";
+    private static final Duration TTL = Duration.ofDays(LeaderboardWindow.LAST_30_DAYS.days() + 2L);
+    private static final List<LeaderboardWindow> ROLLING_WINDOWS = List.of(
+            LeaderboardWindow.LAST_7_DAYS,
+            LeaderboardWindow.LAST_30_DAYS);
+
+    private static final String ROLL_FUNCTION = """
+            local function roll(windowKey, asOfKey, days, today, dayPrefix, ttl, prune)
+              local asOf = tonumber(redis.call('GET', asOfKey) or '-1')
+              if asOf >= today then
+                return
+              end
+              if asOf < 0 or today - asOf >= days then
+                redis.call('DEL', windowKey)
+                for d = today - days + 1, today do
+                  local dayKey = dayPrefix .. d
+                  if redis.call('EXISTS', dayKey) == 1 then
+                    redis.call('ZUNIONSTORE', windowKey, 2, windowKey, dayKey)
+                  end
+                end
+              else
+                for d = asOf - days + 1, today - days do
+                  local dayKey = dayPrefix .. d
+                  if redis.call('EXISTS', dayKey) == 1 then
+                    redis.call('ZUNIONSTORE', windowKey, 2, windowKey, dayKey, 'WEIGHTS', 1, -1)
+                  end
+                end
+                if prune then
+                  redis.call('ZREMRANGEBYSCORE', windowKey, '-inf', 0)
+                end
+              end
+              redis.call('SET', asOfKey, today, 'EX', ttl)
+              redis.call('EXPIRE', windowKey, ttl)
+            end
+            """;
+
+    // KEYS: day, 7d window, 7d as-of, 30d window, 30d as-of. ARGV: today, day prefix, ttl, prune, then member/delta pairs.
+    private static final DefaultRedisScript<Long> INCREMENT = new DefaultRedisScript<>(ROLL_FUNCTION + """
+            local today = tonumber(ARGV[1])
+            local ttl = tonumber(ARGV[3])
+            local prune = ARGV[4] == '1'
+            roll(KEYS[2], KEYS[3], 7, today, ARGV[2], ttl, prune)
+            roll(KEYS[4], KEYS[5], 30, today, ARGV[2], ttl, prune)
+            for i = 5, #ARGV, 2 do
+              redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i])
+              redis.call('ZINCRBY', KEYS[2], ARGV[i + 1], ARGV[i])
+              redis.call('ZINCRBY', KEYS[4], ARGV[i + 1], ARGV[i])
+            end
+            redis.call('EXPIRE', KEYS[1], ttl)
+            redis.call('EXPIRE', KEYS[2], ttl)
+            redis.call('EXPIRE', KEYS[4], ttl)
+            return 1
+            """, Long.class);
+
+    // KEYS: window, as-of. ARGV: today, day prefix, ttl, prune, window days, limit.
+    private static final DefaultRedisScript<List<String>> ROLL_AND_RANGE = RedisScripts.listScript(ROLL_FUNCTION + """
+            roll(KEYS[1], KEYS[2], tonumber(ARGV[5]), tonumber(ARGV[1]), ARGV[2], tonumber(ARGV[3]), ARGV[4] == '1')
+            return redis.call('ZREVRANGE', KEYS[1], 0, tonumber(ARGV[6]) - 1, 'WITHSCORES')
+            """);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisLeaderboardStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void increment(Long userId, LocalDate today, LeaderboardMetric metric, Map<Long, Double> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        long day = today.toEpochDay();
+        List<String> keys = List.of(
+                dayPrefix(userId, metric) + day,
+                windowKey(userId, metric, LeaderboardWindow.LAST_7_DAYS),
+                asOfKey(userId, metric, LeaderboardWindow.LAST_7_DAYS),
+                windowKey(userId, metric, LeaderboardWindow.LAST_30_DAYS),
+                asOfKey(userId, metric, LeaderboardWindow.LAST_30_DAYS));
+
+        List<String> args = new ArrayList<>(4 + deltas.size() * 2);
+        args.add(String.valueOf(day));
+        args.add(dayPrefix(userId, metric));
+        args.add(String.valueOf(TTL.toSeconds()));
+        args.add(prune(metric));
+        deltas.forEach((productId, delta) -> {
+            args.add(String.valueOf(productId));
+            args.add(String.valueOf(delta));
+        });
+
+        redisTemplate.execute(INCREMENT, keys, args.toArray());
+    }
+
+    @Override
+    public List<LeaderboardEntry> top(Long userId, LocalDate today, LeaderboardWindow window, LeaderboardMetric metric, int limit) {
+        long day = today.toEpochDay();
+        if (window == LeaderboardWindow.TODAY) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                    .reverseRangeWithScores(dayPrefix(userId, metric) + day, 0, limit - 1L);
+            List<LeaderboardEntry> entries = new ArrayList<>();
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    if (tuple.getValue() != null && tuple.getScore() != null) {
+                        entries.add(new LeaderboardEntry(Long.parseLong(tuple.getValue()), tuple.getScore()));
+                    }
+                }
+            }
+            return entries;
+        }
+
+        List<String> flat = redisTemplate.execute(
+                ROLL_AND_RANGE,
+                List.of(windowKey(userId, metric, window), asOfKey(userId, metric, window)),
+                String.valueOf(day),
+                dayPrefix(userId, metric),
+                String.valueOf(TTL.toSeconds()),
+                prune(metric),
+                String.valueOf(window.days()),
+                String.valueOf(limit));
+
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        for (int i = 0; flat != null && i + 1 < flat.size(); i += 2) {
+            entries.add(new LeaderboardEntry(
+                    Long.parseLong(flat.get(i)),
+                    Double.parseDouble(flat.get(i + 1))));
+        }
+        return entries;
+    }
+
+    @Override
+    public void reset(Long userId) {
+        long today = LocalDate.now().toEpochDay();
+        List<String> keys = new ArrayList<>();
+        for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+            for (LeaderboardWindow window : ROLLING_WINDOWS) {
+                keys.add(windowKey(userId, metric, window));
+                keys.add(asOfKey(userId, metric, window));
+            }
+            for (long day = today - LeaderboardWindow.LAST_30_DAYS.days(); day <= today + 1; day++) {
+                keys.add(dayPrefix(userId, metric) + day);
+            }
+        }
+        redisTemplate.delete(keys);
+    }
+
+    private String dayPrefix(Long userId, LeaderboardMetric metric) {
+        return KEY_PREFIX + userId + ":" + metric.name().toLowerCase() + ":day:";
+    }
+
+    private String windowKey(Long userId, LeaderboardMetric metric, LeaderboardWindow window) {
+        return KEY_PREFIX + userId + ":" + metric.name().toLowerCase() + ":" + window.param();
+    }
+
+    private String asOfKey(Long userId, LeaderboardMetric metric, LeaderboardWindow window) {
+        return windowKey(userId, metric, window) + ":asof";
+    }
+
+    // Unit counts never go negative, so members that roll back to zero can be dropped; profit can.
+    private String prune(LeaderboardMetric metric) {
+        return metric == LeaderboardMetric.UNITS ? "1" : "0";
+    }
+}
@@ -0,0 +1,69 @@
+package com.avaks.inventory.service.otp;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Map<Long, StoredOtp> otps = new ConcurrentHashMap<>();
+    private final Map<String, Instant> cooldowns = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(Long userId, String otp, Duration ttl) {
+        otps.put(userId, new StoredOtp(otp, Instant.now().plus(ttl), 0));
+    }
+
+    @Override
+    public Optional<StoredOtp> find(Long userId) {
+        StoredOtp stored = otps.get(userId);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        if (!stored.expiresAt().isAfter(Instant.now())) {
+            otps.remove(userId, stored);
+            return Optional.empty();
+        }
+        return Optional.of(stored);
+    }
+
+    @Override
+    public int recordFailedAttempt(Long userId) {
+        StoredOtp updated = otps.computeIfPresent(userId, (id, stored) ->
+                new StoredOtp(stored.otp(), stored.expiresAt(), stored.failedAttempts() + 1));
+        return updated == null ? -1 : updated.failedAttempts();
+    }
+
+    @Override
+    public void delete(Long userId) {
+        otps.remove(userId);
+    }
+
+    @Override
+    public boolean tryStartCooldown(String email, Duration cooldown) {
+        Instant now = Instant.now();
+        boolean[] started = {false};
+        cooldowns.compute(email, (key, until) -> {
+            if (until != null && until.isAfter(now)) {
+                return until;
+            }
+            started[0] = true;
+            return now.plus(cooldown);
+        });
+        return started[0];
+    }
+
+    @Override
+    public void endCooldown(String email) {
+        cooldowns.remove(email);
+    }
+
+    @Override
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        otps.values().removeIf(stored -> !stored.expiresAt().isAfter(now));
+        cooldowns.values().removeIf(until -> !until.isAfter(now));
+    }
+}
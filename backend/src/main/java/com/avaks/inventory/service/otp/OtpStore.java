@@ -0,0 +1,35 @@
+package com.avaks.inventory.service.otp;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * TTL-backed storage for one-time passwords, keyed by user id, plus the per-email resend
+ * cooldown. Implementations must expire entries on their own.
+ */
+public interface OtpStore {
+
+    void save(Long userId, String otp, Duration ttl);
+
+    Optional<StoredOtp> find(Long userId);
+
+    /**
+     * Counts a wrong guess and returns the total so far, or -1 if the OTP no longer exists.
+     */
+    int recordFailedAttempt(Long userId);
+
+    void delete(Long userId);
+
+    /**
+     * Starts the resend cooldown for the email and returns false if one is already running.
+     */
+    boolean tryStartCooldown(String email, Duration cooldown);
+
+    /**
+     * Ends a running resend cooldown early, so the email can be sent a new OTP at once.
+     */
+    void endCooldown(String email);
+
+    default void purgeExpired() {
+    }
+}
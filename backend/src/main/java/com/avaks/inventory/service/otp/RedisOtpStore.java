@@ -0,0 +1,78 @@
+package com.avaks.inventory.service.otp;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class RedisOtpStore implements OtpStore {
+
+    private static final String OTP_KEY_PREFIX = "otp:";
+    private static final String COOLDOWN_KEY_PREFIX = "otp_cooldown:";
+
+    private static final DefaultRedisScript<Long> RECORD_FAILED_ATTEMPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              return redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+            end
+            return -1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisOtpStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void save(Long userId, String otp, Duration ttl) {
+        String key = OTP_KEY_PREFIX + userId;
+        Instant expiresAt = Instant.now().plus(ttl);
+        redisTemplate.opsForHash().putAll(key, Map.of(
+                "otp", otp,
+                "expiresAt", String.valueOf(expiresAt.toEpochMilli()),
+                "attempts", "0"
+        ));
+        redisTemplate.expire(key, ttl);
+    }
+
+    @Override
+    public Optional<StoredOtp> find(Long userId) {
+        Map<Object, Object> values = redisTemplate.opsForHash().entries(OTP_KEY_PREFIX + userId);
+        if (values == null || values.get("otp") == null || values.get("expiresAt") == null) {
+            return Optional.empty();
+        }
+
+        Object attempts = values.get("attempts");
+        return Optional.of(new StoredOtp(
+                values.get("otp").toString(),
+                Instant.ofEpochMilli(Long.parseLong(values.get("expiresAt").toString())),
+                attempts == null ? 0 : Integer.parseInt(attempts.toString())
+        ));
+    }
+
+    @Override
+    public int recordFailedAttempt(Long userId) {
+        Long attempts = redisTemplate.execute(RECORD_FAILED_ATTEMPT, List.of(OTP_KEY_PREFIX + userId));
+        return attempts == null ? -1 : attempts.intValue();
+    }
+
+    @Override
+    public void delete(Long userId) {
+        redisTemplate.delete(OTP_KEY_PREFIX + userId);
+    }
+
+    @Override
+    public boolean tryStartCooldown(String email, Duration cooldown) {
+        Boolean started = redisTemplate.opsForValue().setIfAbsent(COOLDOWN_KEY_PREFIX + email, "1", cooldown);
+        return Boolean.TRUE.equals(started);
+    }
+
+    @Override
+    public void endCooldown(String email) {
+        redisTemplate.delete(COOLDOWN_KEY_PREFIX + email);
+    }
+}
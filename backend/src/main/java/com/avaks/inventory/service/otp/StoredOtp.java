@@ -0,0 +1,6 @@
+package com.avaks.inventory.service.otp;
+
+import java.time.Instant;
+
+public record StoredOtp(String otp, Instant expiresAt, int failedAttempts) {
+}
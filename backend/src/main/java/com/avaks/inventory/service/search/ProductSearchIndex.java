@@ -0,0 +1,279 @@
+package com.avaks.inventory.service.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over one tenant's product names and descriptions. A query is answered by
+ * intersecting the posting sets of its trigrams, smallest first, and verifying the
+ * survivors; when that finds nothing, candidates sharing most trigrams with the query are
+ * ranked by overlap, which tolerates typos. Descriptions are indexed only up to a fixed
+ * length so memory per product stays bounded, and {@link #estimatedBytes()} lets the caller
+ * bound a whole tenant.
+ */
+public class ProductSearchIndex {
+
+    public enum MatchType {
+        NAME_PREFIX,
+        NAME,
+        DESCRIPTION,
+        FUZZY
+    }
+
+    public record Hit(long productId, String name, MatchType matchType, double score) {
+    }
+
+    private record Document(long id, String name, String normalizedName, String normalizedDescription) {
+    }
+
+    private static final int MAX_DESCRIPTION_CHARS = 256;
+    private static final double MIN_FUZZY_SIMILARITY = 0.4;
+
+    // Rough heap cost: a document's record, map entry and tree node, each indexed char (kept as both the
+    // original and the normalized string), and each posting's boxed id in its hash set.
+    private static final long DOCUMENT_BYTES = 200;
+    private static final long CHAR_BYTES = 4;
+    private static final long POSTING_BYTES = 48;
+
+    // Match type, then score descending, then shorter names, then id. Spelled out rather than
+    // chained because it runs for every candidate of a common query.
+    private static final Comparator<Hit> RANKING = (a, b) -> {
+        int order = a.matchType().compareTo(b.matchType());
+        if (order == 0) {
+            order = Double.compare(b.score(), a.score());
+        }
+        if (order == 0) {
+            order = Integer.compare(a.name().length(), b.name().length());
+        }
+        return order != 0 ? order : Long.compare(a.productId(), b.productId());
+    };
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final NavigableSet<Document> byName = new TreeSet<>(
+            Comparator.comparing(Document::normalizedName).thenComparingLong(Document::id));
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long indexedChars;
+    private long postingCount;
+
+    public void put(long productId, String name, String description) {
+        Document document = new Document(
+                productId,
+                name == null ? "" : name,
+                normalize(name),
+                truncate(normalize(description)));
+
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(productId, document);
+            if (previous != null) {
+                unindex(previous);
+            }
+            byName.add(document);
+            Set<String> grams = trigrams(document.normalizedName());
+            grams.addAll(trigrams(document.normalizedDescription()));
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, ignored -> new HashSet<>()).add(productId);
+            }
+            indexedChars += chars(document);
+            postingCount += grams.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(productId);
+            if (previous != null) {
+                unindex(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return documents.size() * DOCUMENT_BYTES + indexedChars * CHAR_BYTES + postingCount * POSTING_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Keeps only the best `limit` hits, worst on top, so a common query is not sorted whole.
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (Document document : exactCandidates(needle)) {
+                MatchType type = matchType(document, needle);
+                if (type != null) {
+                    offer(best, new Hit(document.id(), document.name(), type, 1.0), limit);
+                }
+            }
+
+            if (best.isEmpty() && needle.length() >= 3) {
+                fuzzyHits(needle).forEach(hit -> offer(best, hit, limit));
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(RANKING);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<Hit> best, Hit hit, int limit) {
+        best.add(hit);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    private Iterable<Document> exactCandidates(String needle) {
+        // Queries shorter than a trigram cannot use the postings and would match most of the
+        // catalog as substrings, so they only match name prefixes.
+        if (needle.length() < 3) {
+            return byName.subSet(
+                    new Document(Long.MIN_VALUE, "", needle, ""), true,
+                    new Document(Long.MIN_VALUE, "", needle + Character.MAX_VALUE, ""), true);
+        }
+
+        List<Set<Long>> sets = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            sets.add(posting);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        List<Document> candidates = new ArrayList<>();
+        for (Long id : sets.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < sets.size() && inAll; i++) {
+                inAll = sets.get(i).contains(id);
+            }
+            if (inAll) {
+                candidates.add(documents.get(id));
+            }
+        }
+        return candidates;
+    }
+
+    private List<Hit> fuzzyHits(String needle) {
+        Set<String> grams = trigrams(needle);
+        int needed = (int) Math.ceil(MIN_FUZZY_SIMILARITY * grams.size());
+        List<Set<Long>> sets = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            sets.add(postings.getOrDefault(gram, Set.of()));
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        // A document sharing `needed` grams must share one of the rarest size - needed + 1, so
+        // only those postings are walked; the others are just probed for the candidates found.
+        Set<Long> candidates = new HashSet<>();
+        for (Set<Long> posting : sets.subList(0, sets.size() - needed + 1)) {
+            candidates.addAll(posting);
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (Long id : candidates) {
+            int shared = 0;
+            for (Set<Long> posting : sets) {
+                if (posting.contains(id)) {
+                    shared++;
+                }
+            }
+            double similarity = (double) shared / grams.size();
+            if (similarity >= MIN_FUZZY_SIMILARITY) {
+                Document document = documents.get(id);
+                hits.add(new Hit(document.id(), document.name(), MatchType.FUZZY, similarity));
+            }
+        }
+        return hits;
+    }
+
+    private MatchType matchType(Document document, String needle) {
+        if (document.normalizedName().startsWith(needle)) {
+            return MatchType.NAME_PREFIX;
+        }
+        if (document.normalizedName().contains(needle)) {
+            return MatchType.NAME;
+        }
+        if (document.normalizedDescription().contains(needle)) {
+            return MatchType.DESCRIPTION;
+        }
+        return null;
+    }
+
+    private void unindex(Document document) {
+        byName.remove(document);
+        Set<String> grams = trigrams(document.normalizedName());
+        grams.addAll(trigrams(document.normalizedDescription()));
+        for (String gram : grams) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(document.id());
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        indexedChars -= chars(document);
+        postingCount -= grams.size();
+    }
+
+    private static long chars(Document document) {
+        return document.name().length() + document.normalizedDescription().length();
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String text) {
+        return text.length() > MAX_DESCRIPTION_CHARS ? text.substring(0, MAX_DESCRIPTION_CHARS) : text;
+    }
+}
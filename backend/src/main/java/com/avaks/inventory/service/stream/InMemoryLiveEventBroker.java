@@ -0,0 +1,17 @@
+package com.avaks.inventory.service.stream;
+
+import java.util.function.Consumer;
+
+public class InMemoryLiveEventBroker implements LiveEventBroker {
+
+    private final Consumer<LiveEvent> localDelivery;
+
+    public InMemoryLiveEventBroker(Consumer<LiveEvent> localDelivery) {
+        this.localDelivery = localDelivery;
+    }
+
+    @Override
+    public void publish(LiveEvent event) {
+        localDelivery.accept(event);
+    }
+}
@@ -0,0 +1,35 @@
+package com.avaks.inventory.service.stream;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryStreamTicketStore implements StreamTicketStore {
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(String ticket, String email, Duration ttl) {
+        tickets.put(ticket, new Ticket(email, Instant.now().plus(ttl)));
+    }
+
+    @Override
+    public Optional<String> redeem(String ticket) {
+        Ticket stored = tickets.remove(ticket);
+        if (stored == null || !stored.expiresAt().isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(stored.email());
+    }
+
+    @Override
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        tickets.values().removeIf(stored -> !stored.expiresAt().isAfter(now));
+    }
+
+    private record Ticket(String email, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.avaks.inventory.service.stream;
+
+import java.util.Map;
+
+/** One tenant-scoped change pushed to live streams; type becomes the SSE event name. */
+public record LiveEvent(Long userId, String type, Map<String, Object> data) {
+}
@@ -0,0 +1,10 @@
+package com.avaks.inventory.service.stream;
+
+/**
+ * Fans live events out to the streams held by every node. Delivery is best effort: a client
+ * that misses an event catches up through /api/sync or a list reload.
+ */
+public interface LiveEventBroker {
+
+    void publish(LiveEvent event);
+}
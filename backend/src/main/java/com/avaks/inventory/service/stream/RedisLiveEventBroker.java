@@ -0,0 +1,52 @@
+package com.avaks.inventory.service.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Publishes every event on one pub/sub channel; each node, including the publisher, delivers
+ * it to the streams it holds locally.
+ */
+public class RedisLiveEventBroker implements LiveEventBroker, MessageListener {
+
+    public static final String CHANNEL = "live_events";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisLiveEventBroker.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Consumer<LiveEvent> localDelivery;
+
+    public RedisLiveEventBroker(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                Consumer<LiveEvent> localDelivery) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localDelivery = localDelivery;
+    }
+
+    @Override
+    public void publish(LiveEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize live event", ex);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            localDelivery.accept(objectMapper.readValue(message.getBody(), LiveEvent.class));
+        } catch (IOException ex) {
+            LOGGER.warn("Dropping malformed live event: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.avaks.inventory.service.stream;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class RedisStreamTicketStore implements StreamTicketStore {
+
+    private static final String KEY_PREFIX = "stream_ticket:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisStreamTicketStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void save(String ticket, String email, Duration ttl) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + ticket, email, ttl);
+    }
+
+    @Override
+    public Optional<String> redeem(String ticket) {
+        return Optional.ofNullable(redisTemplate.opsForValue().getAndDelete(KEY_PREFIX + ticket));
+    }
+
+    @Override
+    public void purgeExpired() {
+        // Keys expire on their own.
+    }
+}
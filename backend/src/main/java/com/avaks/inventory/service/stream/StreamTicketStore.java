@@ -0,0 +1,19 @@
+package com.avaks.inventory.service.stream;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Single-use tickets that open a live stream. EventSource cannot send an Authorization header,
+ * so the client trades its JWT for a ticket and puts that in the stream URL instead; a logged
+ * URL then holds nothing that still works.
+ */
+public interface StreamTicketStore {
+
+    void save(String ticket, String email, Duration ttl);
+
+    /** Returns the ticket's owner and invalidates the ticket, or empty if unknown or expired. */
+    Optional<String> redeem(String ticket);
+
+    void purgeExpired();
+}
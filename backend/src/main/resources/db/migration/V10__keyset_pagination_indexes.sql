@@ -0,0 +1,4 @@
+-- Keyset pages sorted by name seek on (user_id, name, id). Pages sorted by id use the existing
+-- user_id indexes, which InnoDB already extends with the primary key.
+CREATE INDEX IF NOT EXISTS idx_product_user_name ON product (user_id, name);
+CREATE INDEX IF NOT EXISTS idx_supplier_user_name ON supplier (user_id, name);
@@ -0,0 +1,31 @@
+ALTER TABLE product
+    ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE supplier
+    ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_product_user_change_version ON product (user_id, change_version);
+CREATE INDEX IF NOT EXISTS idx_supplier_user_change_version ON supplier (user_id, change_version);
+
+-- One counter row per tenant. Writers take the next version with an upsert that locks the row
+-- until commit, so versions become visible in commit order. tombstone_floor is the highest
+-- version whose tombstones may already have been purged.
+CREATE TABLE IF NOT EXISTS tenant_change_version (
+    user_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    tombstone_floor BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_tenant_change_version_user FOREIGN KEY (user_id) REFERENCES `user`(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS sync_tombstone (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    deleted_at DATETIME(6) NOT NULL,
+    CONSTRAINT fk_sync_tombstone_user FOREIGN KEY (user_id) REFERENCES `user`(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_sync_tombstone_user_version ON sync_tombstone (user_id, change_version);
+CREATE INDEX IF NOT EXISTS idx_sync_tombstone_deleted_at ON sync_tombstone (deleted_at);
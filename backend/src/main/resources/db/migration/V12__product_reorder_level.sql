@@ -0,0 +1,9 @@
+ALTER TABLE product
+    ADD COLUMN IF NOT EXISTS reorder_level INT NOT NULL DEFAULT 0;
+
+-- Low stock means stock_headroom <= 0, so the alert query is a range scan over only the
+-- tenant's low rows instead of a pass over the whole catalog.
+ALTER TABLE product
+    ADD COLUMN IF NOT EXISTS stock_headroom INT AS (stock - reorder_level) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_product_user_stock_headroom ON product (user_id, stock_headroom);
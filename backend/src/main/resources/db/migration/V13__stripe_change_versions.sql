@@ -0,0 +1,6 @@
+-- Hot-mode sales write only stripe rows, so the stripes carry their own change version.
+ALTER TABLE product_stock_stripe
+    ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+-- Commits swap a transaction's placeholder version for the real one by looking it up here.
+CREATE INDEX IF NOT EXISTS idx_product_stock_stripe_change_version ON product_stock_stripe (change_version);
@@ -0,0 +1,9 @@
+-- Rows now store a template name and its parameters instead of the rendered HTML, so an OTP is
+-- not kept at rest once the email is sent. Older rows keep html_body until they finish.
+ALTER TABLE email_outbox
+    MODIFY COLUMN html_body MEDIUMTEXT NULL,
+    ADD COLUMN IF NOT EXISTS template VARCHAR(64) NULL,
+    ADD COLUMN IF NOT EXISTS template_params TEXT NULL;
+
+-- Finished rows are no longer needed; drop their bodies now and let the retention sweep delete them.
+UPDATE email_outbox SET html_body = NULL WHERE status IN ('SENT', 'FAILED');
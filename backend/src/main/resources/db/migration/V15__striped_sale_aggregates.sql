@@ -0,0 +1,16 @@
+-- Sales of hot products add to one of several aggregate rows per bucket and per tenant, so they
+-- do not all queue on the same rollup and profit rows. Readers sum over the stripes.
+ALTER TABLE sales_rollup_hourly
+    ADD COLUMN IF NOT EXISTS stripe INT NOT NULL DEFAULT 0,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (user_id, bucket_start, product_id, stripe);
+
+ALTER TABLE sales_rollup_daily
+    ADD COLUMN IF NOT EXISTS stripe INT NOT NULL DEFAULT 0,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (user_id, bucket_start, product_id, stripe);
+
+ALTER TABLE profit_summary
+    ADD COLUMN IF NOT EXISTS stripe INT NOT NULL DEFAULT 0,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (user_id, stripe);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_user_verified_created_at ON `user` (is_verified, created_at);
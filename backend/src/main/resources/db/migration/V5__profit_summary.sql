@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS profit_summary (
+    user_id BIGINT PRIMARY KEY,
+    total_profit DOUBLE NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NOT NULL,
+    CONSTRAINT fk_profit_summary_user FOREIGN KEY (user_id) REFERENCES `user`(id) ON DELETE CASCADE
+);
+
+INSERT INTO profit_summary (user_id, total_profit, updated_at)
+SELECT pr.user_id, pr.profit, pr.timestamp
+FROM profit_record pr
+JOIN (
+    SELECT user_id, MAX(id) AS latest_id
+    FROM profit_record
+    WHERE user_id IS NOT NULL
+    GROUP BY user_id
+) latest ON latest.latest_id = pr.id
+ON DUPLICATE KEY UPDATE total_profit = VALUES(total_profit), updated_at = VALUES(updated_at);
+
+CREATE INDEX IF NOT EXISTS idx_profit_record_user_timestamp ON profit_record (user_id, timestamp);
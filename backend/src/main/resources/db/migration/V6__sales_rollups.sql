@@ -0,0 +1,44 @@
+CREATE TABLE IF NOT EXISTS sales_rollup_hourly (
+    user_id BIGINT NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    product_id BIGINT NOT NULL DEFAULT 0,
+    quantity BIGINT NOT NULL DEFAULT 0,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    profit DOUBLE NOT NULL DEFAULT 0,
+    sale_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, bucket_start, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS sales_rollup_daily (
+    user_id BIGINT NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    product_id BIGINT NOT NULL DEFAULT 0,
+    quantity BIGINT NOT NULL DEFAULT 0,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    profit DOUBLE NOT NULL DEFAULT 0,
+    sale_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, bucket_start, product_id)
+);
+
+-- Historical sales only carry a product name; match it to the tenant's product where possible
+-- and fall back to product_id 0 ("unknown") otherwise.
+INSERT INTO sales_rollup_hourly (user_id, bucket_start, product_id, quantity, revenue, profit, sale_count)
+SELECT user_id, bucket_start, product_id, SUM(quantity_sold), SUM(total_bill_amount), SUM(profit_earned), COUNT(*)
+FROM (
+    SELECT s.user_id,
+           DATE_FORMAT(s.timestamp, '%Y-%m-%d %H:00:00') AS bucket_start,
+           COALESCE((SELECT MIN(p.id) FROM product p WHERE p.user_id = s.user_id AND p.name = s.product_name), 0) AS product_id,
+           s.quantity_sold,
+           s.total_bill_amount,
+           s.profit_earned
+    FROM sale s
+    WHERE s.user_id IS NOT NULL AND s.timestamp IS NOT NULL
+) history
+GROUP BY user_id, bucket_start, product_id
+ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), revenue = VALUES(revenue), profit = VALUES(profit), sale_count = VALUES(sale_count);
+
+INSERT INTO sales_rollup_daily (user_id, bucket_start, product_id, quantity, revenue, profit, sale_count)
+SELECT user_id, DATE(bucket_start), product_id, SUM(quantity), SUM(revenue), SUM(profit), SUM(sale_count)
+FROM sales_rollup_hourly
+GROUP BY user_id, DATE(bucket_start), product_id
+ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), revenue = VALUES(revenue), profit = VALUES(profit), sale_count = VALUES(sale_count);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_sale_user_timestamp ON sale (user_id, timestamp);
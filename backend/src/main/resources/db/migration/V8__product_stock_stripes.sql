@@ -0,0 +1,10 @@
+ALTER TABLE product
+    ADD COLUMN IF NOT EXISTS hot_stripes INT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS product_stock_stripe (
+    product_id BIGINT NOT NULL,
+    stripe INT NOT NULL,
+    stock INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id, stripe),
+    CONSTRAINT fk_product_stock_stripe_product FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
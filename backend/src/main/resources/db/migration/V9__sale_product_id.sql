@@ -0,0 +1,10 @@
+ALTER TABLE sale
+    ADD COLUMN IF NOT EXISTS product_id BIGINT NULL;
+
+UPDATE sale s
+SET s.product_id = (
+    SELECT MIN(p.id) FROM product p WHERE p.user_id = s.user_id AND p.name = s.product_name
+)
+WHERE s.product_id IS NULL AND s.user_id IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_sale_user_product_timestamp ON sale (user_id, product_id, timestamp);
@@ -0,0 +1,90 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.dto.ProductDTO;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.service.etag.InMemoryCollectionVersionStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CollectionVersionServiceTest {
+
+    private static final long USER_ID = 7L;
+    private static final long PRODUCT_ID = 1L;
+
+    private final CollectionVersionService collectionVersionService =
+            new CollectionVersionService(new InMemoryCollectionVersionStore(), new ConcurrentMapCacheManager());
+
+    @Test
+    void productUpdateChangesTheOrdersTag() {
+        String products = productsTag();
+        String orders = ordersTag();
+
+        productService().updateProduct(PRODUCT_ID, productDetails());
+
+        assertThat(productsTag()).isNotEqualTo(products);
+        assertThat(ordersTag()).isNotEqualTo(orders);
+    }
+
+    @Test
+    void supplierChangeMovesTheOrdersTagButNotTheProductsTag() {
+        String products = productsTag();
+        String orders = ordersTag();
+
+        collectionVersionService.bumpAfterCommit(USER_ID, CollectionVersionService.VersionedCollection.SUPPLIERS);
+
+        assertThat(productsTag()).isEqualTo(products);
+        assertThat(ordersTag()).isNotEqualTo(orders);
+    }
+
+    @Test
+    void tagIsStableWithoutWrites() {
+        assertThat(ordersTag()).isEqualTo(ordersTag()).startsWith("\"orders-").endsWith("\"");
+    }
+
+    private String ordersTag() {
+        return collectionVersionService.etag(USER_ID, CollectionVersionService.VersionedCollection.ORDERS, "orders");
+    }
+
+    private String productsTag() {
+        return collectionVersionService.etag(USER_ID, CollectionVersionService.VersionedCollection.PRODUCTS, "products");
+    }
+
+    private ProductService productService() {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("Tea");
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findByIdAndUserId(PRODUCT_ID, USER_ID)).thenReturn(Optional.of(product));
+        when(productRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentUserId()).thenReturn(USER_ID);
+
+        ProductService service = new ProductService();
+        ReflectionTestUtils.setField(service, "productRepository", productRepository);
+        ReflectionTestUtils.setField(service, "userService", userService);
+        ReflectionTestUtils.setField(service, "stockStripeService", mock(StockStripeService.class));
+        ReflectionTestUtils.setField(service, "productSearchService", mock(ProductSearchService.class));
+        ReflectionTestUtils.setField(service, "syncService", mock(SyncService.class));
+        ReflectionTestUtils.setField(service, "collectionVersionService", collectionVersionService);
+        ReflectionTestUtils.setField(service, "liveEventService", mock(LiveEventService.class));
+        return service;
+    }
+
+    private static ProductDTO productDetails() {
+        ProductDTO details = new ProductDTO();
+        details.setName("Green Tea");
+        details.setPrice(1.0);
+        details.setSellingPrice(2.5);
+        details.setStock(40);
+        return details;
+    }
+}
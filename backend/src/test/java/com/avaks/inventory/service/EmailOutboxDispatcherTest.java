@@ -0,0 +1,124 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.model.EmailOutbox;
+import com.avaks.inventory.repository.EmailOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxDispatcherTest {
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final EmailService emailService = new EmailService(repository, new ObjectMapper());
+    private SmtpSink smtp;
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtp = new SmtpSink();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.port());
+
+        dispatcher = new EmailOutboxDispatcher(repository, emailService, mailSender,
+                new FakeTransactionManager(0), new SimpleMeterRegistry(), 1);
+        ReflectionTestUtils.setField(dispatcher, "senderEmail", "noreply@example.com");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(dispatcher, "retentionDays", 14L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dispatcher.shutdown();
+        smtp.close();
+    }
+
+    @Test
+    void sendsTheBatchOverOneConnectionAndRetriesRejectedRecipients() {
+        EmailOutbox otp = queued(1L, () -> emailService.sendOtpEmail("alice@example.com", "Alice's <Shop>", "482913", 10));
+        EmailOutbox welcome = queued(2L, () -> emailService.sendWelcomeEmail("bob@example.com", "Bob Store"));
+        EmailOutbox bounce = queued(3L, () -> emailService.sendWelcomeEmail("bounce@example.com", "Gone"));
+        when(repository.lockDueBatch(any(LocalDateTime.class), anyInt())).thenReturn(List.of(otp, welcome, bounce));
+
+        dispatcher.dispatch();
+
+        assertThat(smtp.connections).hasSize(1);
+        assertThat(smtp.received).hasSize(2);
+        SmtpSink.Received otpMail = smtp.received.stream()
+                .filter(mail -> mail.recipients().contains("alice@example.com"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(otpMail.body()).contains("482913").contains("Alice&#39;s &lt;Shop&gt;");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> sentIds = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).markSent(sentIds.capture(), any(LocalDateTime.class));
+        assertThat(sentIds.getValue()).containsExactlyInAnyOrder(1L, 2L);
+        verify(repository).markRetry(eq(3L), any(LocalDateTime.class), anyString());
+        verify(repository, never()).markFailed(any(), any(), any());
+    }
+
+    @Test
+    void queuedRowsHoldTheTemplateNotTheRenderedOtp() {
+        EmailOutbox otp = queued(1L, () -> emailService.sendPasswordResetOtpEmail("alice@example.com", "Shop", "482913", 10));
+
+        assertThat(otp.getHtmlBody()).isNull();
+        assertThat(otp.getTemplate()).isEqualTo("PASSWORD_RESET");
+        assertThat(emailService.render(otp)).contains("482913").contains("10 minutes");
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        EmailOutbox bounce = queued(3L, () -> emailService.sendWelcomeEmail("bounce@example.com", "Gone"));
+        bounce.setAttempts(7);
+        when(repository.lockDueBatch(any(LocalDateTime.class), anyInt())).thenReturn(List.of(bounce));
+
+        dispatcher.dispatch();
+
+        verify(repository).markFailed(eq(3L), any(LocalDateTime.class), anyString());
+        verify(repository, never()).markRetry(any(), any(), any());
+    }
+
+    @Test
+    void purgesFinishedRowsInChunks() {
+        when(repository.deleteFinishedBefore(any(LocalDateTime.class), anyInt())).thenReturn(1000, 1000, 3);
+
+        dispatcher.purgeFinished();
+
+        verify(repository, times(3)).deleteFinishedBefore(any(LocalDateTime.class), eq(1000));
+    }
+
+    private EmailOutbox queued(Long id, Runnable enqueue) {
+        ArgumentCaptor<EmailOutbox> saved = ArgumentCaptor.forClass(EmailOutbox.class);
+        enqueue.run();
+        verify(repository, atLeastOnce()).save(saved.capture());
+        EmailOutbox email = saved.getValue();
+        email.setId(id);
+        return email;
+    }
+}
@@ -0,0 +1,56 @@
+package com.avaks.inventory.service;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transaction manager without a database. Commits are serialized on one lock and each takes
+ * commitLatencyMicros, modelling a redo log that fsyncs one commit at a time.
+ */
+class FakeTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final long commitLatencyMicros;
+    private final ReentrantLock logDevice = new ReentrantLock();
+
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger rollbacks = new AtomicInteger();
+
+    FakeTransactionManager(long commitLatencyMicros) {
+        this.commitLatencyMicros = commitLatencyMicros;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        logDevice.lock();
+        try {
+            if (commitLatencyMicros > 0) {
+                long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(commitLatencyMicros);
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+            commits.incrementAndGet();
+        } finally {
+            logDevice.unlock();
+        }
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        rollbacks.incrementAndGet();
+    }
+}
@@ -0,0 +1,99 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.service.leaderboard.InMemoryLeaderboardStore;
+import com.avaks.inventory.service.leaderboard.LeaderboardEntry;
+import com.avaks.inventory.service.leaderboard.LeaderboardMetric;
+import com.avaks.inventory.service.leaderboard.LeaderboardWindow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Top sellers over seven days from the leaderboard store, seeded from daily rollups and then
+ * fed live sales, against grouping the raw sale rows the way a GROUP BY over the sale table
+ * would. Run with {@code mvn test -Dtest=LeaderboardBenchmarkTest -Dbenchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class LeaderboardBenchmarkTest {
+
+    private static final long USER_ID = 1L;
+    private static final int PRODUCTS = 5_000;
+    private static final int SALES = 300_000;
+    private static final int READS = 2_000;
+    private static final int LIMIT = 10;
+
+    private record SaleRow(long productId, long epochDay, int quantity) {
+    }
+
+    @Test
+    void storeAnswersWithoutScanningSales() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<SaleRow> sales = new ArrayList<>(SALES);
+        Map<LocalDate, Map<Long, Long>> rollups = new HashMap<>();
+        for (int i = 0; i < SALES; i++) {
+            // Skewed towards low ids so there is a clear top.
+            long productId = 1 + (long) (PRODUCTS * Math.pow(random.nextDouble(), 3));
+            LocalDate day = today.minusDays(random.nextInt(LeaderboardWindow.LAST_30_DAYS.days()));
+            int quantity = 1 + random.nextInt(5);
+            sales.add(new SaleRow(productId, day.toEpochDay(), quantity));
+            rollups.computeIfAbsent(day, ignored -> new HashMap<>()).merge(productId, (long) quantity, Long::sum);
+        }
+
+        InMemoryLeaderboardStore store = new InMemoryLeaderboardStore();
+        rollups.forEach((day, totals) -> totals.forEach((productId, quantity) ->
+                store.seed(USER_ID, day, productId, quantity, quantity * 2.5)));
+
+        long[] storeReads = new long[READS];
+        long[] scanReads = new long[READS];
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < READS; i++) {
+                // A live sale between reads, as in production.
+                long productId = 1 + random.nextInt(PRODUCTS);
+                store.increment(USER_ID, today, LeaderboardMetric.UNITS, Map.of(productId, 1.0));
+                sales.add(new SaleRow(productId, today.toEpochDay(), 1));
+
+                long startedAt = System.nanoTime();
+                store.top(USER_ID, today, LeaderboardWindow.LAST_7_DAYS, LeaderboardMetric.UNITS, LIMIT);
+                storeReads[i] = System.nanoTime() - startedAt;
+
+                if (i % 20 == 0) {
+                    startedAt = System.nanoTime();
+                    scanTop(sales, today.toEpochDay() - LeaderboardWindow.LAST_7_DAYS.days());
+                    scanReads[i] = System.nanoTime() - startedAt;
+                }
+            }
+        }
+
+        long[] scanned = Arrays.stream(scanReads).filter(nanos -> nanos > 0).sorted().toArray();
+        Arrays.sort(storeReads);
+        assertThat(store.top(USER_ID, today, LeaderboardWindow.LAST_7_DAYS, LeaderboardMetric.UNITS, LIMIT))
+                .isEqualTo(scanTop(sales, today.toEpochDay() - LeaderboardWindow.LAST_7_DAYS.days()));
+        assertThat(storeReads[READS * 99 / 100]).isLessThan(scanned[0]);
+    }
+
+    private static List<LeaderboardEntry> scanTop(List<SaleRow> sales, long afterDay) {
+        Map<Long, Double> units = new HashMap<>();
+        for (SaleRow sale : sales) {
+            if (sale.epochDay() > afterDay) {
+                units.merge(sale.productId(), (double) sale.quantity(), Double::sum);
+            }
+        }
+        return units.entrySet().stream()
+                .map(entry -> new LeaderboardEntry(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(LeaderboardEntry::score).reversed()
+                        .thenComparingLong(LeaderboardEntry::productId))
+                .limit(LIMIT)
+                .toList();
+    }
+}
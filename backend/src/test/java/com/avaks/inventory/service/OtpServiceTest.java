@@ -0,0 +1,58 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.exception.OtpCooldownException;
+import com.avaks.inventory.model.User;
+import com.avaks.inventory.service.otp.InMemoryOtpStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OtpServiceTest {
+
+    private final InMemoryOtpStore otpStore = new InMemoryOtpStore();
+    private final OtpService otpService = new OtpService(otpStore);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new FakeTransactionManager(0));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(otpService, "otpExpirationMinutes", 10L);
+        ReflectionTestUtils.setField(otpService, "resendCooldownSeconds", 60L);
+        ReflectionTestUtils.setField(otpService, "maxAttempts", 5);
+    }
+
+    @Test
+    void rolledBackRegistrationLeavesNoOtpAndNoCooldown() {
+        User user = user();
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            otpService.generateAndStoreOtp(user);
+            throw new IllegalStateException("outbox enqueue failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(otpStore.find(user.getId())).isEmpty();
+        assertThat(otpStore.tryStartCooldown(user.getEmail(), Duration.ofSeconds(60))).isTrue();
+    }
+
+    @Test
+    void committedRegistrationKeepsTheOtpAndTheCooldown() {
+        User user = user();
+
+        String otp = transactionTemplate.execute(status -> otpService.generateAndStoreOtp(user));
+
+        assertThat(otpStore.find(user.getId())).hasValueSatisfying(stored -> assertThat(stored.otp()).isEqualTo(otp));
+        assertThatThrownBy(() -> otpService.generateAndStoreOtp(user)).isInstanceOf(OtpCooldownException.class);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(3L);
+        user.setEmail("owner@example.com");
+        return user;
+    }
+}
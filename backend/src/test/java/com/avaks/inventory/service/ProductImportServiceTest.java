@@ -0,0 +1,117 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.exception.ProductImportException;
+import com.avaks.inventory.repository.ProductImportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductImportServiceTest {
+
+    private static final long USER_ID = 7L;
+
+    private final ProductImportRepository productImportRepository = mock(ProductImportRepository.class);
+    private final ProductSearchService productSearchService = mock(ProductSearchService.class);
+    private final TenantCacheEvictor tenantCacheEvictor = mock(TenantCacheEvictor.class);
+    private final FakeTransactionManager transactionManager = new FakeTransactionManager(0);
+    private ProductImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductImportService(
+                productImportRepository,
+                productSearchService,
+                mock(SyncService.class),
+                mock(CollectionVersionService.class),
+                mock(LiveEventService.class),
+                tenantCacheEvictor,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(),
+                transactionManager,
+                new SimpleMeterRegistry(),
+                1);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxRows", 100L);
+        ReflectionTestUtils.setField(service, "maxErrors", 10);
+        when(productImportRepository.loadSuppliers(USER_ID))
+                .thenReturn(new ProductImportRepository.SupplierLookup(Set.of(1L), Map.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void importStoppedPartWayEvictsListsAndReportsWhatWasImported() {
+        doNothing().doThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .when(productImportRepository).insertProducts(eq(USER_ID), any(), anyLong());
+
+        ProductImportException ex = catchThrowableOfType(
+                () -> service.importProducts(USER_ID, ProductImportService.Format.CSV, csv(
+                        "name,price,sellingPrice,stock,supplierId",
+                        "Tea,1,2,10,1",
+                        "Coffee,1,2,10,1",
+                        "Cocoa,1,2,10,1",
+                        "Mate,1,2,10,1")),
+                ProductImportException.class);
+
+        assertThat(ex.getImported()).isEqualTo(2);
+        assertThat(ex.getMessage()).startsWith("Import stopped after 2 products were imported");
+        assertThat(transactionManager.commits.get()).isEqualTo(1);
+        assertThat(transactionManager.rollbacks.get()).isEqualTo(1);
+        verify(tenantCacheEvictor).evictProductListsForCurrentUser();
+        verify(productSearchService).invalidateAfterCommit(USER_ID);
+    }
+
+    @Test
+    void headerWithoutRequiredColumnsImportsNothing() {
+        ProductImportException ex = catchThrowableOfType(
+                () -> service.importProducts(USER_ID, ProductImportService.Format.CSV, csv("name,price", "Tea,1")),
+                ProductImportException.class);
+
+        assertThat(ex.getImported()).isZero();
+        assertThat(ex.getCause()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ex.getMessage()).isEqualTo("CSV header is missing required columns: sellingprice, stock");
+        verify(tenantCacheEvictor, never()).evictProductListsForCurrentUser();
+    }
+
+    @Test
+    void completedImportEvictsListsOnce() {
+        ProductImportService.ImportReport report = service.importProducts(USER_ID, ProductImportService.Format.CSV, csv(
+                "name,price,sellingPrice,stock,supplierId",
+                "Tea,1,2,10,1",
+                "Coffee,1,2,10,9"));
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failed()).isEqualTo(1);
+        verify(tenantCacheEvictor).evictProductListsForCurrentUser();
+    }
+
+    private static InputStream csv(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
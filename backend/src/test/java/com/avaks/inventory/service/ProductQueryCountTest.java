@@ -0,0 +1,176 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.dto.ProductSaleDTO;
+import com.avaks.inventory.dto.ProductViewDTO;
+import com.avaks.inventory.model.Order;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.model.Supplier;
+import com.avaks.inventory.model.User;
+import com.avaks.inventory.repository.OrderRepository;
+import com.avaks.inventory.repository.StockStripeRepository;
+import com.avaks.inventory.repository.SyncRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the Hibernate statements behind the product list and sale-info endpoints and the order
+ * list, so a lazy association or per-row lookup sneaking back in fails the build. The stripe
+ * totals for hot products are one JdbcTemplate query on top, which Hibernate does not count.
+ * Runs on H2; the stripe table is created by hand because it has no entity.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querycount;MODE=MySQL;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductService.class, StockStripeService.class, StockStripeRepository.class, ChangeVersionService.class, SyncRepository.class})
+@Sql(statements = "CREATE TABLE IF NOT EXISTS product_stock_stripe (product_id BIGINT NOT NULL, stripe INT NOT NULL, "
+        + "stock INT NOT NULL DEFAULT 0, change_version BIGINT NOT NULL DEFAULT 0, PRIMARY KEY (product_id, stripe))")
+class ProductQueryCountTest {
+
+    private static final int PRODUCTS = 30;
+    private static final int SUPPLIERS = 6;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private ProductSearchService productSearchService;
+
+    @MockBean
+    private SyncService syncService;
+
+    @MockBean
+    private CollectionVersionService collectionVersionService;
+
+    @MockBean
+    private LiveEventService liveEventService;
+
+    @MockBean
+    private LowStockService lowStockService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("owner@example.com");
+        user.setStoreName("Store");
+        entityManager.persist(user);
+
+        Supplier[] suppliers = new Supplier[SUPPLIERS];
+        for (int i = 0; i < SUPPLIERS; i++) {
+            Supplier supplier = new Supplier();
+            supplier.setName("Supplier " + i);
+            supplier.setContactPerson("Contact " + i);
+            supplier.setPhone("555-000" + i);
+            supplier.setUser(user);
+            suppliers[i] = entityManager.persist(supplier);
+        }
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setPrice(1.0);
+            product.setSellingPrice(2.0);
+            // Hot products' rows hold a stale copy; the stripes below hold the real 100.
+            product.setStock(i < 2 ? 75 : 100);
+            product.setSupplier(suppliers[i % SUPPLIERS]);
+            product.setUser(user);
+            // A couple of hot products, so the stripe totals lookup runs too.
+            product.setHotStripes(i < 2 ? 2 : 0);
+            entityManager.persist(product);
+            if (i < 2) {
+                entityManager.getEntityManager().createNativeQuery(
+                                "INSERT INTO product_stock_stripe (product_id, stripe, stock) VALUES (?1, 0, 40), (?1, 1, 60)")
+                        .setParameter(1, product.getId())
+                        .executeUpdate();
+            }
+
+            Order order = new Order();
+            order.setProduct(product);
+            order.setUser(user);
+            order.setQuantity(1);
+            order.setOrderDate(LocalDateTime.now());
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        when(userService.getCurrentUserId()).thenReturn(user.getId());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void productListIsOneQuery() {
+        List<ProductViewDTO> products = productService.getAllProducts();
+
+        assertThat(products).hasSize(PRODUCTS);
+        assertThat(products).allSatisfy(product -> assertThat(product.getSupplierName()).isNotNull());
+        // Hot product: stock comes from its stripes.
+        assertThat(products)
+                .filteredOn(product -> product.getName().equals("Product 0"))
+                .singleElement()
+                .satisfies(product -> assertThat(product.getStock()).isEqualTo(100));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void productPageIsOneQuery() {
+        productService.getProductsPage(10, null, "name");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void saleInfoIsOneQuery() {
+        List<ProductSaleDTO> products = productService.getAllProductsForSale();
+
+        assertThat(products).hasSize(PRODUCTS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void orderListSerializesWithoutFurtherQueries() throws Exception {
+        List<Order> orders = orderRepository.findAllByUserId(userService.getCurrentUserId());
+        String json = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(orders);
+
+        assertThat(orders).hasSize(PRODUCTS);
+        assertThat(json).contains("Supplier 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
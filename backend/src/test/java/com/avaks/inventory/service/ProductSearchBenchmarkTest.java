@@ -0,0 +1,116 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.service.search.ProductSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Search latency for a tenant at the default app.search.max-documents-per-tenant, against
+ * scanning every product the way the LIKE fallback does. Queries mix typed name prefixes,
+ * single words and names with two letters swapped. Run with
+ * {@code mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ProductSearchBenchmarkTest {
+
+    private static final int PRODUCTS = 20_000;
+    private static final int QUERIES = 5_000;
+    private static final int LIMIT = 20;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void indexAnswersWithinAMillisecondAtTheTenantBound() {
+        Random random = new Random(42);
+        String[] words = words(random, 2_000);
+        List<String> names = new ArrayList<>(PRODUCTS);
+        List<String> scanned = new ArrayList<>(PRODUCTS);
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (int i = 0; i < PRODUCTS; i++) {
+            String name = pick(random, words) + " " + pick(random, words) + " " + i;
+            String description = "Grade " + random.nextInt(10) + " " + pick(random, words);
+            names.add(name);
+            scanned.add((name + " " + description).toLowerCase(Locale.ROOT));
+            index.put(i, name, description);
+        }
+
+        List<String> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            String name = names.get(random.nextInt(PRODUCTS));
+            switch (random.nextInt(3)) {
+                case 0 -> queries.add(name.substring(0, 2 + random.nextInt(name.length() - 2)));
+                case 1 -> queries.add(name.split(" ")[1]);
+                default -> {
+                    char[] chars = name.toCharArray();
+                    int at = random.nextInt(chars.length - 1);
+                    char swapped = chars[at];
+                    chars[at] = chars[at + 1];
+                    chars[at + 1] = swapped;
+                    queries.add(new String(chars));
+                }
+            }
+        }
+
+        long[] indexed = latencies(queries, query -> index.search(query, LIMIT));
+        long[] scan = latencies(queries, query -> {
+            String needle = query.toLowerCase(Locale.ROOT);
+            List<String> matches = new ArrayList<>();
+            for (String product : scanned) {
+                if (product.contains(needle)) {
+                    matches.add(product);
+                }
+            }
+            matches.sort(null);
+        });
+
+        assertThat(percentile(indexed, 99)).isLessThan(1_000_000L);
+        assertThat(percentile(indexed, 50)).isLessThan(percentile(scan, 50));
+    }
+
+    // The last round is measured; the earlier ones warm up the JIT.
+    private static long[] latencies(List<String> queries, Consumer<String> search) {
+        long[] nanos = new long[queries.size()];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < queries.size(); i++) {
+                long startedAt = System.nanoTime();
+                search.accept(queries.get(i));
+                nanos[i] = System.nanoTime() - startedAt;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[sorted.length * percentile / 100];
+    }
+
+    // Pronounceable words of two to four syllables, so trigrams are about as varied as in a real catalog.
+    private static String[] words(Random random, int count) {
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                word.append(consonants.charAt(random.nextInt(consonants.length())))
+                        .append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
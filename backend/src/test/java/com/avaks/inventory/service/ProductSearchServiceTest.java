@@ -0,0 +1,151 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.service.search.ProductSearchIndex;
+import com.avaks.inventory.service.stream.LiveEvent;
+import com.avaks.inventory.service.stream.LiveEventBroker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductSearchServiceTest {
+
+    private static final long USER_ID = 7L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final LiveEventBroker liveEventBroker = mock(LiveEventBroker.class);
+    private final List<Object[]> rows = new ArrayList<>();
+    private ProductSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductSearchService(productRepository, liveEventBroker, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxTenants", 10);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(service, "maxDocumentsPerTenant", 3L);
+        ReflectionTestUtils.setField(service, "maxBytesPerTenant", Long.MAX_VALUE);
+
+        rows.add(new Object[]{1L, "Green Tea", "Loose leaf"});
+        rows.add(new Object[]{2L, "Black Tea", null});
+        when(productRepository.countByUserId(USER_ID)).thenAnswer(invocation -> (long) rows.size());
+        when(productRepository.findSearchFieldsByUserId(USER_ID)).thenAnswer(invocation -> new ArrayList<>(rows));
+    }
+
+    @Test
+    void buildsTheIndexOnceAndServesLaterSearchesFromIt() {
+        assertThat(ids(service.search(USER_ID, "tea", 10))).containsExactly(1L, 2L);
+        assertThat(ids(service.search(USER_ID, "green", 10))).containsExactly(1L);
+
+        verify(productRepository, times(1)).findSearchFieldsByUserId(USER_ID);
+        verify(productRepository, never()).findSearchFieldsMatching(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void writesKeepTheIndexCurrentAndArePublishedToOtherNodes() {
+        service.search(USER_ID, "tea", 10);
+
+        service.indexAfterCommit(USER_ID, product(3L, "Oolong Tea"));
+        service.removeAfterCommit(USER_ID, 1L);
+
+        assertThat(ids(service.search(USER_ID, "tea", 10))).containsExactly(2L, 3L);
+        verify(productRepository, times(1)).findSearchFieldsByUserId(USER_ID);
+        verify(liveEventBroker, times(2)).publish(any());
+    }
+
+    @Test
+    void appliesChangesFromOtherNodesButNotItsOwn() {
+        service.search(USER_ID, "tea", 10);
+
+        service.onIndexEvent(new LiveEvent(USER_ID, ProductSearchService.INDEX_EVENT,
+                Map.of("op", "put", "id", 3L, "name", "Mint Tea", "origin", "another-node")));
+        assertThat(ids(service.search(USER_ID, "mint", 10))).containsExactly(3L);
+
+        String ownNode = (String) ReflectionTestUtils.getField(service, "nodeId");
+        service.onIndexEvent(new LiveEvent(USER_ID, ProductSearchService.INDEX_EVENT,
+                Map.of("op", "remove", "id", 3L, "origin", ownNode)));
+        assertThat(ids(service.search(USER_ID, "mint", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void tenantsAboveTheDocumentBoundAreSearchedWithLike() {
+        rows.add(new Object[]{3L, "Mint Tea", null});
+        rows.add(new Object[]{4L, "Chai", "50%_spiced tea"});
+        when(productRepository.findSearchFieldsMatching(eq(USER_ID), anyString(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{4L, "Chai", "50%_spiced tea"}));
+
+        assertThat(ids(service.search(USER_ID, "50%_SPICED", 10))).containsExactly(4L);
+
+        verify(productRepository, never()).findSearchFieldsByUserId(USER_ID);
+        verify(productRepository).findSearchFieldsMatching(eq(USER_ID), eq("%50!%!_spiced%"), any());
+    }
+
+    @Test
+    void likeSearchHasNoTypoTolerance() {
+        rows.add(new Object[]{3L, "Mint Tea", null});
+        rows.add(new Object[]{4L, "Dark Chocolate", null});
+        when(productRepository.findSearchFieldsMatching(eq(USER_ID), anyString(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{4L, "Dark Chocolate", null}));
+
+        assertThat(service.search(USER_ID, "chocolaet", 10)).isEmpty();
+    }
+
+    @Test
+    void indexThatGrowsPastTheBoundSwitchesToLike() {
+        service.search(USER_ID, "tea", 10);
+        service.indexAfterCommit(USER_ID, product(3L, "Mint Tea"));
+        service.indexAfterCommit(USER_ID, product(4L, "Chai Tea"));
+        when(productRepository.findSearchFieldsMatching(eq(USER_ID), anyString(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{4L, "Chai Tea", null}));
+
+        assertThat(ids(service.search(USER_ID, "chai", 10))).containsExactly(4L);
+        verify(productRepository).findSearchFieldsMatching(eq(USER_ID), eq("%chai%"), any());
+    }
+
+    @Test
+    void indexBuiltWhileAWriteCommittedIsNotKept() {
+        service.search(USER_ID, "tea", 10);
+        service.onIndexEvent(new LiveEvent(USER_ID, ProductSearchService.INDEX_EVENT, Map.of("op", "invalidate")));
+
+        // The write lands after the rows were read, so the index built from them misses it.
+        doAnswer(invocation -> {
+            List<Object[]> snapshot = new ArrayList<>(rows);
+            rows.add(new Object[]{3L, "Mint Tea", null});
+            service.indexAfterCommit(USER_ID, product(3L, "Mint Tea"));
+            return snapshot;
+        }).when(productRepository).findSearchFieldsByUserId(USER_ID);
+        assertThat(service.search(USER_ID, "mint", 10)).isEmpty();
+
+        doAnswer(invocation -> new ArrayList<>(rows)).when(productRepository).findSearchFieldsByUserId(USER_ID);
+        assertThat(ids(service.search(USER_ID, "mint", 10))).containsExactly(3L);
+        verify(productRepository, times(3)).findSearchFieldsByUserId(USER_ID);
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.repository.ProfitRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProfitHistoryCompactorTest {
+
+    private final ProfitRecordRepository profitRecordRepository = mock(ProfitRecordRepository.class);
+    private final ProfitHistoryCompactor compactor = new ProfitHistoryCompactor(profitRecordRepository);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(compactor, "enabled", true);
+        ReflectionTestUtils.setField(compactor, "chunkSize", 2);
+    }
+
+    @Test
+    void snapshotCoversUsersActiveYesterdayAndIsDatedYesterday() {
+        LocalDate today = LocalDate.now();
+
+        compactor.snapshot();
+
+        verify(profitRecordRepository).insertSnapshots(today.minusDays(1).atStartOfDay(), today.atStartOfDay().minusSeconds(1));
+    }
+
+    @Test
+    void compactionDeletesEachCrowdedDayOfEachUserUpToItsLastRow() {
+        LocalDate day = LocalDate.of(2026, 3, 1);
+        when(profitRecordRepository.findUserIds()).thenReturn(List.of(1L, 2L));
+        when(profitRecordRepository.findDaysWithSupersededRows(eq(1L), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{Date.valueOf(day), 40L}));
+        when(profitRecordRepository.findDaysWithSupersededRows(eq(2L), any())).thenReturn(List.of());
+        when(profitRecordRepository.deleteSupersededChunk(eq(1L), any(), any(), eq(40L), anyInt())).thenReturn(2, 2, 1);
+
+        compactor.compact();
+
+        verify(profitRecordRepository, times(3))
+                .deleteSupersededChunk(1L, day.atStartOfDay(), day.plusDays(1).atStartOfDay(), 40L, 2);
+        verify(profitRecordRepository, never()).deleteSupersededChunk(eq(2L), any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void disabledCompactionTouchesNothing() {
+        ReflectionTestUtils.setField(compactor, "enabled", false);
+
+        compactor.compact();
+
+        verify(profitRecordRepository, never()).findUserIds();
+    }
+}
@@ -0,0 +1,210 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.model.User;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.SaleBatchRepository;
+import com.avaks.inventory.repository.SaleRepository;
+import com.avaks.inventory.repository.SalesRollupRepository;
+import com.avaks.inventory.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the direct sale path, SaleService.recordSale with one transaction per sale, against
+ * group commit through SaleIngestionService, both running the real sale statements against a
+ * database. Each caller sells its own product, so the runs measure commit cost rather than row
+ * lock waits. Defaults to an H2 file database; commit cost is what group commit saves, so point
+ * it at MySQL for representative numbers:
+ * {@code mvn test -Dtest=SaleIngestionBenchmarkTest -Dbenchmarks=true
+ * -Dbenchmarks.datasource.url=jdbc:mysql://localhost:3306/inventory_bench
+ * -Dbenchmarks.datasource.driver=com.mysql.cj.jdbc.Driver -Dbenchmarks.datasource.username=...
+ * -Dbenchmarks.datasource.password=...}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${benchmarks.datasource.url:jdbc:h2:file:./target/sale-ingestion-benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE}",
+        "spring.datasource.driver-class-name=${benchmarks.datasource.driver:org.h2.Driver}",
+        "spring.datasource.username=${benchmarks.datasource.username:sa}",
+        "spring.datasource.password=${benchmarks.datasource.password:}",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SaleService.class, SaleBatchRepository.class, SalesRollupRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(statements = {
+        "CREATE TABLE IF NOT EXISTS sales_rollup_hourly (user_id BIGINT NOT NULL, bucket_start DATETIME NOT NULL, "
+                + "product_id BIGINT NOT NULL, stripe INT NOT NULL DEFAULT 0, quantity BIGINT NOT NULL DEFAULT 0, "
+                + "revenue DOUBLE NOT NULL DEFAULT 0, profit DOUBLE NOT NULL DEFAULT 0, sale_count BIGINT NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (user_id, bucket_start, product_id, stripe))",
+        "CREATE TABLE IF NOT EXISTS sales_rollup_daily (user_id BIGINT NOT NULL, bucket_start DATETIME NOT NULL, "
+                + "product_id BIGINT NOT NULL, stripe INT NOT NULL DEFAULT 0, quantity BIGINT NOT NULL DEFAULT 0, "
+                + "revenue DOUBLE NOT NULL DEFAULT 0, profit DOUBLE NOT NULL DEFAULT 0, sale_count BIGINT NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (user_id, bucket_start, product_id, stripe))"
+})
+class SaleIngestionBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaleIngestionBenchmarkTest.class);
+
+    private static final int CALLERS = 16;
+    private static final int SALES_PER_CALLER = 100;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private StockStripeService stockStripeService;
+
+    @MockBean
+    private TenantPurgeService tenantPurgeService;
+
+    @MockBean
+    private LeaderboardService leaderboardService;
+
+    @MockBean
+    private TenantCacheEvictor tenantCacheEvictor;
+
+    @MockBean
+    private SyncService syncService;
+
+    @MockBean
+    private CollectionVersionService collectionVersionService;
+
+    @MockBean
+    private LowStockService lowStockService;
+
+    @MockBean
+    private LiveEventService liveEventService;
+
+    @Test
+    void groupCommitAppliesTheSameSalesInFewerTransactions() throws Exception {
+        Long userId = createUser();
+        when(userService.getCurrentUserId()).thenReturn(userId);
+        long[] productIds = createProducts(userId);
+
+        double direct = salesPerSecond(caller ->
+                saleService.recordSale(List.of(SaleIngestionServiceTest.item(productIds[caller], 1))));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SaleIngestionService ingestion = new SaleIngestionService(
+                saleService, tenantCacheEvictor, collectionVersionService, transactionManager, meterRegistry, 2);
+        ReflectionTestUtils.setField(ingestion, "entityManager", entityManager);
+        ReflectionTestUtils.setField(ingestion, "mode", "group-commit");
+        ReflectionTestUtils.setField(ingestion, "batchSize", 64);
+        ReflectionTestUtils.setField(ingestion, "maxDelayMs", 2L);
+        ReflectionTestUtils.setField(ingestion, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(ingestion, "timeoutMs", 30_000L);
+        double grouped;
+        try {
+            grouped = salesPerSecond(caller ->
+                    ingestion.recordSale(userId, List.of(SaleIngestionServiceTest.item(productIds[caller], 1))));
+        } finally {
+            ingestion.shutdown();
+        }
+        long groupCommits = meterRegistry.get("sales.ingestion.batch.size").summary().count();
+
+        int sales = CALLERS * SALES_PER_CALLER;
+        LOGGER.info("Sale ingestion: direct {} sales/s in {} commits, group commit {} sales/s in {} commits",
+                Math.round(direct), sales, Math.round(grouped), groupCommits);
+
+        assertThat(saleRepository.count()).isEqualTo(2L * sales);
+        for (long productId : productIds) {
+            assertThat(productRepository.findById(productId).orElseThrow().getStock()).isEqualTo(STOCK - 2 * SALES_PER_CALLER);
+        }
+        assertThat(groupCommits).isLessThan(sales);
+    }
+
+    private Long createUser() {
+        User user = new User();
+        user.setEmail("bench-" + System.nanoTime() + "@example.com");
+        user.setStoreName("Bench");
+        return new TransactionTemplate(transactionManager).execute(status -> userRepository.save(user).getId());
+    }
+
+    private long[] createProducts(Long userId) {
+        long[] productIds = new long[CALLERS];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User owner = userRepository.getReferenceById(userId);
+            for (int i = 0; i < CALLERS; i++) {
+                Product product = new Product();
+                product.setName("Bench product " + i);
+                product.setPrice(1.0);
+                product.setSellingPrice(2.0);
+                product.setStock(STOCK);
+                product.setUser(owner);
+                productIds[i] = productRepository.save(product).getId();
+            }
+        });
+        return productIds;
+    }
+
+    private static double salesPerSecond(IntConsumer sale) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            long startedAt = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                int caller = i;
+                running.add(callers.submit(() -> {
+                    for (int j = 0; j < SALES_PER_CALLER; j++) {
+                        sale.accept(caller);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            return CALLERS * SALES_PER_CALLER / seconds;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
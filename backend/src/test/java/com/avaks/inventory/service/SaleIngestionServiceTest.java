@@ -0,0 +1,158 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.dto.SaleItemRequest;
+import com.avaks.inventory.exception.SaleFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SaleIngestionServiceTest {
+
+    private static final long USER_ID = 7L;
+    private static final long FAILING_PRODUCT = 99L;
+
+    private final SaleService saleService = mock(SaleService.class);
+    private final FakeTransactionManager transactionManager = new FakeTransactionManager(0);
+    private SaleIngestionService ingestion;
+
+    @BeforeEach
+    void setUp() {
+        ingestion = new SaleIngestionService(
+                saleService,
+                mock(TenantCacheEvictor.class),
+                mock(CollectionVersionService.class),
+                transactionManager,
+                new SimpleMeterRegistry(),
+                1);
+        ReflectionTestUtils.setField(ingestion, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(ingestion, "mode", "group-commit");
+        ReflectionTestUtils.setField(ingestion, "batchSize", 8);
+        // Long enough that all queued sales land in the same batch.
+        ReflectionTestUtils.setField(ingestion, "maxDelayMs", 200L);
+        ReflectionTestUtils.setField(ingestion, "queueCapacity", 64);
+        ReflectionTestUtils.setField(ingestion, "timeoutMs", 5000L);
+
+        when(saleService.recordSaleForUser(anyLong(), anyList())).thenReturn(Map.of("profit", 1.0));
+        when(saleService.recordSaleForUser(anyLong(), argThat(items -> items != null
+                && items.stream().anyMatch(item -> item.getId() == FAILING_PRODUCT))))
+                .thenThrow(new SaleFailedException("Sale could not be completed",
+                        List.of(new SaleFailedException.FailedItem(FAILING_PRODUCT, "Insufficient stock"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestion.shutdown();
+    }
+
+    @Test
+    void failingSaleIsReportedAloneAndItsNeighboursCommit() throws Exception {
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+        CountDownLatch queued = new CountDownLatch(1);
+        for (long productId : new long[]{1L, 2L, FAILING_PRODUCT, 3L}) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                queued.countDown();
+                return ingestion.recordSale(USER_ID, List.of(item(productId, 1)));
+            }));
+        }
+        queued.await();
+
+        for (int i = 0; i < results.size(); i++) {
+            CompletableFuture<Map<String, Object>> result = results.get(i);
+            if (i == 2) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(SaleFailedException.class);
+            } else {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsEntry("profit", 1.0);
+            }
+        }
+        // No savepoints: the failing group is rolled back whole and nothing partial commits.
+        assertThat(transactionManager.rollbacks.get()).isGreaterThanOrEqualTo(1);
+        assertThat(transactionManager.commits.get()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void singleFailingSaleFailsWithoutRetry() {
+        assertThatThrownBy(() -> ingestion.recordSale(USER_ID, List.of(item(FAILING_PRODUCT, 1))))
+                .isInstanceOf(SaleFailedException.class);
+        assertThat(transactionManager.rollbacks.get()).isEqualTo(1);
+        assertThat(transactionManager.commits.get()).isZero();
+    }
+
+    @Test
+    void concurrentSalesShareCommits() throws Exception {
+        int callers = 8;
+        int salesPerCaller = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                running.add(executor.submit(() -> {
+                    for (int j = 0; j < salesPerCaller; j++) {
+                        assertThat(ingestion.recordSale(USER_ID, List.of(item(1L, 1)))).containsEntry("profit", 1.0);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Callers wait for their own commit, so each group holds the sales queued meanwhile.
+        assertThat(transactionManager.commits.get()).isLessThanOrEqualTo(callers * salesPerCaller / 2);
+        assertThat(transactionManager.rollbacks.get()).isZero();
+    }
+
+    @Test
+    void idleEmptyLanesAreEvictedAndRecreatedOnTheNextSale() throws Exception {
+        ReflectionTestUtils.setField(ingestion, "laneIdleMinutes", 10L);
+        ingestion.recordSale(USER_ID, List.of(item(1L, 1)));
+        ingestion.recordSale(USER_ID + 1, List.of(item(1L, 1)));
+
+        ingestion.evictIdleLanes();
+        assertThat(lanes()).containsOnlyKeys(USER_ID, USER_ID + 1);
+
+        ReflectionTestUtils.setField(ingestion, "laneIdleMinutes", 0L);
+        Thread.sleep(5);
+        ingestion.evictIdleLanes();
+        assertThat(lanes()).isEmpty();
+
+        assertThat(ingestion.recordSale(USER_ID, List.of(item(1L, 1)))).containsEntry("profit", 1.0);
+        assertThat(lanes()).containsOnlyKeys(USER_ID);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> lanes() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(ingestion, "lanes");
+    }
+
+    static SaleItemRequest item(long productId, int quantity) {
+        SaleItemRequest item = new SaleItemRequest();
+        item.setId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
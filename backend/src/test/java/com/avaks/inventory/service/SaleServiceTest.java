@@ -0,0 +1,234 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.config.cache.TenantCacheEvictor;
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.ProductRepository;
+import com.avaks.inventory.repository.ProfitRecordRepository;
+import com.avaks.inventory.repository.ProfitSummaryRepository;
+import com.avaks.inventory.repository.SaleBatchRepository;
+import com.avaks.inventory.repository.SalesRollupRepository;
+import com.avaks.inventory.repository.StockStripeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SaleServiceTest {
+
+    private static final long USER_ID = 7L;
+    private static final long PRODUCT_ID = 1L;
+    private static final double UNIT_PROFIT = 1.5;
+
+    /**
+     * Two sales of the same hot product run at the same time against rows whose locks are held
+     * until commit. A round counts as contended when one sale had to wait for a row the other
+     * held: stock stripe, hourly or daily rollup row, or profit summary row. With a single stripe
+     * every round contends; with eight, only the rounds where the random stripes collide do.
+     */
+    @Test
+    void hotSalesOnDifferentStripesDoNotWaitForEachOther() throws Exception {
+        assertThat(contendedRounds(1, 20)).isEqualTo(20);
+        // Expected about 23 in 100: the sales collide on the stock stripe or the aggregate stripe.
+        assertThat(contendedRounds(8, 100)).isLessThan(50);
+    }
+
+    @Test
+    void profitAndRollupsAddUpAcrossStripes() throws Exception {
+        RowLocks rows = new RowLocks();
+        SaleService service = saleService(rows, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 50; round++) {
+                runRound(executor, rows, service);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(rows.profit.values().stream().mapToDouble(Double::doubleValue).sum()).isEqualTo(100 * UNIT_PROFIT);
+        assertThat(rows.rollupQuantity.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(2 * 100);
+        assertThat(rows.profit.keySet()).hasSizeGreaterThan(1);
+    }
+
+    private int contendedRounds(int stripes, int rounds) throws Exception {
+        RowLocks rows = new RowLocks();
+        SaleService service = saleService(rows, stripes);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int contended = 0;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                if (runRound(executor, rows, service)) {
+                    contended++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return contended;
+    }
+
+    private boolean runRound(ExecutorService executor, RowLocks rows, SaleService service) throws Exception {
+        rows.contended.set(false);
+        CyclicBarrier start = new CyclicBarrier(2);
+        CyclicBarrier commit = new CyclicBarrier(2);
+        Future<?> a = executor.submit(() -> rows.inTransaction(start, commit,
+                () -> service.recordSaleForUser(USER_ID, List.of(SaleIngestionServiceTest.item(PRODUCT_ID, 1)))));
+        Future<?> b = executor.submit(() -> rows.inTransaction(start, commit,
+                () -> service.recordSaleForUser(USER_ID, List.of(SaleIngestionServiceTest.item(PRODUCT_ID, 1)))));
+        a.get(10, TimeUnit.SECONDS);
+        b.get(10, TimeUnit.SECONDS);
+        return rows.contended.get();
+    }
+
+    private static SaleService saleService(RowLocks rows, int stripes) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllForSale(anyLong(), any())).thenAnswer(invocation -> List.of(hotProduct(stripes)));
+
+        ProfitSummaryRepository profitSummaryRepository = mock(ProfitSummaryRepository.class);
+        when(profitSummaryRepository.addProfit(anyLong(), anyInt(), anyDouble(), any())).thenAnswer(invocation -> {
+            int stripe = invocation.getArgument(1);
+            rows.lock("profit:" + stripe);
+            rows.profit.merge(stripe, invocation.<Double>getArgument(2), Double::sum);
+            return 1;
+        });
+
+        ChangeVersionService changeVersionService = mock(ChangeVersionService.class);
+        when(changeVersionService.pendingVersion(anyLong())).thenReturn(-1L);
+
+        SaleService service = new SaleService();
+        ReflectionTestUtils.setField(service, "productRepository", productRepository);
+        ReflectionTestUtils.setField(service, "saleBatchRepository", mock(SaleBatchRepository.class));
+        ReflectionTestUtils.setField(service, "stockStripeService",
+                StockStripeServiceTest.stockStripeService(new LockingStripes(rows), changeVersionService));
+        ReflectionTestUtils.setField(service, "salesRollupRepository", new LockingRollups(rows));
+        ReflectionTestUtils.setField(service, "profitRecordRepository", mock(ProfitRecordRepository.class));
+        ReflectionTestUtils.setField(service, "profitSummaryRepository", profitSummaryRepository);
+        ReflectionTestUtils.setField(service, "userService", mock(UserService.class));
+        ReflectionTestUtils.setField(service, "leaderboardService", mock(LeaderboardService.class));
+        ReflectionTestUtils.setField(service, "tenantCacheEvictor", mock(TenantCacheEvictor.class));
+        ReflectionTestUtils.setField(service, "syncService", mock(SyncService.class));
+        ReflectionTestUtils.setField(service, "collectionVersionService", mock(CollectionVersionService.class));
+        ReflectionTestUtils.setField(service, "lowStockService", mock(LowStockService.class));
+        ReflectionTestUtils.setField(service, "liveEventService", mock(LiveEventService.class));
+        return service;
+    }
+
+    private static Product hotProduct(int stripes) {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("Hot");
+        product.setPrice(1.0);
+        product.setSellingPrice(1.0 + UNIT_PROFIT);
+        product.setHotStripes(stripes);
+        return product;
+    }
+
+    /**
+     * Row locks held until the surrounding transaction ends. A transaction that finishes its work
+     * waits briefly for the other one to finish too before committing, so a sale only ever waits
+     * for a lock when the two really touch the same row.
+     */
+    private static final class RowLocks {
+
+        private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+        private final ThreadLocal<Set<ReentrantLock>> held = ThreadLocal.withInitial(HashSet::new);
+        private final AtomicBoolean contended = new AtomicBoolean();
+        private final Map<Integer, Double> profit = new ConcurrentHashMap<>();
+        private final Map<String, Long> rollupQuantity = new ConcurrentHashMap<>();
+
+        void inTransaction(CyclicBarrier start, CyclicBarrier commit, Runnable work) {
+            try {
+                start.await();
+                work.run();
+                commit.await(50, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | BrokenBarrierException ex) {
+                // The other sale is waiting for one of our rows, or already committed after waiting.
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                held.get().forEach(ReentrantLock::unlock);
+                held.get().clear();
+            }
+        }
+
+        void lock(String row) {
+            ReentrantLock lock = locks.computeIfAbsent(row, ignored -> new ReentrantLock());
+            if (lock.isHeldByCurrentThread()) {
+                return;
+            }
+            if (!lock.tryLock()) {
+                contended.set(true);
+                lock.lock();
+            }
+            held.get().add(lock);
+        }
+    }
+
+    private static final class LockingStripes extends StockStripeRepository {
+
+        private final RowLocks rows;
+
+        LockingStripes(RowLocks rows) {
+            super(null);
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean decrementStripe(Long productId, int stripe, int quantity, long changeVersion) {
+            rows.lock("stripe:" + productId + ":" + stripe);
+            return true;
+        }
+
+        @Override
+        public Map<Long, Integer> sumStock(Collection<Long> productIds) {
+            Map<Long, Integer> totals = new HashMap<>();
+            productIds.forEach(productId -> totals.put(productId, 1_000_000));
+            return totals;
+        }
+    }
+
+    private static final class LockingRollups extends SalesRollupRepository {
+
+        private final RowLocks rows;
+
+        LockingRollups(RowLocks rows) {
+            super(null);
+            this.rows = rows;
+        }
+
+        @Override
+        public void apply(Long userId, LocalDateTime soldAt, int stripe, List<Delta> deltas) {
+            for (Granularity granularity : Granularity.values()) {
+                for (Delta delta : deltas) {
+                    String row = granularity + ":" + granularity.bucketOf(soldAt) + ":" + delta.productId() + ":" + stripe;
+                    rows.lock(row);
+                    rows.rollupQuantity.merge(row, delta.quantity(), Long::sum);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.avaks.inventory.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Just enough of an SMTP server to accept mail in tests: no TLS, no auth. Recipients whose
+ * address starts with "bounce" are rejected, which JavaMail reports as a failed message.
+ */
+class SmtpSink implements AutoCloseable {
+
+    record Received(List<String> recipients, String data) {
+
+        /** The message text with quoted-printable soft line breaks and '=' escapes undone. */
+        String body() {
+            return data.replace("=\n", "").replace("=3D", "=");
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newCachedThreadPool();
+    final List<Received> received = new CopyOnWriteArrayList<>();
+    final List<Integer> connections = new CopyOnWriteArrayList<>();
+
+    SmtpSink() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        sessions.execute(this::acceptLoop);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket.getPort());
+                sessions.execute(() -> session(socket));
+            } catch (IOException ex) {
+                return;
+            }
+        }
+    }
+
+    private void session(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            reply(out, "220 sink ready");
+            List<String> recipients = new CopyOnWriteArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 sink");
+                } else if (command.startsWith("MAIL FROM")) {
+                    recipients = new CopyOnWriteArrayList<>();
+                    reply(out, "250 OK");
+                } else if (command.startsWith("RCPT TO")) {
+                    if (command.contains("<BOUNCE")) {
+                        reply(out, "550 No such user");
+                    } else {
+                        recipients.add(line.substring(line.indexOf('<') + 1, line.indexOf('>')));
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder data = new StringBuilder();
+                    String dataLine;
+                    while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                        data.append(dataLine.startsWith("..") ? dataLine.substring(1) : dataLine).append('\n');
+                    }
+                    received.add(new Received(List.copyOf(recipients), data.toString()));
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    // RSET, NOOP and anything else.
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException ignored) {
+            // Client went away.
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,247 @@
+package com.avaks.inventory.service;
+
+import com.avaks.inventory.model.Product;
+import com.avaks.inventory.repository.StockStripeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockStripeServiceTest {
+
+    private static final long USER_ID = 7L;
+    private static final int STRIPES = 4;
+    private static final int ROUNDS = 300;
+
+    /**
+     * Two sales of the same two hot products, listed in opposite order, run at the same time
+     * against stripe rows that keep their locks until commit, including after an UPDATE that
+     * matched no row, as InnoDB does under REPEATABLE READ. Half the stripes are empty so
+     * probes miss. A lock wait that times out is how a deadlock shows up here.
+     */
+    @Test
+    void concurrentSalesOfTheSameHotProductsDoNotDeadlock() throws Exception {
+        LockingStripes stripes = new LockingStripes();
+        ChangeVersionService changeVersionService = mock(ChangeVersionService.class);
+        when(changeVersionService.pendingVersion(anyLong())).thenReturn(-1L);
+        StockStripeService service = stockStripeService(stripes, changeVersionService);
+
+        Product first = hotProduct(1L);
+        Product second = hotProduct(2L);
+        Map<Long, Integer> quantities = Map.of(1L, 1, 2L, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                stripes.reset(1L, 1, 0, 1, 0);
+                stripes.reset(2L, 1, 0, 1, 0);
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<Map<Long, StockStripeService.Decrement>> a = executor.submit(() -> stripes.inTransaction(start,
+                        () -> service.decrement(USER_ID, List.of(first, second), quantities)));
+                Future<Map<Long, StockStripeService.Decrement>> b = executor.submit(() -> stripes.inTransaction(start,
+                        () -> service.decrement(USER_ID, List.of(second, first), quantities)));
+
+                int sold = 4 - a.get(10, TimeUnit.SECONDS).size() - b.get(10, TimeUnit.SECONDS).size();
+                assertThat(stripes.lockTimeouts).hasValue(0);
+                assertThat(stripes.total(1L) + stripes.total(2L)).isEqualTo(4 - sold);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shortProbeTakesFromTheOtherStripes() {
+        StockStripeRepository repository = mock(StockStripeRepository.class);
+        when(repository.lockUnheldStripes(1L, STRIPES)).thenReturn(new int[]{1, 2, 0, 3});
+
+        assertThat(stockStripeService(repository, versions()).decrement(1L, USER_ID, STRIPES, 4))
+                .isEqualTo(StockStripeService.Decrement.TAKEN);
+        verify(repository).takeFromStripes(eq(1L), aryEq(new int[]{1, 2, 0, 1}), anyLong());
+    }
+
+    @Test
+    void stripesThatTogetherHoldTooLittleAreOutOfStockWithoutRetrying() {
+        StockStripeRepository repository = mock(StockStripeRepository.class);
+        when(repository.lockUnheldStripes(1L, STRIPES)).thenReturn(new int[]{1, 0, 0, 1});
+
+        assertThat(stockStripeService(repository, versions()).decrement(1L, USER_ID, STRIPES, 3))
+                .isEqualTo(StockStripeService.Decrement.OUT_OF_STOCK);
+        verify(repository, times(1)).lockUnheldStripes(1L, STRIPES);
+    }
+
+    @Test
+    void busyStripesAreRetriedUntilTheyFreeUp() {
+        StockStripeRepository repository = mock(StockStripeRepository.class);
+        when(repository.lockUnheldStripes(1L, STRIPES))
+                .thenReturn(new int[]{1, -1, -1, 0})
+                .thenReturn(new int[]{1, 2, -1, 0});
+
+        assertThat(stockStripeService(repository, versions()).decrement(1L, USER_ID, STRIPES, 3))
+                .isEqualTo(StockStripeService.Decrement.TAKEN);
+        verify(repository, times(2)).lockUnheldStripes(1L, STRIPES);
+    }
+
+    @Test
+    void stripesThatStayBusyAreReportedAsContendedNotOutOfStock() {
+        StockStripeRepository repository = mock(StockStripeRepository.class);
+        when(repository.lockUnheldStripes(1L, STRIPES)).thenReturn(new int[]{1, -1, -1, -1});
+
+        assertThat(stockStripeService(repository, versions()).decrement(1L, USER_ID, STRIPES, 3))
+                .isEqualTo(StockStripeService.Decrement.CONTENDED);
+        verify(repository, times(3)).lockUnheldStripes(1L, STRIPES);
+        verify(repository, never()).takeFromStripes(anyLong(), any(), anyLong());
+    }
+
+    static StockStripeService stockStripeService(StockStripeRepository repository, ChangeVersionService changeVersionService) {
+        StockStripeService service = new StockStripeService(
+                repository, changeVersionService, mock(LowStockService.class), new FakeTransactionManager(0));
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 1L);
+        return service;
+    }
+
+    private static ChangeVersionService versions() {
+        ChangeVersionService changeVersionService = mock(ChangeVersionService.class);
+        when(changeVersionService.pendingVersion(anyLong())).thenReturn(-1L);
+        return changeVersionService;
+    }
+
+    private static Product hotProduct(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setHotStripes(STRIPES);
+        return product;
+    }
+
+    /** Stripe rows with row locks that are held until the surrounding transaction ends. */
+    private static final class LockingStripes extends StockStripeRepository {
+
+        private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+        private final Map<String, Integer> stock = new ConcurrentHashMap<>();
+        private final ThreadLocal<Set<ReentrantLock>> held = ThreadLocal.withInitial(HashSet::new);
+        private final AtomicInteger lockTimeouts = new AtomicInteger();
+
+        LockingStripes() {
+            super(null);
+        }
+
+        void reset(long productId, int... values) {
+            for (int stripe = 0; stripe < values.length; stripe++) {
+                stock.put(productId + ":" + stripe, values[stripe]);
+            }
+        }
+
+        int total(long productId) {
+            int total = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                total += stock.get(productId + ":" + stripe);
+            }
+            return total;
+        }
+
+        <T> T inTransaction(CyclicBarrier start, Callable<T> work) throws Exception {
+            start.await();
+            try {
+                T result = work.call();
+                // Commit latency, so the two transactions overlap.
+                Thread.sleep(1);
+                return result;
+            } finally {
+                held.get().forEach(ReentrantLock::unlock);
+                held.get().clear();
+            }
+        }
+
+        @Override
+        public boolean decrementStripe(Long productId, int stripe, int quantity, long changeVersion) {
+            String row = productId + ":" + stripe;
+            lock(row);
+            if (stock.get(row) < quantity) {
+                return false;
+            }
+            stock.merge(row, -quantity, Integer::sum);
+            return true;
+        }
+
+        @Override
+        public int[] lockStripes(Long productId, int stripes) {
+            int[] values = new int[stripes];
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                lock(productId + ":" + stripe);
+                values[stripe] = stock.get(productId + ":" + stripe);
+            }
+            return values;
+        }
+
+        @Override
+        public int[] lockUnheldStripes(Long productId, int stripes) {
+            int[] values = new int[stripes];
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                ReentrantLock lock = locks.computeIfAbsent(productId + ":" + stripe, ignored -> new ReentrantLock());
+                if (lock.isHeldByCurrentThread() || lock.tryLock()) {
+                    held.get().add(lock);
+                    values[stripe] = stock.get(productId + ":" + stripe);
+                } else {
+                    values[stripe] = -1;
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void takeFromStripes(Long productId, int[] taken, long changeVersion) {
+            for (int stripe = 0; stripe < taken.length; stripe++) {
+                String row = productId + ":" + stripe;
+                assertThat(locks.get(row) == null || taken[stripe] == 0 || locks.get(row).isHeldByCurrentThread()).isTrue();
+                stock.merge(row, -taken[stripe], Integer::sum);
+            }
+        }
+
+        @Override
+        public void writeStripes(Long productId, int[] values, long changeVersion) {
+            for (int stripe = 0; stripe < values.length; stripe++) {
+                stock.put(productId + ":" + stripe, values[stripe]);
+            }
+        }
+
+        private void lock(String row) {
+            ReentrantLock lock = locks.computeIfAbsent(row, ignored -> new ReentrantLock());
+            if (lock.isHeldByCurrentThread()) {
+                return;
+            }
+            try {
+                if (!lock.tryLock(1, TimeUnit.SECONDS)) {
+                    lockTimeouts.incrementAndGet();
+                    throw new IllegalStateException("Lock wait timeout on stripe " + row);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+            held.get().add(lock);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.avaks.inventory.service.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryLeaderboardStoreTest {
+
+    private static final long USER_ID = 1L;
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 1);
+
+    private final InMemoryLeaderboardStore store = new InMemoryLeaderboardStore();
+
+    @Test
+    void saleLeavesEachWindowOnTheDayAfterItEnds() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(10L, 3.0));
+
+        assertThat(top(DAY, LeaderboardWindow.TODAY)).containsExactly(new LeaderboardEntry(10L, 3.0));
+        assertThat(top(DAY.plusDays(1), LeaderboardWindow.TODAY)).isEmpty();
+        assertThat(top(DAY.plusDays(6), LeaderboardWindow.LAST_7_DAYS)).containsExactly(new LeaderboardEntry(10L, 3.0));
+        assertThat(top(DAY.plusDays(7), LeaderboardWindow.LAST_7_DAYS)).isEmpty();
+        assertThat(top(DAY.plusDays(29), LeaderboardWindow.LAST_30_DAYS)).containsExactly(new LeaderboardEntry(10L, 3.0));
+        assertThat(top(DAY.plusDays(30), LeaderboardWindow.LAST_30_DAYS)).isEmpty();
+    }
+
+    @Test
+    void rollingForwardKeepsSalesThatAreStillInTheWindow() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(10L, 3.0, 20L, 1.0));
+        store.increment(USER_ID, DAY.plusDays(3), LeaderboardMetric.UNITS, Map.of(20L, 4.0));
+
+        assertThat(top(DAY.plusDays(7), LeaderboardWindow.LAST_7_DAYS)).containsExactly(new LeaderboardEntry(20L, 4.0));
+        assertThat(top(DAY.plusDays(7), LeaderboardWindow.LAST_30_DAYS))
+                .containsExactly(new LeaderboardEntry(20L, 5.0), new LeaderboardEntry(10L, 3.0));
+    }
+
+    @Test
+    void pastDaySeedCountsOnlyInWindowsThatStillCoverIt() {
+        store.seed(USER_ID, DAY.minusDays(10), 10L, 5.0, 50.0);
+
+        assertThat(top(DAY, LeaderboardWindow.TODAY)).isEmpty();
+        assertThat(top(DAY, LeaderboardWindow.LAST_7_DAYS)).isEmpty();
+        assertThat(top(DAY, LeaderboardWindow.LAST_30_DAYS)).containsExactly(new LeaderboardEntry(10L, 5.0));
+        assertThat(store.top(USER_ID, DAY, LeaderboardWindow.LAST_30_DAYS, LeaderboardMetric.PROFIT, 10))
+                .containsExactly(new LeaderboardEntry(10L, 50.0));
+    }
+
+    @Test
+    void seedsArrivingOutOfOrderExpireOnTheirOwnDays() {
+        // The rollups are streamed in no particular order: a later day may be seeded first.
+        store.seed(USER_ID, DAY.minusDays(2), 10L, 1.0, 1.0);
+        store.seed(USER_ID, DAY.minusDays(8), 20L, 2.0, 2.0);
+        store.seed(USER_ID, DAY.minusDays(40), 30L, 4.0, 4.0);
+        store.seed(USER_ID, DAY.minusDays(5), 10L, 8.0, 8.0);
+
+        assertThat(top(DAY, LeaderboardWindow.LAST_7_DAYS)).containsExactly(new LeaderboardEntry(10L, 9.0));
+        assertThat(top(DAY, LeaderboardWindow.LAST_30_DAYS))
+                .containsExactly(new LeaderboardEntry(10L, 9.0), new LeaderboardEntry(20L, 2.0));
+    }
+
+    @Test
+    void saleForAnEarlierDayThanTheLastOneCountsInTheWindowsCoveringIt() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(10L, 1.0));
+        store.increment(USER_ID, DAY.minusDays(1), LeaderboardMetric.UNITS, Map.of(20L, 2.0));
+
+        assertThat(top(DAY, LeaderboardWindow.TODAY)).containsExactly(new LeaderboardEntry(10L, 1.0));
+        assertThat(top(DAY, LeaderboardWindow.LAST_7_DAYS))
+                .containsExactly(new LeaderboardEntry(20L, 2.0), new LeaderboardEntry(10L, 1.0));
+    }
+
+    @Test
+    void longIdleGapEmptiesEveryWindowAndLaterSalesCountAgain() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(10L, 1.0));
+        LocalDate later = DAY.plusDays(45);
+
+        assertThat(top(later, LeaderboardWindow.LAST_30_DAYS)).isEmpty();
+        store.increment(USER_ID, later, LeaderboardMetric.UNITS, Map.of(20L, 2.0));
+        assertThat(top(later, LeaderboardWindow.TODAY)).containsExactly(new LeaderboardEntry(20L, 2.0));
+    }
+
+    @Test
+    void ranksByScoreThenProductIdAndHonoursTheLimit() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(30L, 2.0, 10L, 2.0, 20L, 5.0, 40L, 1.0));
+
+        assertThat(store.top(USER_ID, DAY, LeaderboardWindow.TODAY, LeaderboardMetric.UNITS, 3))
+                .containsExactly(new LeaderboardEntry(20L, 5.0), new LeaderboardEntry(10L, 2.0), new LeaderboardEntry(30L, 2.0));
+    }
+
+    @Test
+    void resetForgetsOnlyThatUser() {
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(10L, 1.0));
+        store.increment(2L, DAY, LeaderboardMetric.UNITS, Map.of(10L, 1.0));
+
+        store.reset(USER_ID);
+
+        assertThat(top(DAY, LeaderboardWindow.LAST_30_DAYS)).isEmpty();
+        assertThat(store.top(2L, DAY, LeaderboardWindow.LAST_30_DAYS, LeaderboardMetric.UNITS, 10)).hasSize(1);
+        store.increment(USER_ID, DAY, LeaderboardMetric.UNITS, Map.of(20L, 1.0));
+        assertThat(top(DAY, LeaderboardWindow.TODAY)).containsExactly(new LeaderboardEntry(20L, 1.0));
+    }
+
+    private List<LeaderboardEntry> top(LocalDate today, LeaderboardWindow window) {
+        return store.top(USER_ID, today, window, LeaderboardMetric.UNITS, 10);
+    }
+}
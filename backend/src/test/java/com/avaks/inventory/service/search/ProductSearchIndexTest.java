@@ -0,0 +1,77 @@
+package com.avaks.inventory.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void ranksNamePrefixThenNameThenDescription() {
+        index.put(1L, "Gadget", "Works with any widget");
+        index.put(2L, "Blue Widget", null);
+        index.put(3L, "Widget Pro", "");
+
+        assertThat(index.search("widget", 10))
+                .extracting(ProductSearchIndex.Hit::productId, ProductSearchIndex.Hit::matchType)
+                .containsExactly(
+                        tuple(3L, ProductSearchIndex.MatchType.NAME_PREFIX),
+                        tuple(2L, ProductSearchIndex.MatchType.NAME),
+                        tuple(1L, ProductSearchIndex.MatchType.DESCRIPTION));
+    }
+
+    @Test
+    void shorterNamesAndThenLowerIdsWinWithinAMatchType() {
+        index.put(5L, "Widget XL", null);
+        index.put(4L, "Widget S", null);
+        index.put(3L, "Widget M", null);
+
+        assertThat(ids(index.search("widget", 2))).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void fallsBackToFuzzyMatchesOnlyWhenNothingMatchesExactly() {
+        index.put(1L, "Dark Chocolate", null);
+        index.put(2L, "Coffee", null);
+
+        List<ProductSearchIndex.Hit> hits = index.search("chocolaet", 10);
+
+        assertThat(ids(hits)).containsExactly(1L);
+        assertThat(hits.get(0).matchType()).isEqualTo(ProductSearchIndex.MatchType.FUZZY);
+        assertThat(index.search("chocolate", 10).get(0).matchType()).isEqualTo(ProductSearchIndex.MatchType.NAME);
+        assertThat(index.search("xyzzy", 10)).isEmpty();
+    }
+
+    @Test
+    void queriesShorterThanATrigramMatchNamePrefixesOnly() {
+        index.put(1L, "Tea", null);
+        index.put(2L, "Green tea", "tea leaves");
+
+        assertThat(ids(index.search("te", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void putReplacesTheIndexedTextAndRemoveDropsIt() {
+        index.put(1L, "Lamp", "Desk lamp");
+        index.put(1L, "Torch", null);
+
+        assertThat(index.search("lamp", 10)).isEmpty();
+        assertThat(ids(index.search("torch", 10))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+
+        index.remove(1L);
+
+        assertThat(index.search("torch", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+        assertThat(index.estimatedBytes()).isZero();
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+}